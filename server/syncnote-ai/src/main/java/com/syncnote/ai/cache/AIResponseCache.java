@@ -0,0 +1,161 @@
+package com.syncnote.ai.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.dto.request.ChatRequest;
+import com.syncnote.ai.provider.AIMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI 响应缓存
+ * key 为规范化后的请求指纹：SHA-256(模型 ID, 模式, 上下文, 问题)，上下文和问题会去掉首尾空白并合并连续空白，
+ * 用户重试、多个协作者对同一文档提相同问题时不再重复调用模型
+ * 本地使用 Caffeine（TTL + 条目上限），可选通过 Redis 在节点之间共享
+ * 续写默认不缓存（每次应给出不同的建议），可通过 cache-continue 打开
+ */
+@Component
+public class AIResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIResponseCache.class);
+
+    private final AIProperties.Cache properties;
+    private final Cache<String, AIResult> localCache;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Counter latencySaved;
+
+    public AIResponseCache(AIProperties aiProperties, MeterRegistry meterRegistry) {
+        this.properties = aiProperties.getCache();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(Duration.ofSeconds(properties.getTtlSeconds()))
+                .build();
+
+        FunctionCounter.builder("syncnote.ai.cache.hits", hits, AtomicLong::get)
+                .description("命中缓存的请求数")
+                .register(meterRegistry);
+        FunctionCounter.builder("syncnote.ai.cache.misses", misses, AtomicLong::get)
+                .description("未命中缓存的请求数")
+                .register(meterRegistry);
+        Gauge.builder("syncnote.ai.cache.hit.ratio", this, AIResponseCache::getHitRatio)
+                .description("缓存命中率")
+                .register(meterRegistry);
+        Gauge.builder("syncnote.ai.cache.size", localCache, Cache::estimatedSize)
+                .description("本地缓存条目数")
+                .register(meterRegistry);
+        this.latencySaved = Counter.builder("syncnote.ai.cache.latency.saved")
+                .description("命中缓存节省的模型调用时间")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 该模式的请求是否可以缓存
+     */
+    public boolean isCacheable(AIMode mode) {
+        return properties.isEnabled() && (mode != AIMode.CONTINUE || properties.isCacheContinue());
+    }
+
+    /**
+     * 计算请求指纹
+     */
+    public String fingerprint(ChatRequest request, AIMode mode) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, request.getModelId());
+            update(digest, mode.name());
+            update(digest, normalize(request.getContext()));
+            update(digest, normalize(request.getMessage()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 查找缓存，先查本地再查 Redis；同时统计命中率
+     */
+    public Optional<AIResult> get(String key) {
+        AIResult result = localCache.getIfPresent(key);
+        if (result == null && isRedisEnabled()) {
+            try {
+                Object value = redisTemplate.opsForValue().get(properties.getRedisKeyPrefix() + key);
+                if (value instanceof AIResult shared) {
+                    result = shared;
+                    localCache.put(key, shared);
+                }
+            } catch (Exception e) {
+                logger.debug("读取 Redis AI 缓存失败: {}", e.getMessage());
+            }
+        }
+        if (result == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        latencySaved.increment(result.getLatencyMs());
+        return Optional.of(result);
+    }
+
+    public void put(String key, AIResult result) {
+        if (result == null || result.getText() == null || result.getText().isEmpty()) {
+            return;
+        }
+        localCache.put(key, result);
+        if (isRedisEnabled()) {
+            try {
+                redisTemplate.opsForValue().set(properties.getRedisKeyPrefix() + key, result,
+                        Duration.ofSeconds(properties.getTtlSeconds()));
+            } catch (Exception e) {
+                logger.debug("写入 Redis AI 缓存失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    private boolean isRedisEnabled() {
+        return properties.isRedisEnabled() && redisTemplate != null;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // 分隔符，避免 ("ab", "c") 与 ("a", "bc") 得到相同的指纹
+        digest.update((byte) 0);
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.strip().replaceAll("\\s+", " ");
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -14,6 +15,18 @@ public class AIProperties {
 
     private Map<String, ProviderConfig> providers = new HashMap<>();
 
+    private Execution execution = new Execution();
+
+    private Cache cache = new Cache();
+
+    private Routing routing = new Routing();
+
+    private Prompt prompt = new Prompt();
+
+    private Rag rag = new Rag();
+
+    private Jobs jobs = new Jobs();
+
     @Data
     public static class ProviderConfig {
         private boolean enabled = false;
@@ -22,4 +35,229 @@ public class AIProperties {
         private String modelId;
         private Map<String, String> parameters = new HashMap<>();
     }
-}
\ No newline at end of file
+
+    /**
+     * AI 调用的执行配置，按提供方隔离：一个提供方变慢只会占满它自己的并发名额
+     */
+    @Data
+    public static class Execution {
+        /**
+         * 每个提供方同时进行的模型调用数上限
+         */
+        private int maxConcurrentCalls = 8;
+
+        /**
+         * 每个提供方排队等待的调用数上限，超出后直接拒绝
+         */
+        private int maxQueuedCalls = 32;
+
+        /**
+         * 排队等待并发名额的最长时间（毫秒）
+         */
+        private long queueTimeoutMs = 10000;
+
+        /**
+         * SSE 流的最长持续时间（毫秒），超时后取消上游请求
+         */
+        private long streamTimeoutMs = 120000;
+
+        /**
+         * 是否合并同一用户同时发出的相同请求（重复点击、超时重试），只向提供方发起一次调用
+         */
+        private boolean coalesceDuplicates = true;
+
+        /**
+         * 连续失败（超时、连接错误）多少次后熔断，0 表示不熔断；
+         * 可通过 providers.<name>.parameters.circuit-failure-threshold 按提供方覆盖
+         */
+        private int circuitFailureThreshold = 5;
+
+        /**
+         * 熔断后多久（毫秒）放行一次试探调用；可通过 parameters.circuit-open-ms 覆盖
+         */
+        private long circuitOpenMs = 30000;
+    }
+
+    /**
+     * AI 响应缓存配置：相同模型、模式、上下文和问题的请求直接复用结果
+     */
+    @Data
+    public static class Cache {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本地缓存的最大条目数
+         */
+        private long maxEntries = 1000;
+
+        /**
+         * 缓存有效期（秒）
+         */
+        private long ttlSeconds = 600;
+
+        /**
+         * 是否缓存续写结果；续写每次应当给出不同的建议，默认不缓存
+         */
+        private boolean cacheContinue = false;
+
+        /**
+         * 是否通过 Redis 在多个节点之间共享缓存
+         */
+        private boolean redisEnabled = false;
+
+        /**
+         * Redis 中缓存 key 的前缀
+         */
+        private String redisKeyPrefix = "syncnote:ai:cache:";
+    }
+
+    /**
+     * 逻辑模型组的路由配置：请求的 modelId 是组名时，按滚动延迟和错误率选择组内最快的健康模型，
+     * 超过 p95 延迟仍未返回时向下一个模型发送对冲请求，取先返回的结果
+     */
+    @Data
+    public static class Routing {
+        /**
+         * 模型组：组名 -> 候选模型 ID（按优先级排列），未配置时不启用路由
+         */
+        private Map<String, List<String>> groups = new HashMap<>();
+
+        /**
+         * 每个模型保留的最近调用样本数
+         */
+        private int windowSize = 200;
+
+        /**
+         * 样本数达到该值后才按统计结果排序和计算对冲延迟
+         */
+        private int minSamples = 20;
+
+        /**
+         * 错误率超过该值的模型视为不健康，只在其他模型都不可用时使用
+         */
+        private double maxErrorRate = 0.5;
+
+        /**
+         * 是否发送对冲请求
+         */
+        private boolean hedgeEnabled = true;
+
+        /**
+         * 样本不足时的对冲延迟（毫秒）
+         */
+        private long hedgeDelayMs = 3000;
+
+        /**
+         * 对冲延迟的下限（毫秒），避免 p95 很小时几乎每个请求都发两次
+         */
+        private long minHedgeDelayMs = 500;
+    }
+
+    /**
+     * Prompt 组装配置：按模型的上下文窗口裁剪文档内容，避免长文档被上游拒绝
+     * 可通过 providers.<name>.parameters 按模型覆盖：context-tokens、max-output-tokens、token-ratio
+     */
+    @Data
+    public static class Prompt {
+        /**
+         * 模型的上下文窗口大小（token）
+         */
+        private int contextTokens = 8000;
+
+        /**
+         * 为模型输出预留的 token 数，不计入 prompt 预算
+         */
+        private int maxOutputTokens = 1024;
+
+        /**
+         * 模型分词器与内置估算的比例，例如某模型中文 1 字约 1.5 token 时配置 1.5
+         */
+        private double tokenRatio = 1.0;
+
+        /**
+         * 已切分、已计数的文档片段缓存条目数；同一文档多次调用时不再重复计数
+         */
+        private long segmentCacheSize = 4096;
+    }
+
+    /**
+     * 问答的文档检索配置：请求带 documentId 时，只把与问题最相关的几段文档放进 prompt
+     * 文档保存后按段落增量更新向量索引，未变化的段落复用已有向量
+     */
+    @Data
+    public static class Rag {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 向量维度（本地哈希向量）
+         */
+        private int dimension = 256;
+
+        /**
+         * 单个段落超过该 token 数时切成多段分别索引
+         */
+        private int chunkTokens = 200;
+
+        /**
+         * 每次检索返回的段落数
+         */
+        private int topK = 4;
+
+        /**
+         * 内存中最多保留索引的文档数，超出后淘汰最久未使用的
+         */
+        private long maxDocuments = 1000;
+
+        /**
+         * 文档保存后延迟多久（毫秒）批量更新索引，同一文档在间隔内多次保存只更新一次
+         */
+        private long indexIntervalMs = 5000;
+
+        /**
+         * 每轮最多更新的文档数，剩余的留到下一轮，避免一轮占用过久
+         */
+        private int maxDocumentsPerRun = 50;
+    }
+
+    /**
+     * 异步任务配置：整篇润色、推理模型等耗时较长的调用提交为任务，不占用请求线程
+     */
+    @Data
+    public static class Jobs {
+        /**
+         * 单个任务的最长执行时间（毫秒），超时后取消上游请求
+         */
+        private long timeoutMs = 300000;
+
+        /**
+         * 任务结果的保留时间（秒）
+         */
+        private long ttlSeconds = 3600;
+
+        /**
+         * 每个用户同时进行的任务数上限
+         */
+        private int maxActivePerUser = 4;
+
+        /**
+         * 任务在其他节点执行时，等待结果的轮询间隔（毫秒）
+         */
+        private long pollIntervalMs = 1000;
+
+        /**
+         * 是否把任务保存到 Redis；关闭后只保存在本节点内存中
+         */
+        private boolean redisEnabled = true;
+
+        /**
+         * Redis 中任务 key 的前缀
+         */
+        private String redisKeyPrefix = "syncnote:ai:job:";
+    }
+}
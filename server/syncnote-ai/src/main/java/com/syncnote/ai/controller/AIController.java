@@ -1,14 +1,22 @@
 package com.syncnote.ai.controller;
 
+import com.syncnote.ai.dto.AIJob;
+import com.syncnote.ai.dto.AIResult;
 import com.syncnote.ai.dto.request.ChatRequest;
 import com.syncnote.ai.dto.response.ChatResponse;
 import com.syncnote.ai.dto.ModelInfo;
+import com.syncnote.ai.execution.AIExecutor;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import com.syncnote.ai.service.IAIJobService;
 import com.syncnote.ai.service.impl.AIServiceImpl;
 import com.syncnote.util.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -19,7 +27,8 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -28,6 +37,8 @@ import java.util.concurrent.CompletableFuture;
 public class AIController {
 
     private final AIServiceImpl aiService;
+    private final AIExecutor aiExecutor;
+    private final IAIJobService aiJobService;
 
     @PostMapping("/chat")
     public ApiResponse<ChatResponse> chat(@RequestHeader("Authorization") String authHeader,
@@ -46,48 +57,139 @@ public class AIController {
             @RequestHeader(value = "Authorization", required = false) String authHeader,
             @Valid @RequestBody ChatRequest request
     ) {
-        String token = extractToken(authHeader);
-
-        // 0L 表示不过期（也可以给一个毫秒超时，例如 60000L）
-        SseEmitter emitter = new SseEmitter(0L);
+        // 超时后取消上游请求，避免断开的连接一直占用提供方的并发名额
+        SseEmitter emitter = new SseEmitter(aiExecutor.getStreamTimeoutMs());
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                // 先用你现有的同步逻辑拿到完整结果
-                ChatResponse resp = aiService.processChat(request, token);
-                String text = (resp == null || resp.getMessage() == null) ? "" : resp.getMessage();
-
-                // 按片段推送（chunkSize 可自行调整）
-                int chunkSize = 20;
-                for (int i = 0; i < text.length(); i += chunkSize) {
-                    String chunk = text.substring(i, Math.min(i + chunkSize, text.length()));
+        AtomicReference<AIStreamHandle> handle = new AtomicReference<>();
+        AtomicBoolean closed = new AtomicBoolean(false);
+        Runnable cancel = () -> {
+            closed.set(true);
+            AIStreamHandle h = handle.get();
+            if (h != null) {
+                h.cancel();
+            }
+        };
+        emitter.onTimeout(() -> {
+            cancel.run();
+            sendEvent(emitter, "error", Map.of("error", "生成超时"));
+            emitter.complete();
+        });
+        emitter.onError(e -> cancel.run());
+        // 正常结束时取消是空操作；客户端断开时中止上游请求
+        emitter.onCompletion(cancel);
 
-                    // 推荐用 JSON 结构，前端更好扩展
-                    emitter.send(SseEmitter.event()
-                            .name("message")
-                            .data(Map.of("delta", chunk), MediaType.APPLICATION_JSON));
+        AIStreamHandler handler = new AIStreamHandler() {
+            @Override
+            public void onToken(String token) {
+                // 模型每输出一个 token 就推送一次；推荐用 JSON 结构，前端更好扩展
+                if (!sendEvent(emitter, "message", Map.of("delta", token))) {
+                    // 客户端已断开
+                    cancel.run();
                 }
+            }
 
+            @Override
+            public void onComplete(AIResult result) {
                 // 结束标记
-                emitter.send(SseEmitter.event()
-                        .name("done")
-                        .data(Map.of("done", true), MediaType.APPLICATION_JSON));
-
+                sendEvent(emitter, "done", Map.of("done", true, "latencyMs", result.getLatencyMs()));
                 emitter.complete();
-            } catch (Exception e) {
-                try {
-                    emitter.send(SseEmitter.event()
-                            .name("error")
-                            .data(Map.of("error", e.getMessage()), MediaType.APPLICATION_JSON));
-                } catch (IOException ignored) {
-                }
-                emitter.completeWithError(e);
             }
+
+            @Override
+            public void onError(Throwable error) {
+                sendError(emitter, error);
+            }
+        };
+
+        try {
+            // 立即返回，排队和生成都不占用请求线程
+            handle.set(aiService.generateStream(request, handler));
+            if (closed.get()) {
+                handle.get().cancel();
+            }
+        } catch (Exception e) {
+            sendError(emitter, e);
+        }
+
+        return emitter;
+    }
+
+    /**
+     * 提交异步任务，立即返回 jobId；适合整篇润色、推理模型等耗时较长的调用
+     * 访问路径：/api/ai/jobs
+     */
+    @PostMapping("/jobs")
+    public ApiResponse<AIJob> submitJob(@Valid @RequestBody ChatRequest request) {
+        return ApiResponse.succeed(aiJobService.submit(request), "任务已提交");
+    }
+
+    /**
+     * 轮询任务状态，结束后 text 为模型输出
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ApiResponse<AIJob> getJob(@PathVariable String jobId) {
+        return ApiResponse.succeed(aiJobService.get(jobId), "获取任务成功");
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ApiResponse<AIJob> cancelJob(@PathVariable String jobId) {
+        return ApiResponse.succeed(aiJobService.cancel(jobId), "任务已取消");
+    }
+
+    /**
+     * SSE 等待任务结束，结束时推送一次 done 事件（数据为完整的任务）
+     * 断线后重新订阅即可，已结束的任务会立即推送结果
+     * 访问路径：/api/ai/jobs/{jobId}/events
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter jobEvents(@PathVariable String jobId) {
+        SseEmitter emitter = new SseEmitter(aiExecutor.getStreamTimeoutMs());
+        AtomicReference<Runnable> unsubscribe = new AtomicReference<>();
+        Runnable cleanup = () -> {
+            Runnable u = unsubscribe.get();
+            if (u != null) {
+                u.run();
+            }
+        };
+        // 超时只结束这次等待，任务继续执行，客户端可以重新订阅
+        emitter.onTimeout(() -> {
+            cleanup.run();
+            emitter.complete();
         });
+        emitter.onError(e -> cleanup.run());
+        emitter.onCompletion(cleanup);
 
+        try {
+            unsubscribe.set(aiJobService.subscribe(jobId, job -> {
+                if (job == null) {
+                    sendEvent(emitter, "error", Map.of("error", "任务不存在或已过期"));
+                } else {
+                    sendEvent(emitter, "done", job);
+                }
+                emitter.complete();
+            }));
+        } catch (Exception e) {
+            sendError(emitter, e);
+        }
         return emitter;
     }
 
+    /**
+     * @return 是否发送成功，失败说明客户端已断开
+     */
+    private boolean sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private void sendError(SseEmitter emitter, Throwable error) {
+        sendEvent(emitter, "error", Map.of("error", String.valueOf(error.getMessage())));
+        emitter.completeWithError(error);
+    }
 
     @GetMapping("/models")
     public ApiResponse<List<ModelInfo>> models(@RequestHeader("Authorization") String authHeader) {
@@ -19,7 +19,8 @@ public class ContinueWriteController {
             @PathVariable("documentId") Long documentId,
             @RequestBody ContinueWriteRequest req) {
         return ApiResponse.succeed(
-                continueWriteService.continueWrite(documentId, req.getContext(), req.getModelId(), req.getDocumentText()),
+                continueWriteService.continueWrite(documentId, req.getContext(), req.getModelId(),
+                        req.getDocumentText(), req.getCursorIndex()),
                 "success");
     }
 }
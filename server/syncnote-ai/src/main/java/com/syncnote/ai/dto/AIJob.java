@@ -0,0 +1,62 @@
+package com.syncnote.ai.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 异步 AI 任务：提交后立即返回 jobId，结果在 Redis 中保留一段时间，可轮询或通过 SSE 等待
+ */
+@Data
+@NoArgsConstructor
+public class AIJob {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isTerminal() {
+            return this != RUNNING;
+        }
+    }
+
+    /**
+     * 任务 ID
+     */
+    private String jobId;
+
+    /**
+     * 提交任务的用户，只有本人可以查询
+     */
+    private Long userId;
+
+    private String modelId;
+
+    private String mode;
+
+    private Status status;
+
+    /**
+     * 模型输出，任务成功后才有值
+     */
+    private String text;
+
+    /**
+     * 失败或取消的原因
+     */
+    private String error;
+
+    private Long latencyMs;
+
+    private Integer inputTokens;
+
+    private Integer outputTokens;
+
+    /**
+     * 提交时间（毫秒时间戳）
+     */
+    private long createdAt;
+
+    /**
+     * 结束时间（毫秒时间戳），未结束时为 null
+     */
+    private Long finishedAt;
+}
@@ -0,0 +1,50 @@
+package com.syncnote.ai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单次模型调用的结果：输出文本 + 耗时与 token 用量
+ * 每个请求只调用一次模型，后续的响应、流式推送、日志都从这个对象取值
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIResult {
+
+    /**
+     * 模型输出
+     */
+    private String text;
+
+    /**
+     * 提供方 ID（如 openai/mock）
+     */
+    private String providerId;
+
+    /**
+     * 模型 ID
+     */
+    private String modelId;
+
+    /**
+     * 模型调用耗时（毫秒）
+     */
+    private long latencyMs;
+
+    /**
+     * 输入 token 数，提供方未返回时为 null
+     */
+    private Integer inputTokens;
+
+    /**
+     * 输出 token 数，提供方未返回时为 null
+     */
+    private Integer outputTokens;
+
+    /**
+     * 总 token 数，提供方未返回时为 null
+     */
+    private Integer totalTokens;
+}
@@ -1,4 +1,5 @@
 package com.syncnote.ai.dto.response;
+import com.syncnote.ai.dto.AIResult;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,4 +14,18 @@ public class ChatResponse {
     private String message;
     private String context;
     private String reply;
-}
\ No newline at end of file
+
+    // 模型调用的元数据，来自 AIResult
+    private String providerId;
+    private String modelId;
+    private long latencyMs;
+    private Integer inputTokens;   // 提供方未返回时为 null
+    private Integer outputTokens;
+    private Integer totalTokens;
+
+    public static ChatResponse of(AIResult result, String context) {
+        return new ChatResponse(result.getText(), context, result.getText(),
+                result.getProviderId(), result.getModelId(), result.getLatencyMs(),
+                result.getInputTokens(), result.getOutputTokens(), result.getTotalTokens());
+    }
+}
@@ -0,0 +1,402 @@
+package com.syncnote.ai.execution;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import com.syncnote.ai.provider.IAIProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * AI 调用的执行层
+ * 每个提供方一条独立的通道（lane）：并发名额 + 有界等待队列，一个提供方变慢只会占满自己的通道，
+ * 不会拖住其他提供方，也不会占用 ForkJoinPool.commonPool()
+ * 通道入口依次检查熔断器和令牌桶，提供方持续超时或请求过快时直接拒绝，不再排队（见 ProviderLimits）
+ * 流式调用的名额从开始生成一直占用到结束 / 出错 / 取消；等待和启动在虚拟线程上进行
+ */
+@Component
+public class AIExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIExecutor.class);
+
+    private final AIProperties.Execution properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter cancelled;
+
+    /**
+     * 通道状态快照，供 actuator 端点展示
+     *
+     * @param availableTokens 令牌桶中剩余的令牌数，未限速时为 null
+     */
+    public record LaneSnapshot(int maxConcurrentCalls, int activeCalls, int maxQueuedCalls, int queuedCalls,
+                               double rateLimitPerSecond, Double availableTokens,
+                               String circuitState, int consecutiveFailures) {
+    }
+
+    /**
+     * 一个提供方的执行通道
+     */
+    private final class Lane {
+        private final String name;
+        private final ProviderLimits limits;
+        private final Semaphore permits;
+        private final TokenBucket rateLimiter;
+        private final CircuitBreaker breaker;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final Counter rejected;
+        private final Counter rateLimited;
+        private final Counter circuitRejected;
+        private final Timer queueWait;
+
+        Lane(String name, ProviderLimits limits) {
+            this.name = name;
+            this.limits = limits;
+            this.permits = new Semaphore(limits.maxConcurrentCalls(), true);
+            this.rateLimiter = limits.ratePerSecond() > 0
+                    ? new TokenBucket(limits.ratePerSecond(), limits.rateBurst())
+                    : null;
+            this.breaker = new CircuitBreaker(limits.circuitFailureThreshold(), limits.circuitOpenMs());
+            Gauge.builder("syncnote.ai.executor.active", active, AtomicInteger::get)
+                    .description("正在进行的模型调用数")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("syncnote.ai.executor.queued", queued, AtomicInteger::get)
+                    .description("排队等待并发名额的模型调用数")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("syncnote.ai.executor.rejected")
+                    .description("因排队已满或等待超时被拒绝的调用数")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            this.queueWait = Timer.builder("syncnote.ai.executor.queue.wait")
+                    .description("等待并发名额的时间")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            this.rateLimited = Counter.builder("syncnote.ai.executor.rate.limited")
+                    .description("超过速率限制被拒绝的调用数")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            this.circuitRejected = Counter.builder("syncnote.ai.executor.circuit.rejected")
+                    .description("熔断期间被直接拒绝的调用数")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("syncnote.ai.executor.circuit.state", breaker, b -> b.getState().ordinal())
+                    .description("熔断器状态：0 关闭，1 打开，2 半开")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 检查熔断器和令牌桶后进入队列
+         */
+        void admit() {
+            if (!breaker.tryAcquire()) {
+                circuitRejected.increment();
+                throw new RejectedExecutionException("AI 服务暂时不可用，请稍后再试");
+            }
+            if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+                breaker.onIgnored();
+                rateLimited.increment();
+                throw new RejectedExecutionException("AI 请求过于频繁，请稍后再试");
+            }
+            try {
+                enter();
+            } catch (RejectedExecutionException e) {
+                breaker.onIgnored();
+                throw e;
+            }
+        }
+
+        /**
+         * 进入队列；队列已满时拒绝
+         */
+        void enter() {
+            if (queued.incrementAndGet() > properties.getMaxQueuedCalls()) {
+                queued.decrementAndGet();
+                rejected.increment();
+                throw new RejectedExecutionException("AI 服务繁忙，请稍后再试");
+            }
+        }
+
+        /**
+         * 在队列中等待名额；超时时拒绝
+         */
+        void acquire() throws InterruptedException {
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(properties.getQueueTimeoutMs(), TimeUnit.MILLISECONDS);
+            } finally {
+                queued.decrementAndGet();
+                queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                rejected.increment();
+                throw new RejectedExecutionException("AI 服务繁忙，排队超时");
+            }
+            active.incrementAndGet();
+        }
+
+        void release() {
+            active.decrementAndGet();
+            permits.release();
+        }
+
+        LaneSnapshot snapshot() {
+            return new LaneSnapshot(limits.maxConcurrentCalls(), active.get(),
+                    properties.getMaxQueuedCalls(), queued.get(),
+                    limits.ratePerSecond(), rateLimiter != null ? rateLimiter.availableTokens() : null,
+                    breaker.getState().name(), breaker.getConsecutiveFailures());
+        }
+    }
+
+    public AIExecutor(AIProperties aiProperties, MeterRegistry meterRegistry) {
+        this.properties = aiProperties.getExecution();
+        this.meterRegistry = meterRegistry;
+        this.cancelled = Counter.builder("syncnote.ai.executor.cancelled")
+                .description("被取消的流式调用数（客户端断开或超时）")
+                .register(meterRegistry);
+    }
+
+    public long getStreamTimeoutMs() {
+        return properties.getStreamTimeoutMs();
+    }
+
+    /**
+     * 在提供方通道内执行一次阻塞调用（在调用线程上等待名额），限流参数取自提供方的 parameters
+     *
+     * @throws RejectedExecutionException 熔断中、超过速率限制、队列已满或等待超时
+     */
+    public AIResult call(IAIProvider provider, Supplier<AIResult> call) {
+        return call(lane(provider), call);
+    }
+
+    /**
+     * 在使用默认限流参数的通道内执行一次阻塞调用
+     */
+    public AIResult call(String provider, Supplier<AIResult> call) {
+        return call(lane(provider, Map.of()), call);
+    }
+
+    private AIResult call(Lane lane, Supplier<AIResult> call) {
+        lane.admit();
+        try {
+            lane.acquire();
+        } catch (InterruptedException e) {
+            lane.breaker.onIgnored();
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("AI 调用被中断", e);
+        } catch (RejectedExecutionException e) {
+            lane.breaker.onIgnored();
+            throw e;
+        }
+        try {
+            AIResult result = call.get();
+            lane.breaker.onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            lane.breaker.onFailure();
+            throw e;
+        } finally {
+            lane.release();
+        }
+    }
+
+    /**
+     * 在提供方通道内启动一次流式调用，立即返回
+     * 排队、启动都在虚拟线程上进行；名额一直占用到流结束、出错或被取消
+     *
+     * @param provider 通道名（提供方 ID）
+     * @param starter  拿到名额后启动上游流，返回上游的取消句柄
+     * @param handler  下游回调；取消之后不会再收到任何回调
+     * @return 取消句柄：排队中取消则不再启动，进行中取消会中止上游请求
+     * @throws RejectedExecutionException 熔断中、超过速率限制或队列已满
+     */
+    public AIStreamHandle stream(IAIProvider provider, Function<AIStreamHandler, AIStreamHandle> starter,
+                                 AIStreamHandler handler) {
+        return stream(lane(provider), starter, handler);
+    }
+
+    /**
+     * 在使用默认限流参数的通道内启动一次流式调用
+     */
+    public AIStreamHandle stream(String provider, Function<AIStreamHandler, AIStreamHandle> starter,
+                                 AIStreamHandler handler) {
+        return stream(lane(provider, Map.of()), starter, handler);
+    }
+
+    private AIStreamHandle stream(Lane lane, Function<AIStreamHandler, AIStreamHandle> starter,
+                                  AIStreamHandler handler) {
+        lane.admit();
+        StreamTask task = new StreamTask(lane, handler);
+        executor.execute(() -> task.run(starter));
+        return task;
+    }
+
+    /**
+     * 提供方通道的当前状态；通道尚未使用时会按配置创建
+     */
+    public LaneSnapshot snapshot(IAIProvider provider) {
+        return lane(provider).snapshot();
+    }
+
+    /**
+     * 提供方当前是否会放行调用（熔断器未打开，或已到试探时间）；不占用试探名额
+     */
+    public boolean isAvailable(IAIProvider provider) {
+        return lane(provider).breaker.isCallPermitted();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Lane lane(IAIProvider provider) {
+        return lane(provider.getProviderId(), provider.getParameters());
+    }
+
+    /**
+     * 同一提供方 ID 的多个模型（如 DeepSeek Chat / Reasoner）共用一条通道，以第一个创建者的参数为准
+     */
+    private Lane lane(String provider, Map<String, String> parameters) {
+        return lanes.computeIfAbsent(provider, name -> new Lane(name, ProviderLimits.of(properties, parameters)));
+    }
+
+    /**
+     * 一次流式调用：保证名额只释放一次、取消后不再回调
+     */
+    private final class StreamTask implements AIStreamHandle, AIStreamHandler {
+        private final Lane lane;
+        private final AIStreamHandler downstream;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private final AtomicBoolean permitReleased = new AtomicBoolean(false);
+        private volatile boolean holdingPermit = false;
+        private volatile AIStreamHandle upstream;
+
+        StreamTask(Lane lane, AIStreamHandler downstream) {
+            this.lane = lane;
+            this.downstream = downstream;
+        }
+
+        void run(Function<AIStreamHandler, AIStreamHandle> starter) {
+            try {
+                lane.acquire();
+            } catch (InterruptedException e) {
+                if (finish()) {
+                    lane.breaker.onIgnored();
+                }
+                return;
+            } catch (RejectedExecutionException e) {
+                if (finished.compareAndSet(false, true)) {
+                    lane.breaker.onIgnored();
+                    downstream.onError(e);
+                }
+                return;
+            }
+            holdingPermit = true;
+            if (finished.get()) {
+                // 排队期间已被取消
+                releasePermit();
+                return;
+            }
+            try {
+                upstream = starter.apply(this);
+            } catch (Exception e) {
+                onError(e);
+                return;
+            }
+            if (finished.get()) {
+                // 启动期间被取消
+                upstream.cancel();
+            }
+        }
+
+        @Override
+        public void onToken(String token) {
+            if (!finished.get()) {
+                downstream.onToken(token);
+            }
+        }
+
+        @Override
+        public void onComplete(AIResult result) {
+            if (finish()) {
+                lane.breaker.onSuccess();
+                downstream.onComplete(result);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            if (finish()) {
+                lane.breaker.onFailure();
+                downstream.onError(error);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!finish()) {
+                return;
+            }
+            lane.breaker.onIgnored();
+            cancelled.increment();
+            AIStreamHandle handle = upstream;
+            if (handle != null) {
+                try {
+                    handle.cancel();
+                } catch (Exception e) {
+                    logger.debug("取消上游 AI 请求失败: provider={}, error={}", lane.name, e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 标记结束并释放名额
+         *
+         * @return 是否是第一次结束
+         */
+        private boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            if (holdingPermit) {
+                releasePermit();
+            }
+            return true;
+        }
+
+        /**
+         * run 与 finish 可能同时看到需要释放，这里保证只释放一次
+         */
+        private void releasePermit() {
+            if (permitReleased.compareAndSet(false, true)) {
+                lane.release();
+            }
+        }
+    }
+}
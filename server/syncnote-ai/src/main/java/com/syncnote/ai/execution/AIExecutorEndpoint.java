@@ -0,0 +1,32 @@
+package com.syncnote.ai.execution;
+
+import com.syncnote.ai.provider.IAIProvider;
+import com.syncnote.ai.provider.ProviderRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * actuator 端点 /actuator/aiexecutor：查看每个提供方通道的并发、排队、令牌桶和熔断状态，用于调整限流参数
+ */
+@Component
+@Endpoint(id = "aiexecutor")
+@RequiredArgsConstructor
+public class AIExecutorEndpoint {
+
+    private final AIExecutor aiExecutor;
+    private final ProviderRegistry providerRegistry;
+
+    @ReadOperation
+    public Map<String, AIExecutor.LaneSnapshot> lanes() {
+        Map<String, AIExecutor.LaneSnapshot> lanes = new TreeMap<>();
+        for (IAIProvider provider : providerRegistry.getAllProviders().values()) {
+            lanes.putIfAbsent(provider.getProviderId(), aiExecutor.snapshot(provider));
+        }
+        return lanes;
+    }
+}
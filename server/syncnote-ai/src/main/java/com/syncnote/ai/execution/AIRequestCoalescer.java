@@ -0,0 +1,328 @@
+package com.syncnote.ai.execution;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 进行中请求合并（single-flight）
+ * 同一个 key 同时只向提供方发起一次调用：
+ * 1. 阻塞调用：后到的请求等待第一个请求的结果
+ * 2. 流式调用：后到的订阅者先补发已生成的内容，再和第一个订阅者一起接收后续 token；
+ *    所有订阅者都取消后才取消上游请求；回调异步分发，订阅者之间互不阻塞
+ * 调用结束后立即移除，之后的相同请求会重新调用（结果复用由 AIResponseCache 负责）
+ */
+@Component
+public class AIRequestCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIRequestCoalescer.class);
+
+    private final AIProperties.Execution properties;
+    private final Map<String, CompletableFuture<AIResult>> calls = new ConcurrentHashMap<>();
+    private final Map<String, SharedStream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * 共享流的订阅者回调在这里执行
+     */
+    private final ExecutorService callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter joinedCalls;
+    private final Counter joinedStreams;
+
+    public AIRequestCoalescer(AIProperties aiProperties, MeterRegistry meterRegistry) {
+        this.properties = aiProperties.getExecution();
+        meterRegistry.gaugeMapSize("syncnote.ai.coalesce.inflight", List.of(), calls);
+        meterRegistry.gaugeMapSize("syncnote.ai.coalesce.inflight.streams", List.of(), streams);
+        this.joinedCalls = Counter.builder("syncnote.ai.coalesce.joined")
+                .description("合并到进行中调用的请求数")
+                .tag("type", "call")
+                .register(meterRegistry);
+        this.joinedStreams = Counter.builder("syncnote.ai.coalesce.joined")
+                .description("合并到进行中调用的请求数")
+                .tag("type", "stream")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callbackExecutor.shutdownNow();
+    }
+
+    /**
+     * 执行阻塞调用；相同 key 的调用正在进行时等待它的结果
+     */
+    public AIResult call(String key, Supplier<AIResult> call) {
+        if (!properties.isCoalesceDuplicates()) {
+            return call.get();
+        }
+        CompletableFuture<AIResult> flight = new CompletableFuture<>();
+        CompletableFuture<AIResult> existing = calls.putIfAbsent(key, flight);
+        if (existing != null) {
+            joinedCalls.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+        try {
+            AIResult result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, flight);
+        }
+    }
+
+    /**
+     * 订阅流式调用；相同 key 的流正在进行时共享同一个上游
+     *
+     * @param starter 启动上游流（通常是 AIExecutor.stream），返回上游的取消句柄
+     * @param handler 当前订阅者
+     * @return 取消句柄：只取消当前订阅，最后一个订阅者取消时才中止上游
+     * @throws java.util.concurrent.RejectedExecutionException 启动上游失败
+     */
+    public AIStreamHandle stream(String key, Function<AIStreamHandler, AIStreamHandle> starter,
+                                 AIStreamHandler handler) {
+        if (!properties.isCoalesceDuplicates()) {
+            return starter.apply(handler);
+        }
+        while (true) {
+            SharedStream stream = streams.computeIfAbsent(key, SharedStream::new);
+            if (!stream.subscribe(handler)) {
+                // 已经结束，等它从表中移除后新建
+                streams.remove(key, stream);
+                continue;
+            }
+            if (stream.claimStart()) {
+                stream.start(starter, handler);
+            } else {
+                joinedStreams.increment();
+            }
+            return () -> stream.unsubscribe(handler);
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return e;
+    }
+
+    /**
+     * 一个订阅者的回调队列
+     * 事件在 SharedStream 的锁内按顺序入队，回调在锁外的虚拟线程上串行执行，
+     * 某个客户端写得慢只会积压它自己的队列，不会拖住其他订阅者和上游读取线程
+     */
+    private final class Subscriber {
+        private final AIStreamHandler handler;
+        private final Queue<Consumer<AIStreamHandler>> events = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean cancelled = false;
+
+        Subscriber(AIStreamHandler handler) {
+            this.handler = handler;
+        }
+
+        void post(Consumer<AIStreamHandler> event) {
+            events.add(event);
+            scheduleDrain();
+        }
+
+        void cancel() {
+            cancelled = true;
+            events.clear();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                callbackExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Consumer<AIStreamHandler> event;
+                while (!cancelled && (event = events.poll()) != null) {
+                    try {
+                        event.accept(handler);
+                    } catch (RuntimeException e) {
+                        logger.debug("共享 AI 流的订阅者回调失败: {}", e.getMessage());
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // 退出循环与释放标记之间可能有新事件入队
+            if (!cancelled && !events.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * 多个订阅者共享的一次流式调用
+     * 状态在锁内维护，回调通过每个订阅者自己的队列在锁外分发；
+     * 入队在锁内完成，保证每个订阅者收到的 token 顺序一致，补发和实时推送不会交错
+     */
+    private final class SharedStream implements AIStreamHandler {
+        private final String key;
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private boolean started = false;
+        private boolean finished = false;
+        private boolean cancelled = false;
+        private AIStreamHandle upstream;
+
+        SharedStream(String key) {
+            this.key = key;
+        }
+
+        synchronized boolean subscribe(AIStreamHandler handler) {
+            if (finished) {
+                return false;
+            }
+            Subscriber subscriber = new Subscriber(handler);
+            if (!tokens.isEmpty()) {
+                String backlog = String.join("", tokens);
+                subscriber.post(h -> h.onToken(backlog));
+            }
+            subscribers.add(subscriber);
+            return true;
+        }
+
+        synchronized boolean claimStart() {
+            if (started) {
+                return false;
+            }
+            started = true;
+            return true;
+        }
+
+        /**
+         * 启动上游；在锁外调用，上游可能同步回调
+         */
+        void start(Function<AIStreamHandler, AIStreamHandle> starter, AIStreamHandler leader) {
+            AIStreamHandle handle;
+            try {
+                handle = starter.apply(this);
+            } catch (RuntimeException e) {
+                // 发起者由调用方处理异常，其余订阅者通过回调通知
+                synchronized (this) {
+                    removeSubscriber(leader);
+                }
+                onError(e);
+                throw e;
+            }
+            boolean cancelNow;
+            synchronized (this) {
+                upstream = handle;
+                cancelNow = cancelled;
+            }
+            if (cancelNow) {
+                // 启动期间所有订阅者都已取消
+                handle.cancel();
+            }
+        }
+
+        void unsubscribe(AIStreamHandler handler) {
+            AIStreamHandle toCancel;
+            synchronized (this) {
+                if (!removeSubscriber(handler) || !subscribers.isEmpty() || finished) {
+                    return;
+                }
+                finished = true;
+                cancelled = true;
+                streams.remove(key, this);
+                toCancel = upstream;
+            }
+            if (toCancel != null) {
+                try {
+                    toCancel.cancel();
+                } catch (Exception e) {
+                    logger.debug("取消共享 AI 流失败: {}", e.getMessage());
+                }
+            }
+        }
+
+        private boolean removeSubscriber(AIStreamHandler handler) {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.handler == handler) {
+                    subscribers.remove(subscriber);
+                    subscriber.cancel();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized void onToken(String token) {
+            if (finished) {
+                return;
+            }
+            tokens.add(token);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.post(h -> h.onToken(token));
+            }
+        }
+
+        @Override
+        public synchronized void onComplete(AIResult result) {
+            for (Subscriber subscriber : finish()) {
+                subscriber.post(h -> h.onComplete(result));
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable error) {
+            for (Subscriber subscriber : finish()) {
+                subscriber.post(h -> h.onError(error));
+            }
+        }
+
+        /**
+         * @return 需要通知结束的订阅者；已经结束时为空
+         */
+        private List<Subscriber> finish() {
+            if (finished) {
+                return List.of();
+            }
+            finished = true;
+            streams.remove(key, this);
+            List<Subscriber> remaining = List.copyOf(subscribers);
+            subscribers.clear();
+            return remaining;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.syncnote.ai.execution;
+
+/**
+ * 提供方熔断器
+ * CLOSED：正常放行，连续失败达到阈值后进入 OPEN
+ * OPEN：直接拒绝，openMs 之后进入 HALF_OPEN
+ * HALF_OPEN：只放行一次试探调用，成功则恢复 CLOSED，失败则重新 OPEN
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    /**
+     * @param failureThreshold 连续失败次数阈值，0 或负数表示不熔断
+     * @param openMs           熔断持续时间（毫秒）
+     */
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    /**
+     * 是否允许发起调用；返回 true 后必须以 onSuccess / onFailure / onIgnored 之一结束
+     */
+    synchronized boolean tryAcquire() {
+        if (failureThreshold <= 0) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * 现在发起调用是否会被放行；只查询，不改变状态（OPEN 超过 openMs 视为可以试探）
+     */
+    synchronized boolean isCallPermitted() {
+        if (failureThreshold <= 0) {
+            return true;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.currentTimeMillis() - openedAt >= openMs;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    synchronized void onSuccess() {
+        // 熔断前发出、熔断后才成功的调用不影响状态
+        if (state == State.OPEN) {
+            return;
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        if (failureThreshold <= 0 || state == State.OPEN) {
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * 调用被取消或在排队阶段被拒绝，不计入成功或失败
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
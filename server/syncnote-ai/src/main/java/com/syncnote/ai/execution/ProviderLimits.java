@@ -0,0 +1,48 @@
+package com.syncnote.ai.execution;
+
+import com.syncnote.ai.config.AIProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * 单个提供方的限流配置，从 providers.<name>.parameters 读取，未配置时使用 execution 下的默认值
+ * 支持的参数：
+ * max-concurrent-calls       并发调用上限
+ * rate-limit-per-second      每秒允许发起的调用数（令牌桶速率），不配置表示不限
+ * rate-limit-burst           令牌桶容量，默认等于每秒速率（至少 1）
+ * circuit-failure-threshold  连续失败多少次后熔断
+ * circuit-open-ms            熔断持续时间
+ *
+ * @param ratePerSecond 0 表示不限速
+ */
+record ProviderLimits(int maxConcurrentCalls, double ratePerSecond, int rateBurst,
+                      int circuitFailureThreshold, long circuitOpenMs) {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderLimits.class);
+
+    static ProviderLimits of(AIProperties.Execution defaults, Map<String, String> parameters) {
+        Map<String, String> params = parameters != null ? parameters : Map.of();
+        int maxConcurrent = (int) parse(params, "max-concurrent-calls", defaults.getMaxConcurrentCalls());
+        double rate = parse(params, "rate-limit-per-second", 0);
+        int burst = (int) parse(params, "rate-limit-burst", Math.max(1, Math.ceil(rate)));
+        int threshold = (int) parse(params, "circuit-failure-threshold", defaults.getCircuitFailureThreshold());
+        long openMs = (long) parse(params, "circuit-open-ms", defaults.getCircuitOpenMs());
+        return new ProviderLimits(Math.max(1, maxConcurrent), Math.max(0, rate), Math.max(1, burst),
+                threshold, openMs);
+    }
+
+    private static double parse(Map<String, String> params, String name, double defaultValue) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("AI 提供方参数 {} 不是数字: {}", name, value);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.syncnote.ai.execution;
+
+/**
+ * 令牌桶：按固定速率补充令牌，容量决定允许的突发请求数
+ */
+final class TokenBucket {
+
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double ratePerSecond, int capacity) {
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 取一个令牌，没有可用令牌时立即返回 false
+     */
+    synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
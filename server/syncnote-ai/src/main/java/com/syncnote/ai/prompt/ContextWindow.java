@@ -0,0 +1,86 @@
+package com.syncnote.ai.prompt;
+
+/**
+ * 光标附近的文档片段，在 token 预算内尽量多保留光标之前的内容
+ * 默认 3/4 预算给光标之前、1/4 给光标之后；一侧用不完的预算留给另一侧
+ *
+ * @param before 光标之前的文本
+ * @param after  光标之后的文本
+ */
+public record ContextWindow(String before, String after) {
+
+    /**
+     * 窗口边界向最近的空白对齐时最多移动的字符数，避免切断单词（中文没有空白，不会多丢内容）
+     */
+    private static final int MAX_BOUNDARY_SHIFT = 32;
+
+    /**
+     * @param text      文档全文
+     * @param cursor    光标位置，null 或越界时视为文末
+     * @param maxTokens token 预算
+     */
+    public static ContextWindow aroundCursor(String text, Integer cursor, int maxTokens) {
+        if (text == null || text.isEmpty() || maxTokens <= 0) {
+            return new ContextWindow("", "");
+        }
+        int length = text.length();
+        int pos = cursor == null || cursor < 0 || cursor > length ? length : cursor;
+
+        double afterUsed = 0;
+        int end = pos;
+        double afterBudget = maxTokens / 4.0;
+        while (end < length && afterUsed + TokenEstimator.cost(text.charAt(end)) <= afterBudget) {
+            afterUsed += TokenEstimator.cost(text.charAt(end++));
+        }
+
+        double beforeUsed = 0;
+        int start = pos;
+        while (start > 0 && beforeUsed + afterUsed + TokenEstimator.cost(text.charAt(start - 1)) <= maxTokens) {
+            beforeUsed += TokenEstimator.cost(text.charAt(--start));
+        }
+
+        // 光标之前的内容不足时，剩余预算给光标之后
+        while (end < length && beforeUsed + afterUsed + TokenEstimator.cost(text.charAt(end)) <= maxTokens) {
+            afterUsed += TokenEstimator.cost(text.charAt(end++));
+        }
+
+        start = alignStart(text, start, pos);
+        end = alignEnd(text, end, pos);
+        return new ContextWindow(text.substring(start, pos), text.substring(pos, end));
+    }
+
+    /**
+     * 只保留末尾不超过预算的部分
+     */
+    public static String tail(String text, int maxTokens) {
+        return text == null ? null : aroundCursor(text.strip(), null, maxTokens).before();
+    }
+
+    public boolean isEmpty() {
+        return before.isBlank() && after.isBlank();
+    }
+
+    private static int alignStart(String text, int start, int pos) {
+        if (start == 0) {
+            return 0;
+        }
+        for (int i = start; i < pos && i - start < MAX_BOUNDARY_SHIFT; i++) {
+            if (Character.isWhitespace(text.charAt(i - 1))) {
+                return i;
+            }
+        }
+        return start < pos && Character.isLowSurrogate(text.charAt(start)) ? start + 1 : start;
+    }
+
+    private static int alignEnd(String text, int end, int pos) {
+        if (end == text.length()) {
+            return end;
+        }
+        for (int i = end; i > pos && end - i < MAX_BOUNDARY_SHIFT; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return end > pos && Character.isHighSurrogate(text.charAt(end - 1)) ? end - 1 : end;
+    }
+}
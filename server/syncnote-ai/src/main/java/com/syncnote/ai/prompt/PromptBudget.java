@@ -0,0 +1,55 @@
+package com.syncnote.ai.prompt;
+
+import com.syncnote.ai.config.AIProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * 单个模型的 prompt 预算，从 providers.<name>.parameters 读取，未配置时使用 prompt 下的默认值
+ * 支持的参数：
+ * context-tokens     上下文窗口大小
+ * max-output-tokens  为输出预留的 token 数
+ * token-ratio        模型分词器与内置估算的比例
+ */
+public record PromptBudget(int contextTokens, int maxOutputTokens, double tokenRatio) {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptBudget.class);
+
+    public static PromptBudget of(AIProperties.Prompt defaults, Map<String, String> parameters) {
+        Map<String, String> params = parameters != null ? parameters : Map.of();
+        int contextTokens = (int) parse(params, "context-tokens", defaults.getContextTokens());
+        int maxOutputTokens = (int) parse(params, "max-output-tokens", defaults.getMaxOutputTokens());
+        double tokenRatio = parse(params, "token-ratio", defaults.getTokenRatio());
+        return new PromptBudget(Math.max(1, contextTokens), Math.max(0, maxOutputTokens),
+                tokenRatio > 0 ? tokenRatio : 1.0);
+    }
+
+    /**
+     * prompt 可用的 token 数（按该模型的分词器计）
+     */
+    public int inputTokens() {
+        return Math.max(0, contextTokens - maxOutputTokens);
+    }
+
+    /**
+     * 把估算的 token 数换算成该模型的 token 数
+     */
+    public int count(double estimatedTokens) {
+        return (int) Math.ceil(estimatedTokens * tokenRatio);
+    }
+
+    private static double parse(Map<String, String> params, String name, double defaultValue) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("AI 提供方参数 {} 不是数字: {}", name, value);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.syncnote.ai.prompt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.provider.AIMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 所有提供方共用的 prompt 组装
+ * 指令和问题先计数，剩余预算给上下文；上下文超出预算时按模式裁剪：
+ * 续写保留最靠近光标的结尾部分，润色保留开头部分，问答按与问题的相关度（兼顾位置）挑选片段
+ * 上下文按行切分成片段，每个片段的 token 数和检索词缓存下来，同一文档反复调用时只处理变化的行
+ */
+@Component
+public class PromptBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptBuilder.class);
+
+    /**
+     * 超过该长度的行再按句子切开，保证问答时能挑出局部内容
+     */
+    private static final int MAX_SEGMENT_CHARS = 1000;
+
+    /**
+     * 相关度相同（或问题没有可匹配的词）时，越靠后的片段越优先
+     */
+    private static final double RECENCY_WEIGHT = 0.5;
+
+    /**
+     * 问答裁剪后在不相邻的片段之间插入的省略标记
+     */
+    private static final String GAP = "…\n";
+
+    private final AIProperties.Prompt properties;
+    private final Cache<String, Segment> segments;
+
+    /**
+     * 一段已计数的上下文
+     *
+     * @param tokens 未取整的估算 token 数
+     * @param terms  检索词：英文单词（小写）和中日韩字符二元组
+     */
+    record Segment(String text, double tokens, Set<String> terms) {
+    }
+
+    public PromptBuilder(AIProperties aiProperties) {
+        this.properties = aiProperties.getPrompt();
+        this.segments = Caffeine.newBuilder()
+                .maximumSize(properties.getSegmentCacheSize())
+                .build();
+    }
+
+    /**
+     * 按提供方参数计算模型的 prompt 预算
+     */
+    public PromptBudget budgetOf(Map<String, String> parameters) {
+        return PromptBudget.of(properties, parameters);
+    }
+
+    /**
+     * 组装完整的 prompt，保证估算的 token 数不超过 budget.inputTokens()
+     */
+    public String build(AIMode mode, String context, String message, PromptBudget budget) {
+        String ctx = context != null ? context : "";
+        String msg = message != null ? message : "";
+
+        double inputBudget = budget.inputTokens() / budget.tokenRatio();
+        // 指令和问题最多占一半预算，其余留给上下文
+        if (TokenEstimator.exact(msg) > inputBudget / 2) {
+            msg = ContextWindow.aroundCursor(msg, 0, (int) (inputBudget / 2)).after();
+        }
+        double contextBudget = inputBudget - TokenEstimator.exact(render(mode, " ", msg));
+        return render(mode, fit(mode, ctx, msg, contextBudget), msg);
+    }
+
+    private String fit(AIMode mode, String context, String message, double budget) {
+        if (context.isEmpty()) {
+            return context;
+        }
+        List<Segment> parts = split(context);
+        double total = parts.stream().mapToDouble(Segment::tokens).sum();
+        if (total <= budget) {
+            return context;
+        }
+        String fitted = switch (mode) {
+            case CONTINUE -> keepTail(parts, budget);
+            case POLISH -> keepHead(parts, budget);
+            case QA -> keepRelevant(parts, TextTerms.of(message), budget);
+        };
+        logger.debug("Prompt context trimmed: mode={}, {} -> {} tokens, budget {}",
+                mode, Math.ceil(total), TokenEstimator.estimate(fitted), (int) budget);
+        return fitted;
+    }
+
+    private String keepTail(List<Segment> parts, double budget) {
+        Deque<String> kept = new ArrayDeque<>();
+        double used = 0;
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            Segment segment = parts.get(i);
+            if (used + segment.tokens() > budget) {
+                kept.addFirst(ContextWindow.aroundCursor(segment.text(), null, (int) (budget - used)).before());
+                break;
+            }
+            kept.addFirst(segment.text());
+            used += segment.tokens();
+        }
+        return String.join("", kept);
+    }
+
+    private String keepHead(List<Segment> parts, double budget) {
+        StringBuilder kept = new StringBuilder();
+        double used = 0;
+        for (Segment segment : parts) {
+            if (used + segment.tokens() > budget) {
+                kept.append(ContextWindow.aroundCursor(segment.text(), 0, (int) (budget - used)).after());
+                break;
+            }
+            kept.append(segment.text());
+            used += segment.tokens();
+        }
+        return kept.toString();
+    }
+
+    private String keepRelevant(List<Segment> parts, Set<String> query, double budget) {
+        int n = parts.size();
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            long overlap = parts.get(i).terms().stream().filter(query::contains).count();
+            scores[i] = overlap + RECENCY_WEIGHT * (i + 1) / n;
+        }
+
+        boolean[] selected = new boolean[n];
+        double used = 0;
+        for (int i : IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble((Integer k) -> scores[k]).reversed())
+                .mapToInt(Integer::intValue).toArray()) {
+            double tokens = parts.get(i).tokens();
+            if (used + tokens <= budget) {
+                selected[i] = true;
+                used += tokens;
+            }
+        }
+
+        // 按原文顺序输出，跳过的部分用省略标记代替
+        StringBuilder kept = new StringBuilder();
+        for (int i = 0, last = -1; i < n; i++) {
+            if (!selected[i]) {
+                continue;
+            }
+            if (i != last + 1) {
+                kept.append(GAP);
+            }
+            kept.append(parts.get(i).text());
+            last = i;
+        }
+        return kept.toString();
+    }
+
+    /**
+     * 按行切分（保留换行符，拼接后与原文一致），过长的行再按句末标点或空白切开
+     */
+    private List<Segment> split(String text) {
+        List<Segment> parts = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int newline = text.indexOf('\n', start);
+            int lineEnd = newline >= 0 ? newline + 1 : text.length();
+            int end = lineEnd - start > MAX_SEGMENT_CHARS ? chunkEnd(text, start) : lineEnd;
+            String part = text.substring(start, end);
+            parts.add(segments.get(part, PromptBuilder::segment));
+            start = end;
+        }
+        return parts;
+    }
+
+    private static int chunkEnd(String text, int start) {
+        int limit = start + MAX_SEGMENT_CHARS;
+        for (int i = limit; i > start + MAX_SEGMENT_CHARS / 2; i--) {
+            char c = text.charAt(i - 1);
+            if (c == '。' || c == '！' || c == '？' || c == '.' || c == '!' || c == '?' || Character.isWhitespace(c)) {
+                return i;
+            }
+        }
+        return Character.isHighSurrogate(text.charAt(limit - 1)) ? limit - 1 : limit;
+    }
+
+    private static Segment segment(String text) {
+        return new Segment(text, TokenEstimator.exact(text), TextTerms.of(text));
+    }
+
+    private static String render(AIMode mode, String context, String message) {
+        return switch (mode) {
+            case CONTINUE -> renderContinue(context, message);
+            case POLISH -> renderPolish(context, message);
+            case QA -> renderQa(context, message);
+        };
+    }
+
+    private static String renderContinue(String context, String prompt) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Continue writing the following text without altering the prior content. ");
+        if (!prompt.isEmpty()) {
+            sb.append(prompt).append("\n\n");
+        }
+        sb.append("Context:\n").append(context);
+        return sb.toString();
+    }
+
+    private static String renderPolish(String context, String prompt) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Lightly polish and improve the following text. Keep the original meaning and structure. ");
+        if (!prompt.isEmpty()) {
+            sb.append(prompt).append("\n\n");
+        }
+        sb.append("Text to polish:\n").append(context);
+        return sb.toString();
+    }
+
+    private static String renderQa(String context, String message) {
+        StringBuilder sb = new StringBuilder();
+        if (!context.isEmpty()) {
+            sb.append("Context:\n").append(context).append("\n\n");
+        }
+        sb.append("Question: ").append(message);
+        return sb.toString();
+    }
+}
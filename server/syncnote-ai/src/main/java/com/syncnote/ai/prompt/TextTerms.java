@@ -0,0 +1,56 @@
+package com.syncnote.ai.prompt;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 不依赖分词器的检索词切分：英文单词、数字（小写，至少 2 个字符）和相邻的中日韩字符二元组
+ */
+public final class TextTerms {
+
+    private TextTerms() {
+    }
+
+    public static Set<String> of(CharSequence text) {
+        Set<String> terms = new HashSet<>();
+        scan(text, terms::add);
+        return terms;
+    }
+
+    /**
+     * 按出现顺序输出每个检索词（重复出现的词会输出多次）
+     */
+    public static void scan(CharSequence text, Consumer<String> sink) {
+        if (text == null) {
+            return;
+        }
+        StringBuilder word = new StringBuilder();
+        char previousCjk = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (TokenEstimator.isCjk(c)) {
+                flush(word, sink);
+                if (previousCjk != 0) {
+                    sink.accept(String.valueOf(new char[]{previousCjk, c}));
+                }
+                previousCjk = c;
+            } else {
+                previousCjk = 0;
+                if (Character.isLetterOrDigit(c)) {
+                    word.append(Character.toLowerCase(c));
+                } else {
+                    flush(word, sink);
+                }
+            }
+        }
+        flush(word, sink);
+    }
+
+    private static void flush(StringBuilder word, Consumer<String> sink) {
+        if (word.length() >= 2) {
+            sink.accept(word.toString());
+        }
+        word.setLength(0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.syncnote.ai.prompt;
+
+/**
+ * 不依赖具体分词器的 token 估算
+ * 中日韩字符大多单独成 token，按 1 个计；其他字符（英文、数字、标点、空白）按 4 个字符 1 个 token 计
+ */
+public final class TokenEstimator {
+
+    private static final double OTHER_CHAR_COST = 0.25;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        return (int) Math.ceil(exact(text));
+    }
+
+    /**
+     * 未取整的估算值，多个片段的估算可以直接相加
+     */
+    static double exact(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        double tokens = 0;
+        for (int i = 0; i < text.length(); i++) {
+            tokens += cost(text.charAt(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * 单个 UTF-16 字符的 token 开销；代理对的两半各计一半
+     */
+    public static double cost(char c) {
+        if (Character.isSurrogate(c)) {
+            return 0.5;
+        }
+        return isCjk(c) ? 1 : OTHER_CHAR_COST;
+    }
+
+    static boolean isCjk(char c) {
+        return switch (Character.UnicodeScript.of(c)) {
+            case HAN, HIRAGANA, KATAKANA, HANGUL -> true;
+            default -> false;
+        };
+    }
+}
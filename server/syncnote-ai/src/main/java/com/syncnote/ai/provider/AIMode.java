@@ -0,0 +1,41 @@
+package com.syncnote.ai.provider;
+
+import java.util.Locale;
+
+/**
+ * AI 调用模式，一次请求只对应一种模式、一次模型调用
+ */
+public enum AIMode {
+
+    /**
+     * 续写，不改动已有内容
+     */
+    CONTINUE,
+
+    /**
+     * 轻度润色
+     */
+    POLISH,
+
+    /**
+     * 问答，不修改文档
+     */
+    QA;
+
+    /**
+     * 解析请求中的 mode 字段（兼容别名）
+     *
+     * @throws IllegalArgumentException mode 无效时
+     */
+    public static AIMode of(String mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Invalid mode: null");
+        }
+        return switch (mode.toLowerCase(Locale.ROOT)) {
+            case "continue", "rewrite-continue" -> CONTINUE;
+            case "polish", "rewrite-polish" -> POLISH;
+            case "chat", "qa", "agent" -> QA;
+            default -> throw new IllegalArgumentException("Invalid mode: " + mode);
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.syncnote.ai.provider;
+
+/**
+ * Handle to an in-flight streaming generation
+ */
+@FunctionalInterface
+public interface AIStreamHandle {
+
+    /**
+     * Stop the generation and abort the upstream request if it is still running.
+     * No further handler callbacks are delivered after cancellation. Safe to call more than once.
+     */
+    void cancel();
+}
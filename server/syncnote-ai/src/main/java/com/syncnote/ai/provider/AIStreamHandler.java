@@ -0,0 +1,25 @@
+package com.syncnote.ai.provider;
+
+import com.syncnote.ai.dto.AIResult;
+
+/**
+ * Callback for streaming generation. Calls arrive in order on the provider's thread:
+ * any number of onToken, then exactly one of onComplete / onError.
+ */
+public interface AIStreamHandler {
+
+    /**
+     * 模型输出的一个增量片段
+     */
+    void onToken(String token);
+
+    /**
+     * 生成结束，result 中的 text 为完整输出
+     */
+    void onComplete(AIResult result);
+
+    /**
+     * 生成失败
+     */
+    void onError(Throwable error);
+}
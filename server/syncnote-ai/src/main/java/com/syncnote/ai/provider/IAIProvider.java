@@ -1,5 +1,9 @@
 package com.syncnote.ai.provider;
 
+import com.syncnote.ai.dto.AIResult;
+
+import java.util.Map;
+
 /**
  * Interface for AI provider operations
  */
@@ -32,6 +36,52 @@ public interface IAIProvider {
      */
     String qa(String context, String message);
     
+    /**
+     * Run exactly one model call for the given mode and return the output with timing metadata.
+     * Providers that can report token usage should override this; the default only measures latency.
+     *
+     * @param mode    The request mode
+     * @param context Document context (optional)
+     * @param message Additional prompt / question
+     * @return The model output with latency and token usage
+     */
+    default AIResult generate(AIMode mode, String context, String message) {
+        long start = System.nanoTime();
+        String text = switch (mode) {
+            case CONTINUE -> rewriteContinue(context, message);
+            case POLISH -> rewritePolish(context, message);
+            case QA -> qa(context, message);
+        };
+        long latencyMs = (System.nanoTime() - start) / 1_000_000;
+        return new AIResult(text, getProviderId(), getModelId(), latencyMs, null, null, null);
+    }
+
+    /**
+     * Stream the output of one model call token by token.
+     * Providers with a streaming API override this; the default falls back to a single
+     * blocking call on the calling thread and emits the whole text as one token.
+     *
+     * @param mode    The request mode
+     * @param context Document context (optional)
+     * @param message Additional prompt / question
+     * @param handler Receives tokens, then completion or error
+     * @return Handle that cancels the generation
+     */
+    default AIStreamHandle generateStream(AIMode mode, String context, String message, AIStreamHandler handler) {
+        AIResult result;
+        try {
+            result = generate(mode, context, message);
+        } catch (Exception e) {
+            handler.onError(e);
+            return () -> { };
+        }
+        if (result.getText() != null && !result.getText().isEmpty()) {
+            handler.onToken(result.getText());
+        }
+        handler.onComplete(result);
+        return () -> { };
+    }
+
     /**
      * Get the provider identifier
      * 
@@ -46,6 +96,16 @@ public interface IAIProvider {
      */
     String getModelId();
     
+    /**
+     * Provider-specific parameters from {@code syncnote.ai.providers.<name>.parameters}
+     * (also used for concurrency, rate limit and circuit breaker settings)
+     *
+     * @return The configured parameters, never null
+     */
+    default Map<String, String> getParameters() {
+        return Map.of();
+    }
+
     /**
      * Check if the provider is enabled/configured
      * 
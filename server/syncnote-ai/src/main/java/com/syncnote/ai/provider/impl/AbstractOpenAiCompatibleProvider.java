@@ -0,0 +1,247 @@
+package com.syncnote.ai.provider.impl;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.prompt.PromptBudget;
+import com.syncnote.ai.prompt.PromptBuilder;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import com.syncnote.ai.provider.IAIProvider;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.ai4j.openai4j.OpenAiClient;
+import dev.ai4j.openai4j.ResponseHandle;
+import dev.ai4j.openai4j.chat.ChatCompletionChoice;
+import dev.ai4j.openai4j.chat.ChatCompletionRequest;
+import dev.ai4j.openai4j.shared.StreamOptions;
+import dev.ai4j.openai4j.shared.Usage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared implementation for providers that speak the OpenAI chat completions API
+ * (OpenAI, DeepSeek, Qwen, Kimi). Subclasses only supply their config key, ids and defaults;
+ * prompts are assembled by the shared PromptBuilder within this model's token budget.
+ * Blocking calls go through langchain4j; streaming uses the underlying openai4j client directly
+ * because langchain4j 0.35 discards the ResponseHandle, which is the only way to abort the upstream
+ * HTTP request when the SSE client goes away.
+ */
+public abstract class AbstractOpenAiCompatibleProvider implements IAIProvider {
+
+    private static final String OPENAI_URL = "https://api.openai.com/v1";
+
+    /**
+     * 单次请求的默认超时，可通过 parameters.timeout-ms 配置；超时计入熔断失败次数
+     */
+    private static final long DEFAULT_TIMEOUT_MS = 60000;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final String providerId;
+    private final String displayName;
+    private final String modelId;
+    private final ChatLanguageModel chatModel;
+    private final OpenAiClient streamingClient;
+    private final boolean enabled;
+    private final Map<String, String> parameters;
+    private final PromptBuilder promptBuilder;
+    private final PromptBudget promptBudget;
+
+    /**
+     * @param aiProperties    AI 模块配置
+     * @param promptBuilder   共用的 prompt 组装
+     * @param configKey       providers 下的配置名
+     * @param providerId      提供方 ID
+     * @param displayName     日志中使用的名称
+     * @param defaultModelId  未配置 model-id 时使用的模型
+     * @param defaultEndpoint 未配置 endpoint 时使用的地址，null 表示使用 SDK 默认地址
+     */
+    protected AbstractOpenAiCompatibleProvider(AIProperties aiProperties, PromptBuilder promptBuilder,
+                                               String configKey, String providerId, String displayName,
+                                               String defaultModelId, String defaultEndpoint) {
+        this.providerId = providerId;
+        this.displayName = displayName;
+        this.promptBuilder = promptBuilder;
+
+        AIProperties.ProviderConfig config = aiProperties.getProviders().get(configKey);
+        if (config == null) {
+            this.modelId = defaultModelId;
+            this.enabled = false;
+            this.chatModel = null;
+            this.streamingClient = null;
+            this.parameters = Map.of();
+            this.promptBudget = promptBuilder.budgetOf(this.parameters);
+            logger.warn("{} provider config not found; provider disabled", displayName);
+            return;
+        }
+
+        this.modelId = config.getModelId() != null ? config.getModelId() : defaultModelId;
+        this.enabled = config.isEnabled()
+                && config.getApiKey() != null
+                && !config.getApiKey().isEmpty();
+        this.parameters = config.getParameters() != null ? Map.copyOf(config.getParameters()) : Map.of();
+        this.promptBudget = promptBuilder.budgetOf(this.parameters);
+
+        if (this.enabled) {
+            Duration timeout = Duration.ofMillis(parseTimeout(this.parameters.get("timeout-ms")));
+            OpenAiChatModel.OpenAiChatModelBuilder builder = OpenAiChatModel.builder()
+                    .apiKey(config.getApiKey())
+                    .modelName(this.modelId)
+                    .timeout(timeout);
+
+            String baseUrl = config.getEndpoint() != null && !config.getEndpoint().isEmpty()
+                    ? config.getEndpoint()
+                    : defaultEndpoint;
+            if (baseUrl != null) {
+                builder.baseUrl(baseUrl);
+            }
+
+            this.chatModel = builder.build();
+            this.streamingClient = OpenAiClient.builder()
+                    .baseUrl(baseUrl != null ? baseUrl : OPENAI_URL)
+                    .openAiApiKey(config.getApiKey())
+                    .readTimeout(timeout)
+                    .build();
+            logger.info("{} provider initialized with model: {}", displayName, this.modelId);
+        } else {
+            this.chatModel = null;
+            this.streamingClient = null;
+            logger.warn("{} provider is disabled or not configured", displayName);
+        }
+    }
+
+    @Override
+    public String rewriteContinue(String context, String prompt) {
+        return generate(AIMode.CONTINUE, context, prompt).getText();
+    }
+
+    @Override
+    public String rewritePolish(String context, String prompt) {
+        return generate(AIMode.POLISH, context, prompt).getText();
+    }
+
+    @Override
+    public String qa(String context, String message) {
+        return generate(AIMode.QA, context, message).getText();
+    }
+
+    /**
+     * One remote call; token usage comes from the same response as the text
+     */
+    @Override
+    public AIResult generate(AIMode mode, String context, String message) {
+        if (!enabled) {
+            throw new IllegalStateException(displayName + " provider is not enabled");
+        }
+        String fullPrompt = buildPrompt(mode, context, message);
+
+        long start = System.nanoTime();
+        Response<AiMessage> response = chatModel.generate(UserMessage.from(fullPrompt));
+        long latencyMs = (System.nanoTime() - start) / 1_000_000;
+
+        TokenUsage usage = response.tokenUsage();
+        return new AIResult(
+                response.content().text(),
+                providerId,
+                modelId,
+                latencyMs,
+                usage != null ? usage.inputTokenCount() : null,
+                usage != null ? usage.outputTokenCount() : null,
+                usage != null ? usage.totalTokenCount() : null
+        );
+    }
+
+    /**
+     * Tokens are forwarded as soon as the remote API emits them; the last chunk carries
+     * token usage. Cancelling the returned handle closes the upstream connection.
+     */
+    @Override
+    public AIStreamHandle generateStream(AIMode mode, String context, String message, AIStreamHandler handler) {
+        if (!enabled) {
+            throw new IllegalStateException(displayName + " provider is not enabled");
+        }
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(modelId)
+                .addUserMessage(buildPrompt(mode, context, message))
+                .streamOptions(StreamOptions.builder().includeUsage(true).build())
+                .build();
+
+        long start = System.nanoTime();
+        StringBuilder text = new StringBuilder();
+        AtomicReference<Usage> usage = new AtomicReference<>();
+        ResponseHandle handle = streamingClient.chatCompletion(request)
+                .onPartialResponse(partial -> {
+                    if (partial.usage() != null) {
+                        usage.set(partial.usage());
+                    }
+                    List<ChatCompletionChoice> choices = partial.choices();
+                    if (choices == null || choices.isEmpty() || choices.getFirst().delta() == null) {
+                        return;
+                    }
+                    String token = choices.getFirst().delta().content();
+                    if (token != null && !token.isEmpty()) {
+                        text.append(token);
+                        handler.onToken(token);
+                    }
+                })
+                .onComplete(() -> {
+                    long latencyMs = (System.nanoTime() - start) / 1_000_000;
+                    Usage u = usage.get();
+                    handler.onComplete(new AIResult(
+                            text.toString(),
+                            providerId,
+                            modelId,
+                            latencyMs,
+                            u != null ? u.promptTokens() : null,
+                            u != null ? u.completionTokens() : null,
+                            u != null ? u.totalTokens() : null
+                    ));
+                })
+                .onError(handler::onError)
+                .execute();
+        return handle::cancel;
+    }
+
+    @Override
+    public String getProviderId() {
+        return providerId;
+    }
+
+    @Override
+    public String getModelId() {
+        return modelId;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    private long parseTimeout(String value) {
+        try {
+            return value != null ? Long.parseLong(value.trim()) : DEFAULT_TIMEOUT_MS;
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} timeout-ms: {}", displayName, value);
+            return DEFAULT_TIMEOUT_MS;
+        }
+    }
+
+    protected String buildPrompt(AIMode mode, String context, String message) {
+        return promptBuilder.build(mode, context, message, promptBudget);
+    }
+}
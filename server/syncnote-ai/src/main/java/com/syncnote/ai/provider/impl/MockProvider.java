@@ -1,12 +1,18 @@
 package com.syncnote.ai.provider.impl;
 
 import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
 import com.syncnote.ai.provider.IAIProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 /**
  * Mock provider for testing and demonstration
  */
@@ -15,8 +21,15 @@ public class MockProvider implements IAIProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(MockProvider.class);
 
+    /**
+     * 流式输出时每个 token 之间的间隔，可通过 parameters.token-delay-ms 配置
+     */
+    private static final long DEFAULT_TOKEN_DELAY_MS = 20;
+
     private final String modelId;
     private final boolean enabled;
+    private final long tokenDelayMs;
+    private final Map<String, String> parameters;
 
     /**
      * Spring 使用的构造函数：从 AIProperties 中读取 "mock" 配置
@@ -30,6 +43,8 @@ public class MockProvider implements IAIProvider {
 
         this.modelId = config != null && config.getModelId() != null ? config.getModelId() : "mock-model";
         this.enabled = config != null && config.isEnabled();
+        this.tokenDelayMs = parseTokenDelay(config);
+        this.parameters = parametersOf(config);
 
         if (this.enabled) {
             logger.info("Mock provider initialized with model: {}", this.modelId);
@@ -44,6 +59,8 @@ public class MockProvider implements IAIProvider {
     public MockProvider(AIProperties.ProviderConfig config) {
         this.modelId = config != null && config.getModelId() != null ? config.getModelId() : "mock-model";
         this.enabled = config != null && config.isEnabled();
+        this.tokenDelayMs = parseTokenDelay(config);
+        this.parameters = parametersOf(config);
 
         if (this.enabled) {
             logger.info("Mock provider initialized with model: {}", this.modelId);
@@ -79,11 +96,61 @@ public class MockProvider implements IAIProvider {
         return "[MOCK QA] Answer to '" + (message != null ? message : "no question") + "': This is a mock response.";
     }
 
+    /**
+     * 以固定间隔逐个输出确定的 token（按空白切分），便于测试首 token 延迟和流式链路
+     */
+    @Override
+    public AIStreamHandle generateStream(AIMode mode, String context, String message, AIStreamHandler handler) {
+        if (!enabled) {
+            throw new IllegalStateException("Mock provider is not enabled");
+        }
+        AIResult result = generate(mode, context, message);
+        String[] tokens = result.getText().split("(?<=\\s)");
+
+        Thread worker = Thread.ofVirtual().name("mock-stream").start(() -> {
+            long start = System.nanoTime();
+            try {
+                for (String token : tokens) {
+                    Thread.sleep(tokenDelayMs);
+                    handler.onToken(token);
+                }
+            } catch (InterruptedException e) {
+                // 被取消，不再回调
+                return;
+            }
+            result.setLatencyMs((System.nanoTime() - start) / 1_000_000);
+            handler.onComplete(result);
+        });
+        return worker::interrupt;
+    }
+
+    private static long parseTokenDelay(AIProperties.ProviderConfig config) {
+        if (config == null || config.getParameters() == null) {
+            return DEFAULT_TOKEN_DELAY_MS;
+        }
+        String value = config.getParameters().get("token-delay-ms");
+        try {
+            return value != null ? Long.parseLong(value.trim()) : DEFAULT_TOKEN_DELAY_MS;
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid mock token-delay-ms: {}", value);
+            return DEFAULT_TOKEN_DELAY_MS;
+        }
+    }
+
+    private static Map<String, String> parametersOf(AIProperties.ProviderConfig config) {
+        return config != null && config.getParameters() != null ? Map.copyOf(config.getParameters()) : Map.of();
+    }
+
     @Override
     public String getProviderId() {
         return "mock";
     }
 
+    @Override
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
     @Override
     public String getModelId() {
         return modelId;
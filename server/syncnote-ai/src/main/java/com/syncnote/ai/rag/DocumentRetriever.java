@@ -0,0 +1,137 @@
+package com.syncnote.ai.rag;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.request.ChatRequest;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.document.event.DocumentStateSavedEvent;
+import com.syncnote.document.service.IDocumentService;
+import com.syncnote.util.context.CurrentUserContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 问答的文档检索
+ * 文档保存后标记为待更新，由独立线程按间隔批量重建索引（段落未变化时复用向量），
+ * 不占用 Spring 的定时任务线程；每轮最多处理 maxDocumentsPerRun 篇，其余留到下一轮；
+ * 问答请求带 documentId 时，只把与问题最相关的几个段落作为上下文发给模型
+ */
+@Component
+public class DocumentRetriever {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentRetriever.class);
+
+    /**
+     * 不相邻段落之间的分隔
+     */
+    private static final String PASSAGE_SEPARATOR = "\n…\n";
+
+    private final AIProperties.Rag properties;
+    private final IDocumentService documentService;
+    private final DocumentVectorIndex vectorIndex;
+
+    private final Set<Long> staleDocuments = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService indexRefresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("ai-rag-index").factory());
+
+    public DocumentRetriever(AIProperties aiProperties, IDocumentService documentService,
+                             DocumentVectorIndex vectorIndex) {
+        this.properties = aiProperties.getRag();
+        this.documentService = documentService;
+        this.vectorIndex = vectorIndex;
+    }
+
+    @EventListener
+    public void onDocumentStateSaved(DocumentStateSavedEvent event) {
+        if (properties.isEnabled()) {
+            staleDocuments.add(event.documentId());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = Math.max(1, properties.getIndexIntervalMs());
+        indexRefresher.scheduleWithFixedDelay(this::refreshStaleDocuments, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexRefresher.shutdownNow();
+    }
+
+    public void refreshStaleDocuments() {
+        List<Long> batch = new ArrayList<>();
+        Iterator<Long> it = staleDocuments.iterator();
+        while (it.hasNext() && batch.size() < Math.max(1, properties.getMaxDocumentsPerRun())) {
+            batch.add(it.next());
+            it.remove();
+        }
+        for (Long docId : batch) {
+            try {
+                reindex(docId);
+            } catch (Exception e) {
+                logger.warn("Document index refresh failed: docId={}, error={}", docId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 问答请求带 documentId 时，把检索到的段落加入上下文；其他请求原样返回
+     */
+    public ChatRequest augment(ChatRequest request, AIMode mode) {
+        if (!properties.isEnabled() || mode != AIMode.QA
+                || request.getDocumentId() == null || request.getDocumentId().isBlank()) {
+            return request;
+        }
+        Long docId;
+        try {
+            docId = Long.valueOf(request.getDocumentId().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("文档ID格式不正确");
+        }
+        Long userId = CurrentUserContext.getUserId();
+        if (userId == null || documentService.getDocumentPermission(docId, userId) == null) {
+            throw new RuntimeException("没有读文件的权限");
+        }
+
+        // 服务启动后还没有保存过的文档，第一次提问时建立索引
+        if (!vectorIndex.contains(docId)) {
+            reindex(docId);
+        }
+        List<String> passages = vectorIndex.search(docId, request.getMessage(), properties.getTopK());
+        if (passages.isEmpty()) {
+            return request;
+        }
+
+        String retrieved = String.join(PASSAGE_SEPARATOR, passages);
+        String context = request.getContext() == null || request.getContext().isBlank()
+                ? retrieved
+                : request.getContext() + "\n\n" + retrieved;
+        return new ChatRequest(request.getModelId(), request.getMode(), request.getMessage(), context,
+                request.getDocumentId());
+    }
+
+    private void reindex(Long docId) {
+        long start = System.nanoTime();
+        String text = documentService.loadDocumentText(docId);
+        vectorIndex.update(docId, text);
+        logger.debug("Document index refreshed: docId={}, chars={}, took {}ms",
+                docId, text.length(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,186 @@
+package com.syncnote.ai.rag;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.prompt.ContextWindow;
+import com.syncnote.ai.prompt.TokenEstimator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 进程内的文档段落向量索引
+ * 每个文档按段落切块（过长的段落再切开，标题会拼到所属段落的向量输入中），
+ * 全部向量连续存放在一个 float 数组里，检索时逐个做点积（暴力搜索，单文档的段落数有限，
+ * 连续内存上的点积循环可以被 JIT 向量化）
+ * 更新时按向量输入的文本复用上一版本的向量，只为新增或修改过的段落计算向量
+ */
+@Component
+public class DocumentVectorIndex {
+
+    private final AIProperties.Rag properties;
+    private final EmbeddingModel embeddingModel;
+    private final Cache<Long, DocumentIndex> indexes;
+
+    private final Counter embeddedChunks;
+    private final Counter reusedChunks;
+
+    /**
+     * 一个文档的索引快照，更新时整体替换，检索无需加锁
+     *
+     * @param passages 段落原文（检索结果）
+     * @param keys     段落的向量输入，用于增量更新时复用向量
+     * @param vectors  passages.size() * dimension 的向量矩阵
+     */
+    private record DocumentIndex(List<String> passages, List<String> keys, float[] vectors) {
+    }
+
+    public DocumentVectorIndex(AIProperties aiProperties, EmbeddingModel embeddingModel, MeterRegistry meterRegistry) {
+        this.properties = aiProperties.getRag();
+        this.embeddingModel = embeddingModel;
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxDocuments())
+                .build();
+
+        Gauge.builder("syncnote.ai.rag.documents", indexes, Cache::estimatedSize)
+                .description("已建立索引的文档数")
+                .register(meterRegistry);
+        this.embeddedChunks = Counter.builder("syncnote.ai.rag.chunks.embedded")
+                .description("重新计算向量的段落数")
+                .register(meterRegistry);
+        this.reusedChunks = Counter.builder("syncnote.ai.rag.chunks.reused")
+                .description("复用已有向量的段落数")
+                .register(meterRegistry);
+    }
+
+    public boolean contains(Long docId) {
+        return indexes.getIfPresent(docId) != null;
+    }
+
+    /**
+     * 用文档的最新文本更新索引
+     */
+    public void update(Long docId, String text) {
+        int dimension = embeddingModel.dimension();
+        DocumentIndex previous = indexes.getIfPresent(docId);
+        Map<String, Integer> reusable = new HashMap<>();
+        if (previous != null) {
+            for (int i = 0; i < previous.keys().size(); i++) {
+                reusable.putIfAbsent(previous.keys().get(i), i);
+            }
+        }
+
+        List<String> passages = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        chunk(text, passages, keys);
+
+        float[] vectors = new float[keys.size() * dimension];
+        for (int i = 0; i < keys.size(); i++) {
+            Integer old = reusable.get(keys.get(i));
+            if (old != null) {
+                System.arraycopy(previous.vectors(), old * dimension, vectors, i * dimension, dimension);
+                reusedChunks.increment();
+            } else {
+                System.arraycopy(embeddingModel.embed(keys.get(i)), 0, vectors, i * dimension, dimension);
+                embeddedChunks.increment();
+            }
+        }
+        indexes.put(docId, new DocumentIndex(List.copyOf(passages), List.copyOf(keys), vectors));
+    }
+
+    public void remove(Long docId) {
+        indexes.invalidate(docId);
+    }
+
+    /**
+     * 检索与问题最相关的 topK 个段落，按在文档中的先后顺序返回
+     */
+    public List<String> search(Long docId, String query, int topK) {
+        DocumentIndex index = indexes.getIfPresent(docId);
+        if (index == null || index.passages().isEmpty() || topK <= 0) {
+            return List.of();
+        }
+        int dimension = embeddingModel.dimension();
+        float[] q = embeddingModel.embed(query != null ? query : "");
+        float[] vectors = index.vectors();
+        int n = index.passages().size();
+
+        // 小顶堆保留得分最高的 topK 个段落下标
+        float[] scores = new float[n];
+        PriorityQueue<Integer> best = new PriorityQueue<>(topK + 1,
+                (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Integer.compare(a, b));
+        for (int i = 0, offset = 0; i < n; i++, offset += dimension) {
+            float score = 0;
+            for (int d = 0; d < dimension; d++) {
+                score += q[d] * vectors[offset + d];
+            }
+            scores[i] = score;
+            best.add(i);
+            if (best.size() > topK) {
+                best.poll();
+            }
+        }
+
+        int[] selected = best.stream().mapToInt(Integer::intValue).sorted().toArray();
+        return Arrays.stream(selected).mapToObj(index.passages()::get).toList();
+    }
+
+    /**
+     * 按空行和标题切分段落，超过 chunkTokens 的段落再切开
+     * 向量输入 = 所属标题 + 段落，使“某一节讲了什么”这类问题也能命中正文
+     */
+    private void chunk(String text, List<String> passages, List<String> keys) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int maxTokens = Math.max(1, properties.getChunkTokens());
+        String heading = "";
+        StringBuilder current = new StringBuilder();
+        for (String line : text.split("\n")) {
+            boolean isHeading = line.startsWith("#");
+            // 标题后的空行不结束段落，标题与下面的正文放在同一块
+            boolean headingOnly = !current.isEmpty() && current.charAt(0) == '#' && current.indexOf("\n") < 0;
+            if ((line.isBlank() && !headingOnly) || isHeading
+                    || TokenEstimator.estimate(current) + TokenEstimator.estimate(line) > maxTokens) {
+                addChunk(current, heading, passages, keys);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (isHeading) {
+                heading = line.replaceFirst("^#+\\s*", "").strip();
+            }
+            String rest = line;
+            while (TokenEstimator.estimate(rest) > maxTokens) {
+                String piece = ContextWindow.aroundCursor(rest, 0, maxTokens).after();
+                current.append(piece);
+                addChunk(current, heading, passages, keys);
+                rest = rest.substring(piece.length()).stripLeading();
+            }
+            if (!current.isEmpty()) {
+                current.append('\n');
+            }
+            current.append(rest);
+        }
+        addChunk(current, heading, passages, keys);
+    }
+
+    private static void addChunk(StringBuilder current, String heading, List<String> passages, List<String> keys) {
+        String passage = current.toString().strip();
+        current.setLength(0);
+        if (passage.isEmpty()) {
+            return;
+        }
+        passages.add(passage);
+        keys.add(heading.isEmpty() || passage.startsWith("#") ? passage : heading + "\n" + passage);
+    }
+}
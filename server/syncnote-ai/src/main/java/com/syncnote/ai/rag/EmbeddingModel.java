@@ -0,0 +1,18 @@
+package com.syncnote.ai.rag;
+
+/**
+ * 文本向量模型
+ * 返回的向量需要做 L2 归一化，检索时直接用点积作为余弦相似度
+ */
+public interface EmbeddingModel {
+
+    /**
+     * 向量维度
+     */
+    int dimension();
+
+    /**
+     * 计算文本的向量，长度为 dimension()
+     */
+    float[] embed(String text);
+}
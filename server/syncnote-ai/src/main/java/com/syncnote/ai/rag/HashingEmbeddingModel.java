@@ -0,0 +1,66 @@
+package com.syncnote.ai.rag;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.prompt.TextTerms;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本地哈希向量：检索词（英文单词、中日韩二元组）按哈希映射到固定维度，词频取对数后归一化
+ * 不需要下载模型、结果完全确定，离线测试和没有向量服务的部署都可以直接使用；
+ * 接入真正的向量模型时实现 EmbeddingModel 并替换这个 Bean 即可
+ */
+@Component
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private final int dimension;
+
+    public HashingEmbeddingModel(AIProperties aiProperties) {
+        this.dimension = Math.max(16, aiProperties.getRag().getDimension());
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        TextTerms.scan(text, term -> counts.merge(term, 1, Integer::sum));
+
+        float[] vector = new float[dimension];
+        counts.forEach((term, count) -> {
+            int hash = mix(term.hashCode());
+            // 用哈希的最高位决定符号，减少不同词落到同一维度时的相互抵消偏差
+            float weight = (float) (1 + Math.log(count));
+            vector[Math.floorMod(hash, dimension)] += hash < 0 ? -weight : weight;
+        });
+
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimension; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * MurmurHash3 的 fmix32，打散 String.hashCode 的低位分布
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,418 @@
+package com.syncnote.ai.routing;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.execution.AIExecutor;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import com.syncnote.ai.provider.IAIProvider;
+import com.syncnote.ai.provider.ProviderRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 逻辑模型组的路由层
+ * 1. 为每个模型记录最近的调用延迟和错误率，组内按“可用 → 健康 → 中位延迟”排序，熔断中的模型排在最后
+ * 2. 请求发给排第一的模型；超过它的 p95 延迟仍未返回时，向排第二的模型发送对冲请求，取先返回的结果；
+ *    流式请求以首个 token 为准，先输出的一方胜出，另一方立即取消
+ * 3. 第一个模型直接失败时改用下一个模型
+ * 阻塞调用无法中断，落败的对冲请求会在后台完成，其耗时同样计入统计
+ */
+@Component
+public class ProviderRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderRouter.class);
+
+    private final AIProperties.Routing properties;
+    private final ProviderRegistry providerRegistry;
+    private final AIExecutor aiExecutor;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ProviderStats> stats = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService hedgeTimer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("ai-hedge-timer").factory());
+
+    private final Counter hedged;
+    private final Counter hedgeWins;
+    private final Counter failovers;
+
+    public ProviderRouter(AIProperties aiProperties, ProviderRegistry providerRegistry,
+                          AIExecutor aiExecutor, MeterRegistry meterRegistry) {
+        this.properties = aiProperties.getRouting();
+        this.providerRegistry = providerRegistry;
+        this.aiExecutor = aiExecutor;
+        this.meterRegistry = meterRegistry;
+        this.hedged = Counter.builder("syncnote.ai.routing.hedged")
+                .description("发送了对冲请求的调用数")
+                .register(meterRegistry);
+        this.hedgeWins = Counter.builder("syncnote.ai.routing.hedge.wins")
+                .description("对冲请求先于原请求返回的次数")
+                .register(meterRegistry);
+        this.failovers = Counter.builder("syncnote.ai.routing.failover")
+                .description("首选模型失败后改用下一个模型的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * modelId 是否是模型组名（与具体模型同名时优先使用具体模型）
+     */
+    public boolean isGroup(String modelId) {
+        return modelId != null && properties.getGroups().containsKey(modelId) && !providerRegistry.hasProvider(modelId);
+    }
+
+    public Set<String> getGroups() {
+        return properties.getGroups().keySet();
+    }
+
+    /**
+     * 在模型组内执行一次阻塞调用
+     *
+     * @throws IllegalArgumentException 组内没有可用模型
+     */
+    public AIResult generate(String group, AIMode mode, String context, String message) {
+        List<IAIProvider> candidates = candidates(group);
+        IAIProvider primary = candidates.getFirst();
+        CompletableFuture<AIResult> first = submit(primary, mode, context, message);
+        if (candidates.size() < 2) {
+            return await(first);
+        }
+
+        IAIProvider backup = candidates.get(1);
+        long delay = properties.isHedgeEnabled() ? hedgeDelayMs(primary) : Long.MAX_VALUE;
+        try {
+            return first.get(delay, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            failovers.increment();
+            logger.debug("AI routing failover: group={}, from={}, to={}, error={}",
+                    group, primary.getModelId(), backup.getModelId(), e.getCause().getMessage());
+            return await(submit(backup, mode, context, message));
+        } catch (TimeoutException e) {
+            hedged.increment();
+            logger.debug("AI routing hedge: group={}, primary={}, backup={}, delayMs={}",
+                    group, primary.getModelId(), backup.getModelId(), delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("AI 调用被中断", e);
+        }
+        return await(firstSuccessful(first, submit(backup, mode, context, message)));
+    }
+
+    /**
+     * 在模型组内启动一次流式调用
+     *
+     * @throws IllegalArgumentException   组内没有可用模型
+     * @throws RejectedExecutionException 所有模型都拒绝了请求（排队已满、限流）
+     */
+    public AIStreamHandle stream(String group, AIMode mode, String context, String message, AIStreamHandler handler) {
+        List<IAIProvider> candidates = candidates(group);
+        RoutedStream stream = new RoutedStream(candidates, mode, context, message, handler);
+        synchronized (stream) {
+            stream.startNext();
+            if (stream.attempts.isEmpty()) {
+                throw stream.lastRejection;
+            }
+            if (properties.isHedgeEnabled() && candidates.size() > 1) {
+                stream.scheduleHedge(hedgeDelayMs(candidates.getFirst()));
+            }
+        }
+        return stream;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeTimer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 组内模型排序：熔断中的排在最后，健康的排在前面，同为健康时中位延迟低的在前
+     * 熔断中的模型不剔除：由执行层拒绝后转到下一个模型，熔断到期后执行层放行试探调用，模型随之恢复
+     * 样本不足的模型延迟按 0 计，会先被尝试，积累统计数据
+     */
+    List<IAIProvider> candidates(String group) {
+        List<IAIProvider> providers = new ArrayList<>();
+        for (String modelId : properties.getGroups().getOrDefault(group, List.of())) {
+            providerRegistry.getProvider(modelId).ifPresent(providers::add);
+        }
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("No available model in group: " + group);
+        }
+        Map<IAIProvider, Boolean> available = new IdentityHashMap<>();
+        providers.forEach(p -> available.put(p, aiExecutor.isAvailable(p)));
+        providers.sort(Comparator.comparing((IAIProvider p) -> !available.get(p))
+                .thenComparing(p -> !isHealthy(p))
+                .thenComparingLong(this::medianLatency));
+        return providers;
+    }
+
+    long hedgeDelayMs(IAIProvider provider) {
+        ProviderStats s = stats(provider);
+        long p95 = s.sampleCount() >= properties.getMinSamples() ? s.latencyPercentile(0.95) : -1;
+        return p95 < 0 ? properties.getHedgeDelayMs() : Math.max(properties.getMinHedgeDelayMs(), p95);
+    }
+
+    private boolean isHealthy(IAIProvider provider) {
+        ProviderStats s = stats(provider);
+        return s.sampleCount() < properties.getMinSamples() || s.errorRate() <= properties.getMaxErrorRate();
+    }
+
+    private long medianLatency(IAIProvider provider) {
+        ProviderStats s = stats(provider);
+        return s.sampleCount() < properties.getMinSamples() ? 0 : Math.max(0, s.latencyPercentile(0.5));
+    }
+
+    private ProviderStats stats(IAIProvider provider) {
+        return stats.computeIfAbsent(provider.getModelId(), modelId -> {
+            ProviderStats s = new ProviderStats(properties.getWindowSize());
+            Gauge.builder("syncnote.ai.routing.latency.p95", s, st -> st.latencyPercentile(0.95))
+                    .description("最近调用的 p95 延迟")
+                    .baseUnit("milliseconds")
+                    .tag("model", modelId)
+                    .register(meterRegistry);
+            Gauge.builder("syncnote.ai.routing.error.rate", s, ProviderStats::errorRate)
+                    .description("最近调用的错误率")
+                    .tag("model", modelId)
+                    .register(meterRegistry);
+            return s;
+        });
+    }
+
+    private CompletableFuture<AIResult> submit(IAIProvider provider, AIMode mode, String context, String message) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                AIResult result = aiExecutor.call(provider, () -> provider.generate(mode, context, message));
+                stats(provider).record(result.getLatencyMs(), true);
+                return result;
+            } catch (RejectedExecutionException e) {
+                // 排队、限流、熔断拒绝不计入模型本身的错误率
+                throw e;
+            } catch (RuntimeException e) {
+                stats(provider).record((System.nanoTime() - start) / 1_000_000, false);
+                throw e;
+            }
+        }, executor);
+    }
+
+    /**
+     * 取先成功的结果；两个都失败时返回后失败的异常
+     */
+    private CompletableFuture<AIResult> firstSuccessful(CompletableFuture<AIResult> first,
+                                                        CompletableFuture<AIResult> hedge) {
+        CompletableFuture<AIResult> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        first.whenComplete((result, error) -> {
+            if (error == null) {
+                winner.complete(result);
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((result, error) -> {
+            if (error == null) {
+                if (winner.complete(result)) {
+                    hedgeWins.increment();
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+        return winner;
+    }
+
+    private static AIResult await(CompletableFuture<AIResult> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 组内的一次流式调用，可能同时有原请求和对冲请求在进行
+     * 所有状态在 RoutedStream 的锁内修改；下游回调也在锁内发出，保证只有胜出的一方输出
+     */
+    private final class RoutedStream implements AIStreamHandle {
+        private final List<IAIProvider> candidates;
+        private final AIMode mode;
+        private final String context;
+        private final String message;
+        private final AIStreamHandler downstream;
+
+        private final List<Attempt> attempts = new ArrayList<>();
+        private int next = 0;
+        private int failed = 0;
+        private Attempt winner;
+        private boolean finished = false;
+        private ScheduledFuture<?> hedgeTask;
+        private RejectedExecutionException lastRejection;
+
+        RoutedStream(List<IAIProvider> candidates, AIMode mode, String context, String message,
+                     AIStreamHandler downstream) {
+            this.candidates = candidates;
+            this.mode = mode;
+            this.context = context;
+            this.message = message;
+            this.downstream = downstream;
+        }
+
+        /**
+         * 启动下一个候选模型；被执行层拒绝时继续尝试后面的模型
+         *
+         * @return 是否启动成功
+         */
+        boolean startNext() {
+            while (next < candidates.size()) {
+                IAIProvider provider = candidates.get(next++);
+                Attempt attempt = new Attempt(provider, next > 1);
+                try {
+                    attempt.handle = aiExecutor.stream(provider,
+                            h -> provider.generateStream(mode, context, message, h), attempt);
+                    attempts.add(attempt);
+                    return true;
+                } catch (RejectedExecutionException e) {
+                    lastRejection = e;
+                }
+            }
+            return false;
+        }
+
+        void scheduleHedge(long delayMs) {
+            hedgeTask = hedgeTimer.schedule(this::hedge, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void hedge() {
+            if (finished || winner != null) {
+                return;
+            }
+            if (startNext()) {
+                hedged.increment();
+            }
+        }
+
+        @Override
+        public synchronized void cancel() {
+            finished = true;
+            cancelHedge();
+            attempts.forEach(a -> a.handle.cancel());
+        }
+
+        private void win(Attempt attempt) {
+            winner = attempt;
+            cancelHedge();
+            if (attempt.hedge) {
+                hedgeWins.increment();
+            }
+            for (Attempt other : attempts) {
+                if (other != attempt) {
+                    other.handle.cancel();
+                }
+            }
+        }
+
+        private void cancelHedge() {
+            if (hedgeTask != null) {
+                hedgeTask.cancel(false);
+            }
+        }
+
+        /**
+         * 一个候选模型上的调用
+         */
+        private final class Attempt implements AIStreamHandler {
+            private final IAIProvider provider;
+            private final boolean hedge;
+            private final long start = System.nanoTime();
+            private AIStreamHandle handle;
+
+            Attempt(IAIProvider provider, boolean hedge) {
+                this.provider = provider;
+                this.hedge = hedge;
+            }
+
+            @Override
+            public void onToken(String token) {
+                synchronized (RoutedStream.this) {
+                    if (finished) {
+                        return;
+                    }
+                    if (winner == null) {
+                        win(this);
+                    }
+                    if (winner == this) {
+                        downstream.onToken(token);
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete(AIResult result) {
+                synchronized (RoutedStream.this) {
+                    stats(provider).record(result.getLatencyMs(), true);
+                    if (finished) {
+                        return;
+                    }
+                    if (winner == null) {
+                        win(this);
+                    }
+                    if (winner == this) {
+                        finished = true;
+                        downstream.onComplete(result);
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                synchronized (RoutedStream.this) {
+                    if (!(error instanceof RejectedExecutionException)) {
+                        stats(provider).record((System.nanoTime() - start) / 1_000_000, false);
+                    }
+                    if (finished || (winner != null && winner != this)) {
+                        return;
+                    }
+                    if (winner == null && ++failed < attempts.size()) {
+                        // 还有其他请求在进行
+                        return;
+                    }
+                    if (winner == null && startNext()) {
+                        failovers.increment();
+                        return;
+                    }
+                    finished = true;
+                    cancelHedge();
+                    downstream.onError(error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.syncnote.ai.routing;
+
+import java.util.Arrays;
+
+/**
+ * 单个模型最近 N 次调用的滚动统计（环形缓冲），用于路由排序和对冲延迟
+ */
+public final class ProviderStats {
+
+    private final long[] latencies;
+    private final boolean[] failures;
+    private int next = 0;
+    private int count = 0;
+
+    public ProviderStats(int windowSize) {
+        this.latencies = new long[Math.max(1, windowSize)];
+        this.failures = new boolean[latencies.length];
+    }
+
+    public synchronized void record(long latencyMs, boolean success) {
+        latencies[next] = latencyMs;
+        failures[next] = !success;
+        next = (next + 1) % latencies.length;
+        count = Math.min(count + 1, latencies.length);
+    }
+
+    public synchronized int sampleCount() {
+        return count;
+    }
+
+    public synchronized double errorRate() {
+        if (count == 0) {
+            return 0;
+        }
+        int failed = 0;
+        for (int i = 0; i < count; i++) {
+            if (failures[i]) {
+                failed++;
+            }
+        }
+        return (double) failed / count;
+    }
+
+    /**
+     * 成功调用延迟的百分位数（毫秒），没有成功样本时返回 -1
+     *
+     * @param percentile 0 ~ 1，例如 0.95
+     */
+    public synchronized long latencyPercentile(double percentile) {
+        long[] succeeded = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (!failures[i]) {
+                succeeded[n++] = latencies[i];
+            }
+        }
+        if (n == 0) {
+            return -1;
+        }
+        Arrays.sort(succeeded, 0, n);
+        int index = (int) Math.ceil(percentile * n) - 1;
+        return succeeded[Math.max(0, Math.min(n - 1, index))];
+    }
+}
@@ -0,0 +1,37 @@
+package com.syncnote.ai.service;
+
+import com.syncnote.ai.dto.AIJob;
+import com.syncnote.ai.dto.request.ChatRequest;
+
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous AI jobs for long-running calls (whole-document polish, reasoning models)
+ */
+public interface IAIJobService {
+
+    /**
+     * Start the generation and return immediately
+     * @param request chat payload
+     * @return the job in RUNNING state (or already finished if served from cache)
+     */
+    AIJob submit(ChatRequest request);
+
+    /**
+     * Current state of a job owned by the current user
+     * @throws RuntimeException if the job does not exist, expired or belongs to someone else
+     */
+    AIJob get(String jobId);
+
+    /**
+     * Cancel a running job; finished jobs are returned unchanged
+     */
+    AIJob cancel(String jobId);
+
+    /**
+     * Wait for the job to finish without holding a thread
+     * @param onFinished called once with the finished job, or with null if the job expired meanwhile
+     * @return unsubscribes the listener
+     */
+    Runnable subscribe(String jobId, Consumer<AIJob> onFinished);
+}
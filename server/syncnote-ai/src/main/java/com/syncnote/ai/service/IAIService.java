@@ -1,8 +1,11 @@
 package com.syncnote.ai.service;
 
+import com.syncnote.ai.dto.AIResult;
 import com.syncnote.ai.dto.request.ChatRequest;
 import com.syncnote.ai.dto.response.ChatResponse;
 import com.syncnote.ai.dto.ModelInfo;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
 
 import java.util.List;
 
@@ -15,6 +18,23 @@ public interface IAIService {
      */
     ChatResponse processChat(ChatRequest request, String token);
 
+    /**
+     * Call the model exactly once for the request
+     * @param request chat payload
+     * @return model output with latency and token usage
+     */
+    AIResult generate(ChatRequest request);
+
+    /**
+     * Stream the model output for the request token by token
+     * @param request chat payload
+     * @param handler receives tokens, then completion or error (usually on another thread)
+     * @return handle that cancels the generation (and the upstream request)
+     * @throws IllegalArgumentException if the model or mode is invalid
+     * @throws java.util.concurrent.RejectedExecutionException if the provider's queue is full
+     */
+    AIStreamHandle generateStream(ChatRequest request, AIStreamHandler handler);
+
     /**
      * Get list of available models
      * @param token user auth token (Bearer stripped)
@@ -3,5 +3,6 @@ package com.syncnote.ai.service;
 import com.syncnote.ai.dto.response.ContinueWriteResponse;
 
 public interface IContinueWriteService {
-    ContinueWriteResponse continueWrite(Long documentId, String context, String modelId,String documentText);
+    ContinueWriteResponse continueWrite(Long documentId, String context, String modelId, String documentText,
+                                        Integer cursorIndex);
 }
@@ -0,0 +1,307 @@
+package com.syncnote.ai.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIJob;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.dto.request.ChatRequest;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import com.syncnote.ai.service.IAIJobService;
+import com.syncnote.ai.service.IAIService;
+import com.syncnote.util.context.CurrentUserContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 异步 AI 任务
+ * 提交时通过流式接口发起调用（排队、限流、熔断仍由 AIExecutor 负责），生成期间不占用任何线程；
+ * 结束后把结果写入 Redis（本地同时保留一份），客户端断线重连后仍可按 jobId 取回
+ * 等待结果的 SSE 连接如果落在其他节点，按间隔轮询 Redis 直到任务结束
+ */
+@Service
+public class AIJobServiceImpl implements IAIJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIJobServiceImpl.class);
+
+    private final IAIService aiService;
+    private final AIProperties.Jobs properties;
+    private final Cache<String, AIJob> localJobs;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 在本节点执行中的任务
+     */
+    private final Map<String, RunningJob> running = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ai-job-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final class RunningJob {
+        private final AIJob job;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private final List<Consumer<AIJob>> listeners = new CopyOnWriteArrayList<>();
+        private volatile AIStreamHandle handle;
+        private volatile ScheduledFuture<?> timeout;
+
+        private RunningJob(AIJob job) {
+            this.job = job;
+        }
+    }
+
+    public AIJobServiceImpl(IAIService aiService, AIProperties aiProperties, MeterRegistry meterRegistry) {
+        this.aiService = aiService;
+        this.properties = aiProperties.getJobs();
+        this.meterRegistry = meterRegistry;
+        this.localJobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(properties.getTtlSeconds()))
+                .build();
+        meterRegistry.gaugeMapSize("syncnote.ai.jobs.running", List.of(), running);
+    }
+
+    @Override
+    public AIJob submit(ChatRequest request) {
+        AIMode mode = AIMode.of(request.getMode());
+        Long userId = CurrentUserContext.getUserId();
+        long active = running.values().stream().filter(r -> Objects.equals(r.job.getUserId(), userId)).count();
+        if (active >= properties.getMaxActivePerUser()) {
+            throw new RuntimeException("进行中的 AI 任务过多，请稍后再试");
+        }
+
+        AIJob job = new AIJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setUserId(userId);
+        job.setModelId(request.getModelId());
+        job.setMode(mode.name().toLowerCase());
+        job.setStatus(AIJob.Status.RUNNING);
+        job.setCreatedAt(System.currentTimeMillis());
+        save(job);
+
+        RunningJob run = new RunningJob(job);
+        running.put(job.getJobId(), run);
+        try {
+            run.handle = aiService.generateStream(request, new AIStreamHandler() {
+                @Override
+                public void onToken(String token) {
+                    // 只关心最终结果
+                }
+
+                @Override
+                public void onComplete(AIResult result) {
+                    finish(run, AIJob.Status.SUCCEEDED, result, null);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    finish(run, AIJob.Status.FAILED, null, String.valueOf(error.getMessage()));
+                }
+            });
+        } catch (RuntimeException e) {
+            // 模型不存在、排队已满等，直接返回给调用方
+            finish(run, AIJob.Status.FAILED, null, String.valueOf(e.getMessage()));
+            throw e;
+        }
+        if (!run.finished.get()) {
+            run.timeout = timer.schedule(() -> abort(run, AIJob.Status.FAILED, "生成超时"),
+                    properties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        logger.debug("AI job submitted: jobId={}, model={}, mode={}", job.getJobId(), job.getModelId(), mode);
+        return current(run);
+    }
+
+    @Override
+    public AIJob get(String jobId) {
+        AIJob job = load(jobId);
+        if (job == null || !Objects.equals(job.getUserId(), CurrentUserContext.getUserId())) {
+            throw new RuntimeException("任务不存在或已过期");
+        }
+        return job;
+    }
+
+    @Override
+    public AIJob cancel(String jobId) {
+        AIJob job = get(jobId);
+        RunningJob run = running.get(jobId);
+        if (run != null) {
+            abort(run, AIJob.Status.CANCELLED, "已取消");
+            return current(run);
+        }
+        if (!job.getStatus().isTerminal()) {
+            // 在其他节点执行：标记为已取消，执行节点结束时不会覆盖这个状态
+            job.setStatus(AIJob.Status.CANCELLED);
+            job.setError("已取消");
+            job.setFinishedAt(System.currentTimeMillis());
+            save(job);
+        }
+        return job;
+    }
+
+    @Override
+    public Runnable subscribe(String jobId, Consumer<AIJob> onFinished) {
+        AIJob job = get(jobId);
+        if (job.getStatus().isTerminal()) {
+            onFinished.accept(job);
+            return () -> { };
+        }
+
+        AtomicBoolean delivered = new AtomicBoolean(false);
+        Consumer<AIJob> once = finished -> {
+            if (delivered.compareAndSet(false, true)) {
+                onFinished.accept(finished);
+            }
+        };
+
+        RunningJob run = running.get(jobId);
+        if (run != null) {
+            run.listeners.add(once);
+            // 注册前任务可能刚好结束
+            if (run.finished.get()) {
+                once.accept(load(jobId));
+            }
+            return () -> run.listeners.remove(once);
+        }
+
+        AtomicReference<ScheduledFuture<?>> poll = new AtomicReference<>();
+        poll.set(timer.scheduleWithFixedDelay(() -> {
+            AIJob latest = load(jobId);
+            if (latest == null || latest.getStatus().isTerminal()) {
+                once.accept(latest);
+                ScheduledFuture<?> self = poll.get();
+                if (self != null) {
+                    self.cancel(false);
+                }
+            }
+        }, properties.getPollIntervalMs(), properties.getPollIntervalMs(), TimeUnit.MILLISECONDS));
+        return () -> poll.get().cancel(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        running.values().forEach(run -> abort(run, AIJob.Status.FAILED, "服务已停止"));
+    }
+
+    private void abort(RunningJob run, AIJob.Status status, String reason) {
+        AIStreamHandle handle = run.handle;
+        if (handle != null) {
+            handle.cancel();
+        }
+        finish(run, status, null, reason);
+    }
+
+    private void finish(RunningJob run, AIJob.Status status, AIResult result, String error) {
+        if (!run.finished.compareAndSet(false, true)) {
+            return;
+        }
+        running.remove(run.job.getJobId());
+        ScheduledFuture<?> timeout = run.timeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+
+        AIJob stored = load(run.job.getJobId());
+        AIJob job = copyOf(run.job);
+        if (stored != null && stored.getStatus() == AIJob.Status.CANCELLED) {
+            // 已在其他节点取消
+            job = stored;
+        } else {
+            job.setStatus(status);
+            job.setError(error);
+            job.setFinishedAt(System.currentTimeMillis());
+            if (result != null) {
+                job.setText(result.getText());
+                job.setLatencyMs(result.getLatencyMs());
+                job.setInputTokens(result.getInputTokens());
+                job.setOutputTokens(result.getOutputTokens());
+            }
+            save(job);
+        }
+        meterRegistry.counter("syncnote.ai.jobs.finished", "status", job.getStatus().name()).increment();
+        logger.debug("AI job finished: jobId={}, status={}", job.getJobId(), job.getStatus());
+
+        for (Consumer<AIJob> listener : run.listeners) {
+            try {
+                listener.accept(job);
+            } catch (Exception e) {
+                logger.debug("AI job listener failed: jobId={}, error={}", job.getJobId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 本节点执行中的任务以存储中的状态为准（可能已经结束）
+     */
+    private AIJob current(RunningJob run) {
+        AIJob stored = load(run.job.getJobId());
+        return stored != null ? stored : copyOf(run.job);
+    }
+
+    private void save(AIJob job) {
+        localJobs.put(job.getJobId(), copyOf(job));
+        if (isRedisEnabled()) {
+            try {
+                redisTemplate.opsForValue().set(properties.getRedisKeyPrefix() + job.getJobId(), job,
+                        Duration.ofSeconds(properties.getTtlSeconds()));
+            } catch (Exception e) {
+                logger.warn("写入 Redis AI 任务失败: jobId={}, error={}", job.getJobId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 先读 Redis（其他节点可能更新过），Redis 不可用时读本地
+     */
+    private AIJob load(String jobId) {
+        if (isRedisEnabled()) {
+            try {
+                Object value = redisTemplate.opsForValue().get(properties.getRedisKeyPrefix() + jobId);
+                if (value instanceof AIJob job) {
+                    return job;
+                }
+            } catch (Exception e) {
+                logger.debug("读取 Redis AI 任务失败: jobId={}, error={}", jobId, e.getMessage());
+            }
+        }
+        AIJob local = localJobs.getIfPresent(jobId);
+        return local != null ? copyOf(local) : null;
+    }
+
+    private boolean isRedisEnabled() {
+        return properties.isRedisEnabled() && redisTemplate != null;
+    }
+
+    private static AIJob copyOf(AIJob source) {
+        AIJob copy = new AIJob();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
+}
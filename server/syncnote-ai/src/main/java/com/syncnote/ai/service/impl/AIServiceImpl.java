@@ -1,11 +1,21 @@
 package com.syncnote.ai.service.impl;
 
+import com.syncnote.ai.cache.AIResponseCache;
+import com.syncnote.ai.dto.AIResult;
 import com.syncnote.ai.dto.request.ChatRequest;
 import com.syncnote.ai.dto.response.ChatResponse;
 import com.syncnote.ai.dto.ModelInfo;
+import com.syncnote.ai.execution.AIExecutor;
+import com.syncnote.ai.execution.AIRequestCoalescer;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
 import com.syncnote.ai.provider.IAIProvider;
 import com.syncnote.ai.provider.ProviderRegistry;
+import com.syncnote.ai.rag.DocumentRetriever;
+import com.syncnote.ai.routing.ProviderRouter;
 import com.syncnote.ai.service.IAIService;
+import com.syncnote.util.context.CurrentUserContext;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +23,9 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,43 +34,141 @@ public class AIServiceImpl implements IAIService {
     private static final Logger logger = LoggerFactory.getLogger(AIServiceImpl.class);
 
     private final ProviderRegistry providerRegistry;
+    private final AIExecutor aiExecutor;
+    private final AIResponseCache responseCache;
+    private final AIRequestCoalescer requestCoalescer;
+    private final ProviderRouter providerRouter;
+    private final DocumentRetriever documentRetriever;
 
     @Override
     public ChatResponse processChat(ChatRequest request, String token) {
         logger.debug("Processing chat request for model: {}, tokenPresent: {}", request.getModelId(),
                 token != null && !token.isBlank());
-    
-        IAIProvider provider = providerRegistry.getProvider(request.getModelId())
-                .orElseThrow(() -> new IllegalArgumentException("Invalid model ID: " + request.getModelId()));
 
-        String mode = request.getMode();
-        String message = request.getMessage();
-        String context = request.getContext();
+        AIResult result = generate(request);
+        return ChatResponse.of(result, request.getContext());
+    }
+
+    @Override
+    public AIResult generate(ChatRequest original) {
+        AIMode mode = AIMode.of(original.getMode());
+        // 问答请求带文档时只附带与问题相关的段落
+        ChatRequest request = documentRetriever.augment(original, mode);
+        String fingerprint = responseCache.fingerprint(request, mode);
+        String cacheKey = responseCache.isCacheable(mode) ? fingerprint : null;
+        if (cacheKey != null) {
+            Optional<AIResult> cached = responseCache.get(cacheKey);
+            if (cached.isPresent()) {
+                logger.debug("AI cache hit: model={}, mode={}", request.getModelId(), mode);
+                return cached.get();
+            }
+        }
+        Supplier<AIResult> call;
+        if (providerRouter.isGroup(request.getModelId())) {
+            call = () -> providerRouter.generate(request.getModelId(), mode, request.getContext(), request.getMessage());
+        } else {
+            IAIProvider provider = resolveProvider(request);
+            call = () -> aiExecutor.call(provider,
+                    () -> provider.generate(mode, request.getContext(), request.getMessage()));
+        }
+
+        // 每个请求只调用一次模型；同一用户同时发出的相同请求共用这一次调用
+        return requestCoalescer.call(flightKey(fingerprint), () -> {
+            AIResult result = call.get();
+            logger.debug("AI call finished: model={}, mode={}, latencyMs={}, inputTokens={}, outputTokens={}",
+                    result.getModelId(), mode, result.getLatencyMs(), result.getInputTokens(), result.getOutputTokens());
+            if (cacheKey != null) {
+                responseCache.put(cacheKey, result);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public AIStreamHandle generateStream(ChatRequest original, AIStreamHandler handler) {
+        AIMode mode = AIMode.of(original.getMode());
+        ChatRequest request = documentRetriever.augment(original, mode);
+        String fingerprint = responseCache.fingerprint(request, mode);
+        String cacheKey = responseCache.isCacheable(mode) ? fingerprint : null;
+        if (cacheKey != null) {
+            Optional<AIResult> cached = responseCache.get(cacheKey);
+            if (cached.isPresent()) {
+                // 命中缓存时一次性推送完整结果
+                logger.debug("AI cache hit (stream): model={}, mode={}", request.getModelId(), mode);
+                handler.onToken(cached.get().getText());
+                handler.onComplete(cached.get());
+                return () -> { };
+            }
+        }
+        Function<AIStreamHandler, AIStreamHandle> starter;
+        if (providerRouter.isGroup(request.getModelId())) {
+            starter = h -> providerRouter.stream(request.getModelId(), mode, request.getContext(), request.getMessage(), h);
+        } else {
+            IAIProvider provider = resolveProvider(request);
+            starter = h -> aiExecutor.stream(provider,
+                    p -> provider.generateStream(mode, request.getContext(), request.getMessage(), p), h);
+        }
+
+        return requestCoalescer.stream(flightKey(fingerprint),
+                shared -> starter.apply(loggingHandler(request, mode, cacheKey, shared)),
+                handler);
+    }
+
+    private AIStreamHandler loggingHandler(ChatRequest request, AIMode mode, String cacheKey, AIStreamHandler handler) {
+        return new AIStreamHandler() {
+            @Override
+            public void onToken(String token) {
+                handler.onToken(token);
+            }
 
+            @Override
+            public void onComplete(AIResult result) {
+                logger.debug("AI stream finished: model={}, mode={}, latencyMs={}, inputTokens={}, outputTokens={}",
+                        result.getModelId(), mode, result.getLatencyMs(), result.getInputTokens(), result.getOutputTokens());
+                if (cacheKey != null) {
+                    responseCache.put(cacheKey, result);
+                }
+                handler.onComplete(result);
+            }
 
-        return switch (mode.toLowerCase()) {
-                case "continue", "rewrite-continue" ->
-                        new ChatResponse(provider.rewriteContinue(context, message), context, provider.rewriteContinue(context, message));
-                case "polish", "rewrite-polish" ->
-                        new ChatResponse(provider.rewritePolish(context, message), context, provider.rewritePolish(context, message));
-                case "chat", "qa", "agent" ->
-                        new ChatResponse(provider.qa(context, message), context, provider.qa(context, message));
-                default -> throw new IllegalArgumentException("Invalid mode: " + mode);
+            @Override
+            public void onError(Throwable error) {
+                logger.warn("AI stream failed: model={}, mode={}, error={}", request.getModelId(), mode, error.getMessage());
+                handler.onError(error);
+            }
         };
     }
 
+    /**
+     * 进行中请求合并的 key：当前用户 + 请求指纹
+     */
+    private String flightKey(String fingerprint) {
+        Long userId = CurrentUserContext.getUserId();
+        return (userId != null ? userId : "anonymous") + ":" + fingerprint;
+    }
+
+    private IAIProvider resolveProvider(ChatRequest request) {
+        return providerRegistry.getProvider(request.getModelId())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid model ID: " + request.getModelId()));
+    }
+
     @Override
     public List<ModelInfo> getAvailableModels(String token) {
         logger.debug("Getting available models, tokenPresent: {}", token != null && !token.isBlank());
 
         Map<String, IAIProvider> providers = providerRegistry.getAllProviders();
 
-        return providers.entrySet().stream()
+        List<ModelInfo> models = providers.entrySet().stream()
                 .map(entry -> new ModelInfo(
                         entry.getKey(),                // modelId
                         entry.getKey(),                // name (reuse modelId as display name)
                         entry.getValue().getProviderId() // providerId
                 ))
                 .collect(Collectors.toList());
+        // 模型组由路由层选择具体模型
+        providerRouter.getGroups().stream()
+                .filter(providerRouter::isGroup)
+                .forEach(group -> models.add(new ModelInfo(group, group, "router")));
+        return models;
     }
 }
@@ -2,10 +2,10 @@ package com.syncnote.ai.service.impl;
 
 import com.syncnote.ai.dto.request.ChatRequest;
 import com.syncnote.ai.dto.response.ContinueWriteResponse;
+import com.syncnote.ai.prompt.ContextWindow;
 import com.syncnote.ai.service.IAIService;
 import com.syncnote.ai.service.IContinueWriteService;
 import com.syncnote.document.service.IDocumentService;
-import com.syncnote.util.context.CurrentUserContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -16,55 +16,47 @@ public class ContinueWriteServiceImpl implements IContinueWriteService {
     private final IAIService aiService;
     private final IDocumentService documentService;
 
-    // 纯文本做上下文时的长度上限，避免 prompt 过长
-    private static final int MAX_DOC_TEXT_CHARS = 12000;
-    private static final int MAX_SELECTED_TEXT_CHARS = 3000;
+    // 文档上下文与选中片段的 token 预算，避免 prompt 过长
+    private static final int MAX_DOC_CONTEXT_TOKENS = 3000;
+    private static final int MAX_SELECTED_TEXT_TOKENS = 750;
 
     @Override
-    public ContinueWriteResponse continueWrite(Long documentId, String context, String modelId, String documentText) {
-        // 优先使用前端传入的整篇纯文本；为空时回退到数据库中的 Yjs Base64 State
+    public ContinueWriteResponse continueWrite(Long documentId, String context, String modelId,
+                                               String documentText, Integer cursorIndex) {
+        // 优先使用前端传入的整篇纯文本；为空时由服务端从 Yjs 状态中提取（按版本缓存）
         String docText = (documentText == null || documentText.isBlank())
-                ? null
-                : truncateTail(documentText, MAX_DOC_TEXT_CHARS);
+                ? documentService.getDocumentText(documentId)
+                : documentText;
 
-        // 仅用于兜底：数据库里存的是 Yjs base64 state（不可读文本）
-        String base64StateFallback = null;
-        if (docText == null) {
-            base64StateFallback = documentService.getDocumentBinaryState(documentId);
-        }
+        // 光标附近的片段：光标之前的内容是续写的依据，之后的内容只用于避免重复
+        ContextWindow window = ContextWindow.aroundCursor(docText, cursorIndex, MAX_DOC_CONTEXT_TOKENS);
 
         String selected = (context == null || context.isBlank())
                 ? null
-                : truncateTail(context, MAX_SELECTED_TEXT_CHARS);
+                : ContextWindow.tail(context, MAX_SELECTED_TEXT_TOKENS);
 
-        // 构造 prompt：文档正文（优先纯文本） + 选中片段（如果有）
-        String prompt;
-        if (docText != null) {
-            prompt = (selected == null) ? docText : (docText + "\n\n" + selected);
-        } else {
-            // 没有纯文本就用选中片段；选中片段也没有才用 base64 兜底
-            prompt = (selected != null) ? selected : base64StateFallback;
+        StringBuilder instruction = new StringBuilder();
+        if (selected != null) {
+            instruction.append("Focus on the selected text:\n").append(selected);
+        }
+        if (!window.after().isBlank()) {
+            if (!instruction.isEmpty()) {
+                instruction.append("\n\n");
+            }
+            instruction.append("The document continues after the cursor with the text below; do not repeat it:\n")
+                    .append(window.after());
         }
 
         ChatRequest chatReq = new ChatRequest();
         chatReq.setModelId(modelId);
-        chatReq.setMessage(prompt);
         chatReq.setMode("continue");
+        // 文档为空时以选中片段作为续写依据
+        chatReq.setContext(window.before().isBlank() && selected != null ? selected : window.before());
+        chatReq.setMessage(instruction.toString());
 
-        String suggested = aiService.processChat(
-                chatReq,
-                CurrentUserContext.getUserId().toString()
-        ).getReply();
-
-        // -1 表示“文末”，前端可自己传光标覆盖（本次不使用 cursorIndex）
-        return new ContinueWriteResponse(suggested, -1);
-    }
+        String suggested = aiService.generate(chatReq).getText();
 
-    private String truncateTail(String s, int maxChars) {
-        if (s == null) return null;
-        String t = s.trim();
-        if (t.length() <= maxChars) return t;
-        // 取尾部通常更贴近用户正在写的位置
-        return t.substring(t.length() - maxChars);
+        // -1 表示“文末”
+        return new ContinueWriteResponse(suggested, cursorIndex != null ? cursorIndex : -1);
     }
 }
@@ -0,0 +1,131 @@
+package com.syncnote.ai.execution;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import com.syncnote.ai.provider.impl.MockProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AIExecutor (per-provider concurrency, queue limits, rate limits, circuit breaker and cancellation)
+ */
+class AIExecutorTest {
+
+    private static final AIStreamHandler NO_OP = new AIStreamHandler() {
+        @Override
+        public void onToken(String token) {
+        }
+
+        @Override
+        public void onComplete(AIResult result) {
+        }
+
+        @Override
+        public void onError(Throwable error) {
+        }
+    };
+
+    private AIExecutor executor(int maxConcurrent, int maxQueued) {
+        AIProperties properties = new AIProperties();
+        properties.getExecution().setMaxConcurrentCalls(maxConcurrent);
+        properties.getExecution().setMaxQueuedCalls(maxQueued);
+        properties.getExecution().setQueueTimeoutMs(5000);
+        return new AIExecutor(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testCancelAbortsUpstreamAndFreesPermit() throws Exception {
+        AIExecutor executor = executor(1, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean upstreamCancelled = new AtomicBoolean(false);
+
+        AIStreamHandle first = executor.stream("p", h -> {
+            started.countDown();
+            return () -> upstreamCancelled.set(true);
+        }, NO_OP);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 第二个流在等待唯一的名额，取消第一个后应当立即启动
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        executor.stream("p", h -> {
+            secondStarted.countDown();
+            return () -> { };
+        }, NO_OP);
+        assertFalse(secondStarted.await(100, TimeUnit.MILLISECONDS));
+
+        first.cancel();
+        assertTrue(upstreamCancelled.get());
+        assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        AIExecutor executor = executor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.stream("p", h -> {
+            started.countDown();
+            return () -> { };
+        }, NO_OP);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.stream("p", h -> () -> { }, NO_OP);
+        assertThrows(RejectedExecutionException.class, () -> executor.stream("p", h -> () -> { }, NO_OP));
+
+        // 其他提供方不受影响
+        AtomicReference<AIResult> other = new AtomicReference<>();
+        executor.call("q", () -> {
+            other.set(new AIResult());
+            return other.get();
+        });
+        assertNotNull(other.get());
+    }
+
+    @Test
+    void testCircuitOpensAfterRepeatedFailures() {
+        AIExecutor executor = executor(4, 4);
+        MockProvider provider = provider(Map.of("circuit-failure-threshold", "2", "circuit-open-ms", "60000"));
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, () -> executor.call(provider, () -> {
+                throw new IllegalStateException("timeout");
+            }));
+        }
+
+        // 熔断期间直接拒绝，不再调用提供方
+        AtomicBoolean invoked = new AtomicBoolean(false);
+        assertThrows(RejectedExecutionException.class, () -> executor.call(provider, () -> {
+            invoked.set(true);
+            return new AIResult();
+        }));
+        assertFalse(invoked.get());
+        assertEquals("OPEN", executor.snapshot(provider).circuitState());
+    }
+
+    @Test
+    void testRateLimitRejectsBurstAboveBucketSize() {
+        AIExecutor executor = executor(4, 4);
+        MockProvider provider = provider(Map.of("rate-limit-per-second", "0.001", "rate-limit-burst", "2"));
+
+        executor.call(provider, AIResult::new);
+        executor.call(provider, AIResult::new);
+        assertThrows(RejectedExecutionException.class, () -> executor.call(provider, AIResult::new));
+    }
+
+    private static MockProvider provider(Map<String, String> parameters) {
+        AIProperties.ProviderConfig config = new AIProperties.ProviderConfig();
+        config.setEnabled(true);
+        config.setParameters(parameters);
+        return new MockProvider(config);
+    }
+}
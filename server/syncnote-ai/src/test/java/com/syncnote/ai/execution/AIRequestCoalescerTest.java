@@ -0,0 +1,160 @@
+package com.syncnote.ai.execution;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AIRequestCoalescer (single-flight calls and shared streams)
+ */
+class AIRequestCoalescerTest {
+
+    private final AIRequestCoalescer coalescer =
+            new AIRequestCoalescer(new AIProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void testConcurrentCallsShareOneInvocation() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<AIResult> first = CompletableFuture.supplyAsync(() -> coalescer.call("k", () -> {
+            invocations.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            AIResult result = new AIResult();
+            result.setText("shared");
+            return result;
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<AIResult> retry = CompletableFuture.supplyAsync(() -> coalescer.call("k", () -> {
+            invocations.incrementAndGet();
+            return new AIResult();
+        }));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("shared", first.get(5, TimeUnit.SECONDS).getText());
+        assertEquals("shared", retry.get(5, TimeUnit.SECONDS).getText());
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    void testLateSubscriberReplaysTokensAndUpstreamSurvivesPartialCancel() throws Exception {
+        AtomicInteger starts = new AtomicInteger();
+        AtomicReference<AIStreamHandler> upstream = new AtomicReference<>();
+        AtomicBoolean upstreamCancelled = new AtomicBoolean(false);
+
+        StringBuffer first = new StringBuffer();
+        StringBuffer second = new StringBuffer();
+        AIStreamHandle firstHandle = coalescer.stream("k", h -> {
+            starts.incrementAndGet();
+            upstream.set(h);
+            return () -> upstreamCancelled.set(true);
+        }, collecting(first));
+        upstream.get().onToken("Hello ");
+
+        AIStreamHandle secondHandle = coalescer.stream("k", h -> {
+            starts.incrementAndGet();
+            return () -> { };
+        }, collecting(second));
+        upstream.get().onToken("world");
+
+        assertEquals(1, starts.get());
+        awaitText("Hello world", first);
+        awaitText("Hello world", second);
+
+        firstHandle.cancel();
+        assertFalse(upstreamCancelled.get());
+        secondHandle.cancel();
+        assertTrue(upstreamCancelled.get());
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotBlockOthersOrUpstream() throws Exception {
+        AtomicReference<AIStreamHandler> upstream = new AtomicReference<>();
+        CountDownLatch slowEntered = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        StringBuffer slow = new StringBuffer();
+        StringBuffer fast = new StringBuffer();
+
+        coalescer.stream("k", h -> {
+            upstream.set(h);
+            return () -> { };
+        }, new AIStreamHandler() {
+            @Override
+            public void onToken(String token) {
+                slowEntered.countDown();
+                try {
+                    // 模拟卡住的 SSE 写入
+                    releaseSlow.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                slow.append(token);
+            }
+
+            @Override
+            public void onComplete(AIResult result) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+        coalescer.stream("k", h -> () -> { }, collecting(fast));
+
+        // 上游回调立即返回，慢订阅者卡住时快订阅者照常收到全部内容
+        upstream.get().onToken("a");
+        assertTrue(slowEntered.await(5, TimeUnit.SECONDS));
+        upstream.get().onToken("b");
+        upstream.get().onToken("c");
+        awaitText("abc", fast);
+        assertEquals("", slow.toString());
+
+        releaseSlow.countDown();
+        awaitText("abc", slow);
+    }
+
+    private static void awaitText(String expected, StringBuffer actual) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!expected.contentEquals(actual) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, actual.toString());
+    }
+
+    private static AIStreamHandler collecting(StringBuffer out) {
+        return new AIStreamHandler() {
+            @Override
+            public void onToken(String token) {
+                out.append(token);
+            }
+
+            @Override
+            public void onComplete(AIResult result) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.syncnote.ai.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for token estimation and the cursor context window
+ */
+class ContextWindowTest {
+
+    @Test
+    void testCjkCostsMoreThanLatin() {
+        assertEquals(1, TokenEstimator.estimate("abcd"));
+        assertEquals(4, TokenEstimator.estimate("协同笔记"));
+    }
+
+    @Test
+    void testWindowKeepsTextNearCursorWithinBudget() {
+        String text = "word ".repeat(1000);
+        int cursor = 2500;
+
+        ContextWindow window = ContextWindow.aroundCursor(text, cursor, 100);
+
+        assertTrue(TokenEstimator.estimate(window.before() + window.after()) <= 100);
+        assertTrue(window.before().length() > window.after().length());
+        assertTrue(text.substring(0, cursor).endsWith(window.before()));
+        assertTrue(text.substring(cursor).startsWith(window.after()));
+    }
+
+    @Test
+    void testShortDocumentIsKeptWhole() {
+        ContextWindow window = ContextWindow.aroundCursor("开头。结尾", 3, 100);
+
+        assertEquals("开头。", window.before());
+        assertEquals("结尾", window.after());
+    }
+}
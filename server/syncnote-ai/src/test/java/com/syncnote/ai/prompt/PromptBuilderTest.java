@@ -0,0 +1,47 @@
+package com.syncnote.ai.prompt;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.provider.AIMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PromptBuilder (token budgets and context trimming)
+ */
+class PromptBuilderTest {
+
+    private final PromptBuilder builder = new PromptBuilder(new AIProperties());
+
+    @Test
+    void testContinueKeepsTextClosestToCursor() {
+        StringBuilder doc = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            doc.append("Paragraph ").append(i).append(" of the draft.\n");
+        }
+        PromptBudget budget = builder.budgetOf(Map.of("context-tokens", "300", "max-output-tokens", "100"));
+
+        String prompt = builder.build(AIMode.CONTINUE, doc.toString(), "", budget);
+
+        assertTrue(TokenEstimator.estimate(prompt) <= budget.inputTokens());
+        assertTrue(prompt.contains("Paragraph 499 of the draft."));
+        assertFalse(prompt.contains("Paragraph 0 of the draft."));
+    }
+
+    @Test
+    void testQaKeepsRelevantParagraphs() {
+        StringBuilder doc = new StringBuilder("部署说明：服务通过 Docker 启动，端口为 8080。\n");
+        for (int i = 0; i < 300; i++) {
+            doc.append("第").append(i).append("段是无关的会议记录内容。\n");
+        }
+        PromptBudget budget = builder.budgetOf(Map.of("context-tokens", "400", "max-output-tokens", "100"));
+
+        String prompt = builder.build(AIMode.QA, doc.toString(), "服务的部署端口是多少？", budget);
+
+        assertTrue(TokenEstimator.estimate(prompt) <= budget.inputTokens());
+        assertTrue(prompt.contains("端口为 8080"));
+        assertTrue(prompt.endsWith("Question: 服务的部署端口是多少？"));
+    }
+}
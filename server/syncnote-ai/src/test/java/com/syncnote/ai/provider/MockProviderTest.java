@@ -1,9 +1,15 @@
 package com.syncnote.ai.provider;
 
 import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
 import com.syncnote.ai.provider.impl.MockProvider;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -81,4 +87,36 @@ class MockProviderTest {
             provider.rewriteContinue("context", "prompt")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGenerateStreamEmitsTokensInOrder() throws Exception {
+        AIProperties.ProviderConfig config = new AIProperties.ProviderConfig();
+        config.setEnabled(true);
+        config.getParameters().put("token-delay-ms", "1");
+        MockProvider provider = new MockProvider(config);
+
+        List<String> tokens = new CopyOnWriteArrayList<>();
+        CompletableFuture<AIResult> done = new CompletableFuture<>();
+        provider.generateStream(AIMode.QA, null, "What is this?", new AIStreamHandler() {
+            @Override
+            public void onToken(String token) {
+                tokens.add(token);
+            }
+
+            @Override
+            public void onComplete(AIResult result) {
+                done.complete(result);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+        });
+
+        AIResult result = done.get(5, TimeUnit.SECONDS);
+        assertTrue(tokens.size() > 1);
+        assertEquals(result.getText(), String.join("", tokens));
+        assertEquals(provider.qa(null, "What is this?"), result.getText());
+    }
+}
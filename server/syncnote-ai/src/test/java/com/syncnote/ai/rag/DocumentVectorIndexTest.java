@@ -0,0 +1,56 @@
+package com.syncnote.ai.rag;
+
+import com.syncnote.ai.config.AIProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DocumentVectorIndex (chunking, retrieval and incremental updates)
+ */
+class DocumentVectorIndexTest {
+
+    private static final String DOC = """
+            # 部署
+            服务通过 Docker Compose 启动，默认端口为 8080。
+
+            # 会议记录
+            周一讨论了前端的样式调整。
+
+            # 数据库
+            使用 MySQL 8，连接池最大连接数为 20。
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DocumentVectorIndex index = newIndex();
+
+    @Test
+    void testRetrievesRelevantSection() {
+        index.update(1L, DOC);
+
+        List<String> passages = index.search(1L, "数据库连接池最大连接数是多少？", 1);
+
+        assertEquals(1, passages.size());
+        assertTrue(passages.getFirst().contains("MySQL"));
+    }
+
+    @Test
+    void testUpdateOnlyEmbedsChangedChunks() {
+        index.update(1L, DOC);
+        double embeddedBefore = meterRegistry.counter("syncnote.ai.rag.chunks.embedded").count();
+
+        index.update(1L, DOC.replace("周一", "周二"));
+
+        assertEquals(embeddedBefore + 1, meterRegistry.counter("syncnote.ai.rag.chunks.embedded").count());
+        assertEquals(2, meterRegistry.counter("syncnote.ai.rag.chunks.reused").count());
+        assertTrue(index.search(1L, "周二讨论了什么", 1).getFirst().contains("周二"));
+    }
+
+    private DocumentVectorIndex newIndex() {
+        AIProperties properties = new AIProperties();
+        return new DocumentVectorIndex(properties, new HashingEmbeddingModel(properties), meterRegistry);
+    }
+}
@@ -0,0 +1,139 @@
+package com.syncnote.ai.routing;
+
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIResult;
+import com.syncnote.ai.execution.AIExecutor;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.ai.provider.ProviderRegistry;
+import com.syncnote.ai.provider.impl.MockProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProviderRouter (model groups, hedging, failover and circuit recovery)
+ */
+class ProviderRouterTest {
+
+    @Test
+    void testHedgedRequestReturnsFasterBackup() {
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AIProperties properties = properties("slow", "fast");
+        ProviderRouter router = router(properties, meterRegistry,
+                blocking("slow", releaseSlow),
+                provider("fast", "mock", () -> false));
+        try {
+            // 首选模型一直不返回，对冲请求胜出
+            AIResult result = router.generate("chat", AIMode.QA, "context", "question");
+
+            assertEquals("fast", result.getModelId());
+            assertEquals(1.0, meterRegistry.counter("syncnote.ai.routing.hedged").count());
+            assertEquals(1.0, meterRegistry.counter("syncnote.ai.routing.hedge.wins").count());
+        } finally {
+            releaseSlow.countDown();
+        }
+    }
+
+    @Test
+    void testFailsOverWhenPrimaryFails() {
+        ProviderRouter router = router(properties("broken", "healthy"), new SimpleMeterRegistry(),
+                provider("broken", "mock", () -> true),
+                provider("healthy", "mock", () -> false));
+
+        AIResult result = router.generate("chat", AIMode.QA, "context", "question");
+
+        assertEquals("healthy", result.getModelId());
+        assertTrue(router.isGroup("chat"));
+        assertFalse(router.isGroup("healthy"));
+    }
+
+    @Test
+    void testTrippedModelRejoinsGroupAfterOpenPeriod() throws Exception {
+        AIProperties properties = properties("flaky", "steady");
+        properties.getRouting().setHedgeEnabled(false);
+        properties.getExecution().setCircuitFailureThreshold(1);
+        properties.getExecution().setCircuitOpenMs(200);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        // 不同的提供方各有自己的熔断器
+        ProviderRouter router = router(properties, new SimpleMeterRegistry(),
+                provider("flaky", "flaky-provider", failing::get),
+                provider("steady", "steady-provider", () -> false));
+
+        // 第一次失败后熔断，之后的请求直接交给另一个模型
+        assertEquals("steady", router.generate("chat", AIMode.QA, "context", "question").getModelId());
+        assertEquals("steady", router.candidates("chat").getFirst().getModelId());
+        assertEquals("steady", router.generate("chat", AIMode.QA, "context", "question").getModelId());
+
+        // 熔断到期后模型重新参与，试探调用成功即恢复
+        failing.set(false);
+        Thread.sleep(properties.getExecution().getCircuitOpenMs() + 50);
+        assertEquals("flaky", router.generate("chat", AIMode.QA, "context", "question").getModelId());
+        assertEquals("flaky", router.generate("chat", AIMode.QA, "context", "question").getModelId());
+    }
+
+    private static AIProperties properties(String primary, String backup) {
+        AIProperties properties = new AIProperties();
+        properties.getRouting().getGroups().put("chat", List.of(primary, backup));
+        properties.getRouting().setHedgeDelayMs(100);
+        properties.getRouting().setMinHedgeDelayMs(0);
+        return properties;
+    }
+
+    private static ProviderRouter router(AIProperties properties, SimpleMeterRegistry meterRegistry,
+                                         MockProvider primary, MockProvider backup) {
+        ProviderRegistry registry = new ProviderRegistry(List.of(primary, backup));
+        return new ProviderRouter(properties, registry,
+                new AIExecutor(properties, new SimpleMeterRegistry()), meterRegistry);
+    }
+
+    private static MockProvider provider(String modelId, String providerId, BooleanSupplier failing) {
+        return new MockProvider(config(modelId)) {
+            @Override
+            public String getProviderId() {
+                return providerId;
+            }
+
+            @Override
+            public AIResult generate(AIMode mode, String context, String message) {
+                if (failing.getAsBoolean()) {
+                    throw new IllegalStateException("upstream error");
+                }
+                return new AIResult("answer", getProviderId(), getModelId(), 0, null, null, null);
+            }
+        };
+    }
+
+    /**
+     * 直到 release 之前都不返回的模型
+     */
+    private static MockProvider blocking(String modelId, CountDownLatch release) {
+        return new MockProvider(config(modelId)) {
+            @Override
+            public AIResult generate(AIMode mode, String context, String message) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new AIResult("late", getProviderId(), getModelId(), 0, null, null, null);
+            }
+        };
+    }
+
+    private static AIProperties.ProviderConfig config(String modelId) {
+        AIProperties.ProviderConfig config = new AIProperties.ProviderConfig();
+        config.setEnabled(true);
+        config.setModelId(modelId);
+        config.setParameters(Map.of());
+        return config;
+    }
+}
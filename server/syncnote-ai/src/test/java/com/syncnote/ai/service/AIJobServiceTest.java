@@ -0,0 +1,124 @@
+package com.syncnote.ai.service;
+
+import com.syncnote.ai.cache.AIResponseCache;
+import com.syncnote.ai.config.AIProperties;
+import com.syncnote.ai.dto.AIJob;
+import com.syncnote.ai.dto.request.ChatRequest;
+import com.syncnote.ai.execution.AIExecutor;
+import com.syncnote.ai.execution.AIRequestCoalescer;
+import com.syncnote.ai.provider.AIMode;
+import com.syncnote.ai.provider.AIStreamHandle;
+import com.syncnote.ai.provider.AIStreamHandler;
+import com.syncnote.ai.provider.ProviderRegistry;
+import com.syncnote.ai.provider.impl.MockProvider;
+import com.syncnote.ai.rag.DocumentRetriever;
+import com.syncnote.ai.rag.DocumentVectorIndex;
+import com.syncnote.ai.rag.HashingEmbeddingModel;
+import com.syncnote.ai.routing.ProviderRouter;
+import com.syncnote.ai.service.impl.AIJobServiceImpl;
+import com.syncnote.ai.service.impl.AIServiceImpl;
+import com.syncnote.util.context.CurrentUserContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AIJobServiceImpl (in-memory store, Redis not configured)
+ */
+class AIJobServiceTest {
+
+    private AIJobServiceImpl jobService;
+
+    /**
+     * 放行之前模型不输出任何内容
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        AIProperties properties = new AIProperties();
+        AIProperties.ProviderConfig config = new AIProperties.ProviderConfig();
+        config.setEnabled(true);
+        config.setModelId("slow-model");
+        config.setParameters(Map.of("token-delay-ms", "0"));
+        MockProvider provider = new MockProvider(config) {
+            @Override
+            public AIStreamHandle generateStream(AIMode mode, String context, String message,
+                                                 AIStreamHandler handler) {
+                Thread worker = Thread.ofVirtual().start(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    super.generateStream(mode, context, message, handler);
+                });
+                return worker::interrupt;
+            }
+        };
+
+        ProviderRegistry registry = new ProviderRegistry(List.of(provider));
+        AIExecutor aiExecutor = new AIExecutor(properties, new SimpleMeterRegistry());
+        AIServiceImpl aiService = new AIServiceImpl(registry, aiExecutor,
+                new AIResponseCache(properties, new SimpleMeterRegistry()),
+                new AIRequestCoalescer(properties, new SimpleMeterRegistry()),
+                new ProviderRouter(properties, registry, aiExecutor, new SimpleMeterRegistry()),
+                new DocumentRetriever(properties, null, new DocumentVectorIndex(properties,
+                        new HashingEmbeddingModel(properties), new SimpleMeterRegistry())));
+        jobService = new AIJobServiceImpl(aiService, properties, new SimpleMeterRegistry());
+        CurrentUserContext.setUserId(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        CurrentUserContext.clear();
+    }
+
+    @Test
+    void testSubmitReturnsImmediatelyAndDeliversResult() throws Exception {
+        // 模型还没有输出时 submit 已经返回
+        AIJob submitted = jobService.submit(request("continue"));
+        assertEquals(AIJob.Status.RUNNING, submitted.getStatus());
+        assertEquals(AIJob.Status.RUNNING, jobService.get(submitted.getJobId()).getStatus());
+
+        CompletableFuture<AIJob> finished = new CompletableFuture<>();
+        jobService.subscribe(submitted.getJobId(), finished::complete);
+        release.countDown();
+
+        AIJob job = finished.get(5, TimeUnit.SECONDS);
+        assertEquals(AIJob.Status.SUCCEEDED, job.getStatus());
+        assertTrue(job.getText().contains("MOCK CONTINUE"));
+        // 重新订阅（断线重连）立即拿到结果
+        assertEquals(job.getText(), jobService.get(submitted.getJobId()).getText());
+    }
+
+    @Test
+    void testJobsAreVisibleOnlyToOwner() {
+        AIJob submitted = jobService.submit(request("continue"));
+
+        CurrentUserContext.setUserId(2L);
+        assertThrows(RuntimeException.class, () -> jobService.get(submitted.getJobId()));
+        assertThrows(RuntimeException.class, () -> jobService.cancel(submitted.getJobId()));
+
+        CurrentUserContext.setUserId(1L);
+        assertEquals(AIJob.Status.CANCELLED, jobService.cancel(submitted.getJobId()).getStatus());
+    }
+
+    private static ChatRequest request(String mode) {
+        ChatRequest request = new ChatRequest();
+        request.setModelId("slow-model");
+        request.setMode(mode);
+        request.setContext("A long document");
+        return request;
+    }
+}
@@ -1,16 +1,26 @@
 package com.syncnote.ai.service;
 
+import com.syncnote.ai.cache.AIResponseCache;
 import com.syncnote.ai.config.AIProperties;
 import com.syncnote.ai.dto.request.ChatRequest;
 import com.syncnote.ai.dto.response.ChatResponse;
+import com.syncnote.ai.dto.AIResult;
 import com.syncnote.ai.dto.ModelInfo;
+import com.syncnote.ai.execution.AIExecutor;
+import com.syncnote.ai.execution.AIRequestCoalescer;
 import com.syncnote.ai.provider.impl.MockProvider;
 import com.syncnote.ai.provider.ProviderRegistry;
+import com.syncnote.ai.rag.DocumentRetriever;
+import com.syncnote.ai.rag.DocumentVectorIndex;
+import com.syncnote.ai.rag.HashingEmbeddingModel;
+import com.syncnote.ai.routing.ProviderRouter;
 import com.syncnote.ai.service.impl.AIServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,7 +42,13 @@ class AiServiceTest {
 
         MockProvider mockProvider = new MockProvider(AIProperties);
         ProviderRegistry providerRegistry = new ProviderRegistry(List.of(mockProvider));
-        aiService = new AIServiceImpl(providerRegistry);
+        AIExecutor aiExecutor = new AIExecutor(AIProperties, new SimpleMeterRegistry());
+        aiService = new AIServiceImpl(providerRegistry, aiExecutor,
+                new AIResponseCache(AIProperties, new SimpleMeterRegistry()),
+                new AIRequestCoalescer(AIProperties, new SimpleMeterRegistry()),
+                new ProviderRouter(AIProperties, providerRegistry, aiExecutor, new SimpleMeterRegistry()),
+                new DocumentRetriever(AIProperties, null, new DocumentVectorIndex(AIProperties,
+                        new HashingEmbeddingModel(AIProperties), new SimpleMeterRegistry())));
     }
 
     @Test
@@ -48,6 +64,10 @@ class AiServiceTest {
         assertNotNull(response);
         assertNotNull(response.getMessage());
         assertTrue(response.getMessage().contains("MOCK CONTINUE"));
+        // 响应带上模型调用的元数据
+        assertNotNull(response.getProviderId());
+        assertEquals("test-model", response.getModelId());
+        assertTrue(response.getLatencyMs() >= 0);
     }
 
     @Test
@@ -141,4 +161,109 @@ class AiServiceTest {
         assertNotNull(response3);
         assertTrue(response3.getMessage().contains("MOCK QA"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testProcessChatCallsModelOnce() {
+        AIProperties.ProviderConfig config = new AIProperties.ProviderConfig();
+        config.setEnabled(true);
+        config.setModelId("counting-model");
+        AtomicInteger calls = new AtomicInteger();
+        MockProvider countingProvider = new MockProvider(config) {
+            @Override
+            public String rewriteContinue(String context, String prompt) {
+                calls.incrementAndGet();
+                return super.rewriteContinue(context, prompt);
+            }
+        };
+        AIServiceImpl service = newService(countingProvider);
+
+        ChatRequest request = new ChatRequest();
+        request.setModelId("counting-model");
+        request.setMode("continue");
+        request.setContext("context");
+
+        ChatResponse response = service.processChat(request, TEST_TOKEN);
+
+        assertEquals(1, calls.get());
+        assertEquals(response.getMessage(), response.getReply());
+    }
+
+    @Test
+    void testGenerateReportsMetadata() {
+        ChatRequest request = new ChatRequest();
+        request.setModelId("test-model");
+        request.setMode("qa");
+        request.setMessage("question");
+
+        AIResult result = aiService.generate(request);
+
+        assertTrue(result.getText().contains("MOCK QA"));
+        assertEquals("mock", result.getProviderId());
+        assertEquals("test-model", result.getModelId());
+        assertTrue(result.getLatencyMs() >= 0);
+    }
+
+    @Test
+    void testIdenticalPolishRequestsHitCache() {
+        AtomicInteger calls = new AtomicInteger();
+        AIServiceImpl service = newService(new MockProvider(countingConfig()) {
+            @Override
+            public String rewritePolish(String context, String prompt) {
+                calls.incrementAndGet();
+                return super.rewritePolish(context, prompt);
+            }
+        });
+
+        ChatRequest first = new ChatRequest();
+        first.setModelId("counting-model");
+        first.setMode("polish");
+        first.setContext("Text  to polish");
+        ChatRequest retry = new ChatRequest();
+        retry.setModelId("counting-model");
+        retry.setMode("rewrite-polish");
+        retry.setContext(" Text to polish\n");
+
+        assertEquals(service.generate(first).getText(), service.generate(retry).getText());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testContinueIsNotCachedByDefault() {
+        AtomicInteger calls = new AtomicInteger();
+        AIServiceImpl service = newService(new MockProvider(countingConfig()) {
+            @Override
+            public String rewriteContinue(String context, String prompt) {
+                calls.incrementAndGet();
+                return super.rewriteContinue(context, prompt);
+            }
+        });
+
+        ChatRequest request = new ChatRequest();
+        request.setModelId("counting-model");
+        request.setMode("continue");
+        request.setContext("context");
+
+        service.generate(request);
+        service.generate(request);
+        assertEquals(2, calls.get());
+    }
+
+    private static AIProperties.ProviderConfig countingConfig() {
+        AIProperties.ProviderConfig config = new AIProperties.ProviderConfig();
+        config.setEnabled(true);
+        config.setModelId("counting-model");
+        return config;
+    }
+
+    private static AIServiceImpl newService(MockProvider provider) {
+        AIProperties properties = new AIProperties();
+        ProviderRegistry registry = new ProviderRegistry(List.of(provider));
+        AIExecutor aiExecutor = new AIExecutor(properties, new SimpleMeterRegistry());
+        return new AIServiceImpl(registry, aiExecutor,
+                new AIResponseCache(properties, new SimpleMeterRegistry()),
+                new AIRequestCoalescer(properties, new SimpleMeterRegistry()),
+                new ProviderRouter(properties, registry, aiExecutor, new SimpleMeterRegistry()),
+                new DocumentRetriever(properties, null, new DocumentVectorIndex(properties,
+                        new HashingEmbeddingModel(properties), new SimpleMeterRegistry())));
+    }
+}
@@ -48,7 +48,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
             if (token != null && !token.isEmpty()) {
                 try {
-                    Long userId = jwtUtil.getUserId(token);
+                    // 签名、有效期和登录状态都校验；同一会话的后续请求命中本地缓存
+                    Long userId = jwtUtil.verify(token);
                     if (userId != null) {
                         // 写入当前线程上下文，供业务使用
                         CurrentUserContext.setUserId(userId);
@@ -59,6 +60,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                         SecurityContextHolder.getContext().setAuthentication(authentication);
 
                         logger.debug("JWT authentication succeeded for userId={}", userId);
+                    } else {
+                        logger.debug("JWT token is invalid, expired or logged out");
                     }
                 } catch (Exception ex) {
                     // 记录失败原因，便于排查 token 解析或签名问题
@@ -26,8 +26,9 @@ CREATE TABLE IF NOT EXISTS `document` (
     `created_by` BIGINT DEFAULT NULL COMMENT '创建者',
     `updated_by` BIGINT DEFAULT NULL COMMENT '更新者',
     PRIMARY KEY (`id`),
-    KEY `idx_owner_id` (`owner_id`),
-    KEY `idx_parent_id` (`parent_id`)
+    -- 文档列表中"自己创建的文档"一路按 (updated_at, id) 或 (created_at, id) 游标分页，按索引顺序读取
+    KEY `idx_owner_updated` (`owner_id`, `updated_at`, `id`),
+    KEY `idx_owner_created` (`owner_id`, `created_at`, `id`)
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 3. 文档协作表
@@ -38,5 +39,19 @@ CREATE TABLE IF NOT EXISTS `document_collaborator` (
                                                        `permission` VARCHAR(20) DEFAULT 'READ' COMMENT '权限(WRITE/READ)',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     PRIMARY KEY (`id`),
-    UNIQUE KEY `uk_doc_user` (`document_id`, `user_id`)
-    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
\ No newline at end of file
+    UNIQUE KEY `uk_doc_user` (`document_id`, `user_id`),
+    -- 文档列表中"共享给我的文档"一路从协作表出发联表查询，覆盖 user_id 过滤、document_id 关联和 permission 投影
+    KEY `idx_user_doc_perm` (`user_id`, `document_id`, `permission`)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 4. 文档内容分块表(Yjs 状态: chunk_index=0 为快照, 之后为追加的增量)
+CREATE TABLE IF NOT EXISTS `document_chunk` (
+                                                `id` BIGINT NOT NULL COMMENT '主键ID(雪花算法)',
+                                                `document_id` BIGINT NOT NULL COMMENT '文档ID',
+                                                `chunk_index` INT NOT NULL DEFAULT 0 COMMENT '块序号',
+                                                `content` LONGTEXT NULL COMMENT 'Yjs 更新(Base64, 已废弃)',
+    `state` LONGBLOB NULL COMMENT 'Yjs 更新(二进制)',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_doc_chunk` (`document_id`, `chunk_index`)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,86 @@
+package com.syncnote.document.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 按文档统计本地连接数，只在 0 -> 1 时订阅、1 -> 0 时取消订阅
+ * 第一次订阅时 join 会等到订阅生效再返回（在锁外等待），之后发布的追赶请求的回复不会丢失
+ */
+public abstract class AbstractRoomMessageBus implements RoomMessageBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractRoomMessageBus.class);
+
+    /**
+     * 等待订阅生效的最长时间（毫秒）
+     */
+    private static final long SUBSCRIBE_TIMEOUT_MS = 3000;
+
+    private final Map<String, Integer> localSubscribers = new HashMap<>();
+
+    protected volatile RoomMessageListener listener;
+
+    @Override
+    public void setListener(RoomMessageListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean join(String docId) {
+        CompletableFuture<Void> subscribed;
+        synchronized (this) {
+            int count = localSubscribers.merge(docId, 1, Integer::sum);
+            if (count != 1) {
+                return false;
+            }
+            subscribed = doSubscribe(docId);
+        }
+        try {
+            subscribed.get(SUBSCRIBE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // 订阅仍可能稍后生效，只是这次追赶的回复可能收不到，客户端之后的同步会补齐
+            logger.warn("[RoomBus] 等待订阅生效超时或失败, docId={}: {}", docId, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void leave(String docId) {
+        if (!localSubscribers.containsKey(docId)) {
+            return;
+        }
+        Integer count = localSubscribers.computeIfPresent(docId, (k, c) -> c > 1 ? c - 1 : null);
+        if (count == null) {
+            doUnsubscribe(docId);
+        }
+    }
+
+    protected synchronized boolean isSubscribed(String docId) {
+        return localSubscribers.containsKey(docId);
+    }
+
+    protected void deliver(String docId, byte[] message) {
+        RoomMessageListener current = listener;
+        if (current != null) {
+            current.onRemoteMessage(docId, message);
+        }
+    }
+
+    /**
+     * 订阅该文档的消息
+     *
+     * @return 订阅生效后完成
+     */
+    protected abstract CompletableFuture<Void> doSubscribe(String docId);
+
+    protected abstract void doUnsubscribe(String docId);
+}
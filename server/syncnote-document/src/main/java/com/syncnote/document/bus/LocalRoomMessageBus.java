@@ -0,0 +1,50 @@
+package com.syncnote.document.bus;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的消息总线
+ * 单节点部署时使用（没有其他节点，发布等于空操作）；
+ * 测试中可以让多个实例共享同一个 Hub，模拟多个节点
+ */
+public class LocalRoomMessageBus extends AbstractRoomMessageBus {
+
+    /**
+     * 共享同一个 Hub 的实例互相可见
+     */
+    public static final class Hub {
+        private final Set<LocalRoomMessageBus> nodes = ConcurrentHashMap.newKeySet();
+    }
+
+    private final Hub hub;
+
+    public LocalRoomMessageBus() {
+        this(new Hub());
+    }
+
+    public LocalRoomMessageBus(Hub hub) {
+        this.hub = hub;
+        hub.nodes.add(this);
+    }
+
+    @Override
+    public void publish(String docId, byte[] message) {
+        for (LocalRoomMessageBus node : hub.nodes) {
+            if (node != this && node.isSubscribed(docId)) {
+                node.deliver(docId, message.clone());
+            }
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Void> doSubscribe(String docId) {
+        // 订阅关系由计数体现，publish 时按 isSubscribed 过滤
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    protected void doUnsubscribe(String docId) {
+    }
+}
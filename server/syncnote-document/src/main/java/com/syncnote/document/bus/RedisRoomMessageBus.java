@@ -0,0 +1,113 @@
+package com.syncnote.document.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 Redis Pub/Sub 的消息总线
+ * 每个文档一个频道（channelPrefix + docId），节点只在本地有该文档的连接时订阅，
+ * 因此消息只会发给真正需要的节点
+ * 消息格式：[16 字节节点 ID][y-websocket 消息]，节点据此忽略自己发布的消息
+ * 订阅是异步的，通过 SubscriptionListener 收到 Redis 的确认后才认为订阅生效
+ * 订阅容器是全局共用的 Bean，这里只增删本总线的频道监听
+ */
+public class RedisRoomMessageBus extends AbstractRoomMessageBus
+        implements MessageListener, SubscriptionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisRoomMessageBus.class);
+
+    private static final int NODE_ID_LENGTH = 16;
+
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisMessageListenerContainer container;
+    private final String channelPrefix;
+    private final byte[] nodeId;
+
+    /**
+     * 已发出订阅、还没收到确认的频道
+     */
+    private final Map<String, CompletableFuture<Void>> pendingSubscriptions = new ConcurrentHashMap<>();
+
+    public RedisRoomMessageBus(RedisConnectionFactory connectionFactory, RedisMessageListenerContainer container,
+                               String channelPrefix) {
+        this.connectionFactory = connectionFactory;
+        this.container = container;
+        this.channelPrefix = channelPrefix;
+        this.nodeId = randomNodeId();
+    }
+
+    @Override
+    public void publish(String docId, byte[] message) {
+        byte[] payload = new byte[NODE_ID_LENGTH + message.length];
+        System.arraycopy(nodeId, 0, payload, 0, NODE_ID_LENGTH);
+        System.arraycopy(message, 0, payload, NODE_ID_LENGTH, message.length);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.publish(channel(docId).getBytes(StandardCharsets.UTF_8), payload);
+        } catch (Exception e) {
+            // 总线不可用时只影响跨节点同步，本节点内的协作不受影响
+            logger.warn("[RoomBus] 发布房间消息失败, docId={}: {}", docId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        if (!channel.startsWith(channelPrefix)) {
+            return;
+        }
+        byte[] body = message.getBody();
+        if (body.length < NODE_ID_LENGTH || Arrays.equals(body, 0, NODE_ID_LENGTH, nodeId, 0, NODE_ID_LENGTH)) {
+            return;
+        }
+        deliver(channel.substring(channelPrefix.length()), Arrays.copyOfRange(body, NODE_ID_LENGTH, body.length));
+    }
+
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        CompletableFuture<Void> pending = pendingSubscriptions.remove(new String(channel, StandardCharsets.UTF_8));
+        if (pending != null) {
+            pending.complete(null);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Void> doSubscribe(String docId) {
+        CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        pendingSubscriptions.put(channel(docId), subscribed);
+        container.addMessageListener(this, new ChannelTopic(channel(docId)));
+        return subscribed;
+    }
+
+    @Override
+    protected void doUnsubscribe(String docId) {
+        pendingSubscriptions.remove(channel(docId));
+        container.removeMessageListener(this, new ChannelTopic(channel(docId)));
+    }
+
+    private String channel(String docId) {
+        return channelPrefix + docId;
+    }
+
+    private static byte[] randomNodeId() {
+        UUID uuid = UUID.randomUUID();
+        return ByteBuffer.allocate(NODE_ID_LENGTH)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+}
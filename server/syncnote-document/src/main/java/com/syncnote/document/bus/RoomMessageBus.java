@@ -0,0 +1,34 @@
+package com.syncnote.document.bus;
+
+/**
+ * 跨节点的协作房间消息总线
+ * 同一文档的用户可能连接在不同节点上，每个节点把本地收到的房间消息发布到总线，
+ * 只有本地有该文档连接的节点才会订阅并收到这些消息
+ */
+public interface RoomMessageBus {
+
+    /**
+     * 注册收到其他节点消息时的回调，每个节点只有一个（DocumentSyncHandler）
+     */
+    void setListener(RoomMessageListener listener);
+
+    /**
+     * 本地有一个连接加入房间；房间的第一个本地连接会订阅该文档的消息
+     *
+     * @return 是否是本节点第一次订阅该文档
+     */
+    boolean join(String docId);
+
+    /**
+     * 本地有一个连接离开房间；最后一个本地连接离开后取消订阅
+     */
+    void leave(String docId);
+
+    /**
+     * 把消息发布给其他订阅了该文档的节点（不会回到本节点）
+     *
+     * @param docId   文档Id
+     * @param message y-websocket 协议的原始消息
+     */
+    void publish(String docId, byte[] message);
+}
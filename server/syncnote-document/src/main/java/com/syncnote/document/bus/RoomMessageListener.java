@@ -0,0 +1,10 @@
+package com.syncnote.document.bus;
+
+/**
+ * 收到其他节点发布的房间消息
+ */
+@FunctionalInterface
+public interface RoomMessageListener {
+
+    void onRemoteMessage(String docId, byte[] message);
+}
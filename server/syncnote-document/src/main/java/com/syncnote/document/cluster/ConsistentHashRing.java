@@ -0,0 +1,63 @@
+package com.syncnote.document.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 一致性哈希环（不可变）
+ * 每个节点在环上放置 virtualNodes 个虚拟节点，key 归属顺时针方向的第一个虚拟节点；
+ * 节点加入或离开时，只有落在它相邻区间内的 key 会换归属（约 1/N）
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = Set.copyOf(new TreeSet<>(nodes));
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * key 所属的节点，环为空时返回 null
+     */
+    public String nodeFor(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.syncnote.document.cluster;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * 房间亲和握手拦截器
+ * 文档不归本节点承载时拒绝握手（421 Misdirected Request），并在响应头中给出正确的节点地址
+ * 浏览器的 WebSocket 不会跟随重定向，客户端应先通过 /api/documents/{id}/sync-node 查询节点再连接
+ */
+@Component
+public class RoomAffinityHandshakeInterceptor implements HandshakeInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomAffinityHandshakeInterceptor.class);
+
+    public static final String OWNER_HEADER = "X-SyncNote-Sync-Node";
+
+    // 421 Misdirected Request（HttpStatus 枚举中没有该值）
+    private static final int MISDIRECTED_REQUEST = 421;
+
+    @Autowired
+    private RoomAffinityService roomAffinityService;
+
+    @Override
+    public boolean beforeHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                                   @NonNull WebSocketHandler wsHandler, @NonNull Map<String, Object> attributes) {
+        String path = request.getURI().getPath();
+        String docId = path.substring(path.lastIndexOf('/') + 1);
+        if (docId.isEmpty() || roomAffinityService.isLocal(docId)) {
+            return true;
+        }
+        String owner = roomAffinityService.ownerOf(docId);
+        logger.debug("[Affinity] 文档 {} 由节点 {} 承载，拒绝握手", docId, owner);
+        response.setStatusCode(HttpStatusCode.valueOf(MISDIRECTED_REQUEST));
+        response.getHeaders().set(OWNER_HEADER, owner);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                               @NonNull WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.syncnote.document.cluster;
+
+import com.syncnote.document.config.DocumentWebSocketProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 文档房间的节点亲和路由
+ * 各节点定时把自己的地址写入 Redis 中的注册表（ZSET，score 为心跳时间），并用存活节点构建一致性哈希环，
+ * 每个文档的房间固定由环上对应的节点承载，同一文档的协作者连到同一个节点，不需要经过总线中转
+ * 节点加入或离开时只有约 1/N 的文档换节点；已建立的连接不会被迁移，
+ * 过渡期间由 RoomMessageBus 在新旧节点之间转发，客户端重连时自然落到新节点
+ * 未启用时所有文档都视为本地房间
+ */
+@Component
+public class RoomAffinityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomAffinityService.class);
+
+    @Autowired
+    private DocumentWebSocketProperties webSocketProperties;
+
+    @Autowired
+    private ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(List.of(), 0);
+
+    @PostConstruct
+    public void init() {
+        DocumentWebSocketProperties.Affinity affinity = webSocketProperties.getAffinity();
+        if (!affinity.isEnabled()) {
+            return;
+        }
+        if (!StringUtils.hasText(affinity.getAdvertisedUrl())) {
+            throw new IllegalStateException("启用房间亲和路由时必须配置 syncnote.document.websocket.affinity.advertised-url");
+        }
+        redisTemplate = new StringRedisTemplate(redisConnectionFactory.getObject());
+        // 先放入自己，注册表不可用时本节点仍然可以承载所有房间
+        ring = new ConsistentHashRing(List.of(affinity.getAdvertisedUrl()), affinity.getVirtualNodes());
+        heartbeat();
+    }
+
+    public boolean isEnabled() {
+        return webSocketProperties.getAffinity().isEnabled();
+    }
+
+    /**
+     * 承载该文档房间的节点地址，未启用时返回 null
+     */
+    public String ownerOf(String docId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return ring.nodeFor(docId);
+    }
+
+    /**
+     * 该文档的房间是否应由本节点承载
+     */
+    public boolean isLocal(String docId) {
+        String owner = ownerOf(docId);
+        return owner == null || owner.equals(webSocketProperties.getAffinity().getAdvertisedUrl());
+    }
+
+    /**
+     * 续约本节点并刷新存活节点列表，成员变化时重建哈希环
+     */
+    @Scheduled(fixedDelayString = "${syncnote.document.websocket.affinity.heartbeat-interval-ms:5000}")
+    public void heartbeat() {
+        if (!isEnabled() || redisTemplate == null) {
+            return;
+        }
+        DocumentWebSocketProperties.Affinity affinity = webSocketProperties.getAffinity();
+        String key = affinity.getRegistryKey();
+        long now = System.currentTimeMillis();
+        long expiredBefore = now - affinity.getNodeTtlMs();
+        try {
+            redisTemplate.opsForZSet().add(key, affinity.getAdvertisedUrl(), now);
+            redisTemplate.opsForZSet().removeRangeByScore(key, 0, expiredBefore);
+            Set<String> members = redisTemplate.opsForZSet().rangeByScore(key, expiredBefore, Double.MAX_VALUE);
+            if (members != null && !members.isEmpty() && !members.equals(ring.getNodes())) {
+                logger.info("[Affinity] 协同节点变化: {} -> {}", ring.getNodes(), members);
+                ring = new ConsistentHashRing(members, affinity.getVirtualNodes());
+            }
+        } catch (Exception e) {
+            // 沿用上一次的哈希环，等下一次心跳
+            logger.warn("[Affinity] 节点心跳失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!isEnabled() || redisTemplate == null) {
+            return;
+        }
+        try {
+            // 主动注销，其他节点下一次心跳即可接管，不必等待超时
+            redisTemplate.opsForZSet().remove(webSocketProperties.getAffinity().getRegistryKey(),
+                    webSocketProperties.getAffinity().getAdvertisedUrl());
+        } catch (Exception e) {
+            logger.warn("[Affinity] 注销节点失败: {}", e.getMessage());
+        }
+    }
+}
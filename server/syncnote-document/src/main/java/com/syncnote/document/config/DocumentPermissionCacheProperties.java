@@ -0,0 +1,34 @@
+package com.syncnote.document.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文档权限缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "syncnote.document.permission-cache")
+public class DocumentPermissionCacheProperties {
+
+    /**
+     * 是否启用；关闭后每次都查询数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * (用户, 文档) 权限的最大缓存条目数（按文档分组缓存，按组内用户数计入）
+     */
+    private long maxEntries = 100000;
+
+    /**
+     * 缓存有效期（秒）；失效通知丢失时，其他节点最多在这段时间内使用旧权限
+     */
+    private long ttlSeconds = 300;
+
+    /**
+     * 权限变化时通知其他节点清除缓存的 Redis 频道
+     */
+    private String invalidationChannel = "syncnote:permission:invalidated";
+}
@@ -0,0 +1,103 @@
+package com.syncnote.document.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文档协同状态的持久化配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "syncnote.document.persistence")
+public class DocumentPersistenceProperties {
+
+    /**
+     * 持久化模式，默认 delta
+     */
+    private Mode mode = Mode.DELTA;
+
+    /**
+     * 增量日志压缩配置
+     */
+    private Compaction compaction = new Compaction();
+
+    /**
+     * 写缓冲配置
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+
+    public enum Mode {
+        /**
+         * 每次保存都用完整状态覆盖 chunk 0
+         */
+        SNAPSHOT,
+        /**
+         * chunk 0 为快照，之后只把新增的编辑以增量的形式追加为新的 chunk，读取时合并
+         */
+        DELTA
+    }
+
+    @Data
+    public static class Compaction {
+
+        /**
+         * 是否启用后台压缩
+         */
+        private boolean enabled = true;
+
+        /**
+         * 两次扫描之间的间隔（毫秒）
+         */
+        private long intervalMs = 30000;
+
+        /**
+         * 增量行数达到该值时压缩
+         */
+        private long maxTailRows = 50;
+
+        /**
+         * 增量总字节数达到该值时压缩
+         */
+        private long maxTailBytes = 1024 * 1024;
+
+        /**
+         * 文档超过该时间（秒）没有新的增量时，只要还有增量就压缩
+         */
+        private long idleSeconds = 300;
+
+        /**
+         * 每轮最多压缩的文档数
+         */
+        private int maxDocumentsPerRun = 20;
+
+        /**
+         * 删除被取代的行时每批的数量
+         */
+        private int deleteBatchSize = 200;
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        /**
+         * 是否启用写缓冲；关闭后每次保存都同步落库
+         */
+        private boolean enabled = true;
+
+        /**
+         * 定时落库的间隔（毫秒）
+         */
+        private long flushIntervalMs = 2000;
+
+        /**
+         * 单个文档缓冲的字节数达到该值时立即落库
+         */
+        private long maxPendingBytes = 4 * 1024 * 1024;
+
+        /**
+         * 落库失败后的最大重试次数，超过后暂停重试，状态保留在内存中直到该文档下一次保存
+         */
+        private int maxFlushAttempts = 5;
+    }
+}
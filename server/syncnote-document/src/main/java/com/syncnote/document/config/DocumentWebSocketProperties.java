@@ -0,0 +1,68 @@
+package com.syncnote.document.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文档协同 WebSocket 配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "syncnote.document.websocket")
+public class DocumentWebSocketProperties {
+
+    /**
+     * 单条消息发送的最长耗时（毫秒），超过后认为客户端已经无法跟上，断开连接
+     */
+    private long sendTimeLimitMs = 10000;
+
+    /**
+     * 每个连接待发送消息的最大字节数，文档更新超出时断开连接
+     */
+    private int bufferSizeLimit = 1024 * 1024;
+
+    /**
+     * 待发送字节数超过该值后开始丢弃 Awareness（光标、在线状态）消息，优先保证文档更新送达
+     */
+    private int awarenessDropThreshold = 256 * 1024;
+
+    /**
+     * 房间亲和路由配置
+     */
+    private Affinity affinity = new Affinity();
+
+    @Data
+    public static class Affinity {
+
+        /**
+         * 是否启用：启用后每个文档的房间固定由一致性哈希选出的节点承载
+         */
+        private boolean enabled = false;
+
+        /**
+         * 本节点对外的 WebSocket 地址，例如 ws://10.0.0.5:8080，同时作为节点标识
+         */
+        private String advertisedUrl;
+
+        /**
+         * 每个节点在哈希环上的虚拟节点数
+         */
+        private int virtualNodes = 128;
+
+        /**
+         * Redis 中节点注册表（ZSET，score 为最后心跳时间）的 key
+         */
+        private String registryKey = "syncnote:ws:nodes";
+
+        /**
+         * 心跳间隔（毫秒）
+         */
+        private long heartbeatIntervalMs = 5000;
+
+        /**
+         * 超过该时间（毫秒）没有心跳的节点视为已下线
+         */
+        private long nodeTtlMs = 15000;
+    }
+}
@@ -0,0 +1,33 @@
+package com.syncnote.document.config;
+
+import com.syncnote.document.bus.LocalRoomMessageBus;
+import com.syncnote.document.bus.RedisRoomMessageBus;
+import com.syncnote.document.bus.RoomMessageBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 跨节点房间消息总线配置
+ * syncnote.document.bus.type = redis（默认，多节点部署）| local（单节点 / 测试）
+ */
+@Configuration
+public class RoomMessageBusConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "syncnote.document.bus", name = "type", havingValue = "redis", matchIfMissing = true)
+    public RoomMessageBus redisRoomMessageBus(RedisConnectionFactory redisConnectionFactory,
+                                              RedisMessageListenerContainer redisMessageListenerContainer,
+                                              @Value("${syncnote.document.bus.channel-prefix:syncnote:room:}") String channelPrefix) {
+        return new RedisRoomMessageBus(redisConnectionFactory, redisMessageListenerContainer, channelPrefix);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "syncnote.document.bus", name = "type", havingValue = "local")
+    public RoomMessageBus localRoomMessageBus() {
+        return new LocalRoomMessageBus();
+    }
+}
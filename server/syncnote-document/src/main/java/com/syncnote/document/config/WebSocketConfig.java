@@ -1,5 +1,7 @@
 package com.syncnote.document.config;
 
+import com.syncnote.document.cluster.RoomAffinityHandshakeInterceptor;
+import com.syncnote.document.handler.DocumentAuthHandshakeInterceptor;
 import com.syncnote.document.handler.DocumentSyncHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
@@ -14,10 +16,18 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private DocumentSyncHandler documentSyncHandler;
 
+    @Autowired
+    private RoomAffinityHandshakeInterceptor roomAffinityHandshakeInterceptor;
+
+    @Autowired
+    private DocumentAuthHandshakeInterceptor documentAuthHandshakeInterceptor;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         // 映射路径，并允许跨域（重要：开发环境 *）
         registry.addHandler(documentSyncHandler, "/ws/document/{docId}")
+                // 先判断节点归属（不访问数据库），再鉴权
+                .addInterceptors(roomAffinityHandshakeInterceptor, documentAuthHandshakeInterceptor)
                 .setAllowedOrigins("*");
     }
 }
@@ -1,11 +1,16 @@
 package com.syncnote.document.controller;
 
+import com.syncnote.document.cluster.RoomAffinityService;
 import com.syncnote.document.dto.request.CreateDocumentRequestDTO;
+import com.syncnote.document.dto.request.DocumentListQueryDTO;
 import com.syncnote.document.dto.request.GetDocumentDetailBase64State;
 import com.syncnote.document.dto.response.DocumentDetailDTO;
 import com.syncnote.document.dto.response.DocumentDTO;
+import com.syncnote.document.dto.response.DocumentPageDTO;
 import com.syncnote.util.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import com.syncnote.document.service.IDocumentService;
@@ -20,13 +25,18 @@ public class DocumentController {
     @Autowired
     private IDocumentService documentService;
 
+    @Autowired
+    private RoomAffinityService roomAffinityService;
+
     /**
-     * 3.1 获取文档列表
+     * 3.1 获取文档列表（游标分页）
+     * 支持 cursor、limit、sort(updatedAt/createdAt)、order(desc/asc)、fileType、parentId 查询参数
      */
     @GetMapping
-    public ApiResponse<List<DocumentDTO>> getDocumentList(@RequestHeader("Authorization") String authHeader) {
+    public ApiResponse<DocumentPageDTO> getDocumentList(DocumentListQueryDTO query,
+                                                        @RequestHeader("Authorization") String authHeader) {
         String token = authHeader.replace("Bearer", "").trim();
-        List<DocumentDTO> documents = documentService.getDocumentList(token);
+        DocumentPageDTO documents = documentService.getDocumentList(query, token);
         return ApiResponse.succeed(documents, "获取文档列表成功");
     }
 
@@ -72,6 +82,26 @@ public class DocumentController {
         return ApiResponse.succeed("保存Y.js的二进制状态成功");
     }
 
+    // 获取 Yjs 二进制状态（原始字节）
+    @GetMapping(value = "/{id}/state/binary", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getDocumentStateBinary(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(documentService.getDocumentBinaryStateBytes(id));
+    }
+
+    // 保存 Yjs 二进制状态（原始字节）
+    @PostMapping(value = "/{id}/state/binary", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ApiResponse<Void> saveDocumentStateBinary(@PathVariable("id") Long id,
+                                                     @RequestBody byte[] state) {
+        documentService.saveDocumentBinaryState(id, state);
+        return ApiResponse.succeed("保存Y.js的二进制状态成功");
+    }
+
+    // 查询承载该文档协同房间的节点地址（未启用房间亲和路由时返回 null，连接任意节点即可）
+    @GetMapping("/{id}/sync-node")
+    public ApiResponse<String> getSyncNode(@PathVariable("id") Long id) {
+        return ApiResponse.succeed(roomAffinityService.ownerOf(String.valueOf(id)), "获取协同节点成功");
+    }
+
     /**
      * 3.5 删除文档（软删除）
      * 只有文档拥有者才能删除文档，删除后文档状态变为Deleted（放入回收站）
@@ -0,0 +1,41 @@
+package com.syncnote.document.dto.request;
+
+import lombok.Data;
+
+/**
+ * 文档列表查询参数
+ * 按 (排序字段, id) 游标分页：首页不传 cursor，之后传上一页返回的 nextCursor
+ */
+@Data
+public class DocumentListQueryDTO {
+
+    /**
+     * 上一页返回的游标（可选）
+     */
+    private String cursor;
+
+    /**
+     * 每页条数（可选），默认 50，最大 200
+     */
+    private Integer limit;
+
+    /**
+     * 排序字段：updatedAt（默认）| createdAt
+     */
+    private String sort;
+
+    /**
+     * 排序方向：desc（默认）| asc
+     */
+    private String order;
+
+    /**
+     * 按文件类型过滤（可选）
+     */
+    private String fileType;
+
+    /**
+     * 按父目录过滤（可选）
+     */
+    private Long parentId;
+}
@@ -0,0 +1,20 @@
+package com.syncnote.document.dto.response;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * 文档增量日志（chunk_index > 0 的行）的统计信息，用于挑选需要压缩的文档
+ */
+@Data
+public class DocumentChunkTailStat {
+
+    private Long documentId;
+
+    private Long tailRows;
+
+    private Long tailBytes;
+
+    private Instant lastUpdatedAt;
+}
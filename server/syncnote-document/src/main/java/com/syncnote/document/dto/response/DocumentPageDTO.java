@@ -0,0 +1,15 @@
+package com.syncnote.document.dto.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 文档列表分页响应DTO
+ */
+@Data
+public class DocumentPageDTO {
+    private List<DocumentDTO> items;
+    private String nextCursor;         // 下一页的游标，没有更多时为null
+    private Boolean hasMore;
+}
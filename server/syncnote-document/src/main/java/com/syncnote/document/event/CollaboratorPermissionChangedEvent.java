@@ -0,0 +1,16 @@
+package com.syncnote.document.event;
+
+import com.syncnote.document.model.DocumentCollaborator;
+
+/**
+ * 协作者权限变化事件（添加、移除、修改权限）
+ * 在线的协同连接据此刷新握手时缓存的权限
+ *
+ * @param documentId 文档ID
+ * @param userId     协作者用户ID
+ * @param permission 新的权限，被移除时为 null
+ */
+public record CollaboratorPermissionChangedEvent(Long documentId,
+                                                 Long userId,
+                                                 DocumentCollaborator.Permission permission) {
+}
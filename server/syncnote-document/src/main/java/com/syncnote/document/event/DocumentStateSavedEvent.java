@@ -0,0 +1,10 @@
+package com.syncnote.document.event;
+
+/**
+ * 文档状态保存事件
+ * 开启写缓冲时事件发出时可能尚未落库，监听方应通过 loadDocumentState 读取（会合并缓冲中的内容）
+ *
+ * @param documentId 文档ID
+ */
+public record DocumentStateSavedEvent(Long documentId) {
+}
@@ -0,0 +1,72 @@
+package com.syncnote.document.handler;
+
+import com.syncnote.document.model.DocumentCollaborator;
+import com.syncnote.document.service.IDocumentService;
+import com.syncnote.util.JWT.JWTUtil;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * 协同连接的鉴权握手拦截器
+ * JwtRequestFilter 不处理 /ws/ 路径，这里在握手时校验一次 token（浏览器的 WebSocket 无法设置请求头，从 ?token= 读取），
+ * 并解析该用户对文档的权限，放入会话属性供 DocumentSyncHandler 使用
+ * 没有读权限时直接拒绝握手
+ */
+@Component
+public class DocumentAuthHandshakeInterceptor implements HandshakeInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentAuthHandshakeInterceptor.class);
+
+    @Autowired
+    private JWTUtil jwtUtil;
+
+    @Autowired
+    private IDocumentService documentService;
+
+    @Override
+    public boolean beforeHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                                   @NonNull WebSocketHandler wsHandler, @NonNull Map<String, Object> attributes) {
+        String path = request.getURI().getPath();
+        Long docId;
+        try {
+            docId = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+        } catch (NumberFormatException e) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+
+        String token = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("token");
+        if (token == null || token.isEmpty() || jwtUtil.IsTokenInvalidOrInactive(token)) {
+            logger.debug("[WebSocket] 握手 token 无效, docId={}", docId);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        Long userId = jwtUtil.getUserId(token);
+
+        DocumentCollaborator.Permission permission = documentService.getDocumentPermission(docId, userId);
+        if (permission == null || !permission.canRead()) {
+            logger.debug("[WebSocket] 用户无权访问文档, userId={}, docId={}", userId, docId);
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+
+        attributes.put(SessionPrincipal.ATTRIBUTE, new SessionPrincipal(userId, permission));
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                               @NonNull WebSocketHandler wsHandler, Exception exception) {
+    }
+}
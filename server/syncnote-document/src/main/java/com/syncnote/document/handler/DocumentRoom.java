@@ -0,0 +1,120 @@
+package com.syncnote.document.handler;
+
+import com.syncnote.document.yjs.YUpdates;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 一个文档的协作房间
+ * 保存在线连接（各自的发送队列）以及服务端权威的 Yjs 文档状态（以合并后的更新形式保存）
+ * 新收到的增量更新先追加到 pending，达到阈值或需要计算差量时再统一合并，避免每次按键都做 O(文档大小) 的合并
+ */
+public class DocumentRoom {
+
+    /**
+     * pending 中累计多少条增量后触发一次合并
+     */
+    private static final int MAX_PENDING_UPDATES = 64;
+
+    private final String docId;
+    private final Map<String, SessionSendQueue> sessions = new ConcurrentHashMap<>();
+
+    private byte[] state = YUpdates.EMPTY_UPDATE;
+    private final List<byte[]> pending = new ArrayList<>();
+    private boolean loaded = false;
+
+    public DocumentRoom(String docId) {
+        this.docId = docId;
+    }
+
+    public String getDocId() {
+        return docId;
+    }
+
+    public Collection<SessionSendQueue> getSessions() {
+        return sessions.values();
+    }
+
+    public SessionSendQueue getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public void addSession(SessionSendQueue session) {
+        sessions.put(session.getId(), session);
+    }
+
+    public void removeSession(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    /**
+     * 首次使用时从持久化层加载初始状态，只执行一次
+     */
+    public synchronized void ensureLoaded(Supplier<byte[]> loader) {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        byte[] persisted = loader.get();
+        if (!YUpdates.isEmpty(persisted)) {
+            pending.addFirst(persisted);
+            compact();
+        }
+    }
+
+    /**
+     * 应用一条来自客户端的增量更新
+     */
+    public synchronized void applyUpdate(byte[] update) {
+        if (YUpdates.isEmpty(update)) {
+            return;
+        }
+        pending.add(update);
+        if (pending.size() >= MAX_PENDING_UPDATES) {
+            compact();
+        }
+    }
+
+    /**
+     * 服务端当前的状态向量，用于向新连接发送 SyncStep1
+     */
+    public synchronized byte[] encodeStateVector() {
+        compact();
+        return YUpdates.encodeStateVectorFromUpdate(state);
+    }
+
+    /**
+     * 根据客户端的状态向量计算它缺失的部分（SyncStep2 的内容）
+     */
+    public synchronized byte[] diff(byte[] clientStateVector) {
+        compact();
+        return YUpdates.diffUpdate(state, clientStateVector);
+    }
+
+    /**
+     * 当前完整状态（合并后的更新）
+     */
+    public synchronized byte[] snapshot() {
+        compact();
+        return state;
+    }
+
+    private void compact() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<byte[]> updates = new ArrayList<>(pending.size() + 1);
+        updates.add(state);
+        updates.addAll(pending);
+        state = YUpdates.mergeUpdates(updates);
+        pending.clear();
+    }
+}
@@ -1,6 +1,24 @@
 package com.syncnote.document.handler;
 
+import com.syncnote.document.bus.RoomMessageBus;
+import com.syncnote.document.config.DocumentWebSocketProperties;
+import com.syncnote.document.event.CollaboratorPermissionChangedEvent;
+import com.syncnote.document.model.DocumentCollaborator;
+import com.syncnote.document.service.IDocumentService;
+import com.syncnote.document.yjs.Lib0Decoder;
+import com.syncnote.document.yjs.Lib0Encoder;
+import com.syncnote.document.yjs.YSyncProtocol;
+import com.syncnote.document.yjs.YUpdates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
@@ -8,24 +26,125 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.BinaryWebSocketHandler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
 
+/**
+ * 文档协同 WebSocket 处理器（y-websocket 协议）
+ * 服务端为每个文档维护一份权威的 Yjs 状态：
+ * 1. 新连接建立时主动发送 SyncStep1（服务端状态向量），客户端回 SyncStep2 补齐服务端缺失的内容
+ * 2. 客户端发来 SyncStep1 时，直接按其状态向量回复最小差量的 SyncStep2，不再广播给其他人
+ * 3. SyncStep2 / Update 合并进房间状态后，以 Update 的形式转发给房间内其他人
+ * 4. Awareness 等其他消息原样转发
+ * 所有发送都经过每个连接自己的发送队列（SessionSendQueue），慢客户端只会拖慢或断开自己
+ * 多节点部署时，房间消息通过 RoomMessageBus 转发给同样有该文档连接的其他节点：
+ * 节点上的第一个连接加入时，向其他节点发送 SyncStep1，其他节点以 Update 回复本节点缺失的内容
+ * 权限在握手时由 DocumentAuthHandshakeInterceptor 解析一次（SessionPrincipal），只读用户的写入消息直接丢弃；
+ * 协作者权限变化时更新在线连接缓存的权限，并通过总线通知其他节点
+ */
 @Component
 public class DocumentSyncHandler extends BinaryWebSocketHandler {
 
-    // 内存中维护在线状态：key 是 docId, value 是该文档的所有在线 Session
-    private static final Map<String, Set<WebSocketSession>> documentSessions = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(DocumentSyncHandler.class);
+
+    // 内存中维护在线状态：key 是 docId, value 是该文档的协作房间
+    private static final Map<String, DocumentRoom> documentRooms = new ConcurrentHashMap<>();
+
+    /**
+     * 节点间的权限变化通知：[100][userId varUint][权限 varUint，0 表示移除，否则为 ordinal + 1]
+     * 只在总线上传递，不会发给客户端；客户端发来的同类消息直接丢弃
+     */
+    private static final int MESSAGE_PERMISSION_CHANGED = 100;
+
+    @Autowired
+    private IDocumentService documentService;
+
+    @Autowired
+    private DocumentWebSocketProperties webSocketProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RoomMessageBus roomMessageBus;
+
+    /**
+     * 发送队列的执行器：每次排空队列占用一个虚拟线程，阻塞在慢连接上的代价很低
+     */
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Counter droppedAwareness;
+
+    @PostConstruct
+    public void init() {
+        roomMessageBus.setListener(this::onRemoteMessage);
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        droppedAwareness = Counter.builder("syncnote.ws.outbound.dropped")
+                .description("因积压被丢弃的 Awareness 消息数")
+                .register(meterRegistry);
+        Gauge.builder("syncnote.ws.outbound.queue.depth", documentRooms,
+                        rooms -> sumQueues(rooms, SessionSendQueue::getQueuedMessages))
+                .description("所有连接待发送的消息数")
+                .register(meterRegistry);
+        Gauge.builder("syncnote.ws.outbound.queue.bytes", documentRooms,
+                        rooms -> sumQueues(rooms, SessionSendQueue::getQueuedBytes))
+                .description("所有连接待发送的字节数")
+                .register(meterRegistry);
+        Gauge.builder("syncnote.ws.outbound.queue.max.bytes", documentRooms,
+                        rooms -> rooms.values().stream()
+                                .flatMap(room -> room.getSessions().stream())
+                                .mapToLong(SessionSendQueue::getQueuedBytes)
+                                .max().orElse(0))
+                .description("积压最多的单个连接待发送的字节数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
 
     @Override
-    public void afterConnectionEstablished(@NonNull WebSocketSession session) {
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws IOException {
         String docId = extractDocId(session);
-        if (docId != null) {
-            documentSessions.computeIfAbsent(docId, k -> ConcurrentHashMap.newKeySet()).add(session);
-            System.out.println("[WebSocket] 用户连接文档: " + docId + ", 当前房间人数: " + documentSessions.get(docId).size());
+        if (docId == null) {
+            return;
         }
+        if (getPrincipal(session) == null) {
+            // 未经过鉴权握手的连接
+            session.close(CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        SessionSendQueue outbound = new SessionSendQueue(session, sendExecutor,
+                webSocketProperties.getSendTimeLimitMs(),
+                webSocketProperties.getBufferSizeLimit(),
+                webSocketProperties.getAwarenessDropThreshold());
+        DocumentRoom room = documentRooms.compute(docId, (k, r) -> {
+            DocumentRoom target = r != null ? r : new DocumentRoom(k);
+            target.addSession(outbound);
+            return target;
+        });
+        // 先订阅再加载，加载期间其他节点发来的更新也会进入房间状态
+        boolean firstOnNode = roomMessageBus.join(docId);
+        room.ensureLoaded(() -> loadPersistedState(docId));
+        logger.info("[WebSocket] 用户连接文档: {}, 当前房间人数: {}", docId, room.getSessions().size());
+
+        if (firstOnNode) {
+            // 向其他节点索要尚未落库的内容
+            roomMessageBus.publish(docId, YSyncProtocol.encodeSyncStep1(room.encodeStateVector()));
+        }
+
+        // 主动发送服务端的状态向量，让客户端补齐服务端缺失的内容
+        outbound.send(new BinaryMessage(YSyncProtocol.encodeSyncStep1(room.encodeStateVector())));
     }
 
     @Override
@@ -33,30 +152,236 @@ public class DocumentSyncHandler extends BinaryWebSocketHandler {
         String docId = extractDocId(session);
         if (docId == null) return;
 
-        Set<WebSocketSession> sessions = documentSessions.get(docId);
-        if (sessions != null) {
-            // 广播：将收到的 Yjs 二进制更新发送给房间内除自己外的所有人
-            for (WebSocketSession s : sessions) {
-                if (s.isOpen() && !s.getId().equals(session.getId())) {
-                    s.sendMessage(message);
+        DocumentRoom room = documentRooms.get(docId);
+        if (room == null) return;
+        SessionSendQueue outbound = room.getSession(session.getId());
+        if (outbound == null) return;
+        SessionPrincipal principal = getPrincipal(session);
+        if (principal == null) return;
+
+        byte[] bytes = toBytes(message);
+        YSyncProtocol.Message decoded;
+        try {
+            decoded = YSyncProtocol.decode(bytes);
+        } catch (IllegalArgumentException e) {
+            logger.warn("[WebSocket] 无法解析的消息, docId={}, sessionId={}: {}", docId, session.getId(), e.getMessage());
+            return;
+        }
+
+        if (!decoded.isSync()) {
+            // Awareness 消息不影响文档内容，只读用户也可以发送，直接转发；积压时可以丢弃
+            if (decoded.isAwareness() || decoded.messageType() == YSyncProtocol.MESSAGE_QUERY_AWARENESS) {
+                broadcast(room, session.getId(), message, decoded.isAwareness());
+                roomMessageBus.publish(docId, bytes);
+            }
+            return;
+        }
+
+        if (decoded.isDocumentWrite() && YUpdates.isEmpty(decoded.payload())) {
+            // y-websocket 连接时总会回复一个空的 SyncStep2，不包含任何写入，只读用户发送也不算越权
+            return;
+        }
+
+        if (decoded.isDocumentWrite() && !principal.canWrite()) {
+            // 只读用户的写入直接丢弃，只提醒客户端一次
+            if (principal.markWriteDeniedNotified()) {
+                outbound.send(new BinaryMessage(YSyncProtocol.encodePermissionDenied("没有写文件权限")));
+            }
+            return;
+        }
+
+        switch (decoded.syncType()) {
+            case YSyncProtocol.SYNC_STEP1 -> {
+                // 按客户端的状态向量回复它缺失的部分
+                byte[] diff = room.diff(decoded.payload());
+                outbound.send(new BinaryMessage(YSyncProtocol.encodeSyncStep2(diff)));
+            }
+            case YSyncProtocol.SYNC_STEP2, YSyncProtocol.SYNC_UPDATE -> {
+                byte[] update = decoded.payload();
+                if (!isWellFormed(update)) {
+                    logger.warn("[WebSocket] 丢弃格式错误的更新, docId={}, sessionId={}", docId, session.getId());
+                    return;
+                }
+                room.applyUpdate(update);
+                byte[] forward = YSyncProtocol.encodeUpdate(update);
+                broadcast(room, session.getId(), new BinaryMessage(forward), false);
+                roomMessageBus.publish(docId, forward);
+            }
+            default -> logger.debug("[WebSocket] 未知的同步消息类型: {}", decoded.syncType());
+        }
+    }
+
+    /**
+     * 处理其他节点经总线转发来的房间消息
+     */
+    private void onRemoteMessage(String docId, byte[] message) {
+        DocumentRoom room = documentRooms.get(docId);
+        if (room == null) return;
+
+        YSyncProtocol.Message decoded;
+        try {
+            decoded = YSyncProtocol.decode(message);
+        } catch (IllegalArgumentException e) {
+            logger.warn("[RoomBus] 无法解析的消息, docId={}: {}", docId, e.getMessage());
+            return;
+        }
+
+        if (decoded.messageType() == MESSAGE_PERMISSION_CHANGED) {
+            onRemotePermissionChanged(room, message);
+            return;
+        }
+
+        if (!decoded.isSync()) {
+            broadcast(room, null, new BinaryMessage(message), decoded.isAwareness());
+            return;
+        }
+
+        switch (decoded.syncType()) {
+            case YSyncProtocol.SYNC_STEP1 -> {
+                // 有节点刚加入该文档，把它缺失的部分发回总线
+                byte[] diff = room.diff(decoded.payload());
+                if (!YUpdates.isEmpty(diff)) {
+                    roomMessageBus.publish(docId, YSyncProtocol.encodeUpdate(diff));
                 }
             }
+            case YSyncProtocol.SYNC_STEP2, YSyncProtocol.SYNC_UPDATE -> {
+                byte[] update = decoded.payload();
+                if (YUpdates.isEmpty(update) || !isWellFormed(update)) {
+                    return;
+                }
+                room.applyUpdate(update);
+                broadcast(room, null, new BinaryMessage(YSyncProtocol.encodeUpdate(update)), false);
+            }
+            default -> logger.debug("[RoomBus] 未知的同步消息类型: {}", decoded.syncType());
+        }
+    }
+
+    /**
+     * 协作者权限变化：更新本节点的在线连接，并通知其他节点
+     */
+    @EventListener
+    public void onPermissionChanged(CollaboratorPermissionChangedEvent event) {
+        String docId = String.valueOf(event.documentId());
+        DocumentRoom room = documentRooms.get(docId);
+        if (room != null) {
+            applyPermission(room, event.userId(), event.permission());
+        }
+        Lib0Encoder encoder = new Lib0Encoder();
+        encoder.writeVarUint(MESSAGE_PERMISSION_CHANGED);
+        encoder.writeVarUint(event.userId());
+        encoder.writeVarUint(event.permission() == null ? 0 : event.permission().ordinal() + 1);
+        roomMessageBus.publish(docId, encoder.toByteArray());
+    }
+
+    private void onRemotePermissionChanged(DocumentRoom room, byte[] message) {
+        Lib0Decoder decoder = new Lib0Decoder(message);
+        decoder.readVarUint();
+        long userId = decoder.readVarUint();
+        int code = (int) decoder.readVarUint();
+        DocumentCollaborator.Permission[] values = DocumentCollaborator.Permission.values();
+        if (code > values.length) {
+            return;
+        }
+        applyPermission(room, userId, code == 0 ? null : values[code - 1]);
+    }
+
+    /**
+     * 更新该用户在房间内所有连接缓存的权限；失去读权限时断开连接
+     */
+    private void applyPermission(DocumentRoom room, Long userId, DocumentCollaborator.Permission permission) {
+        for (SessionSendQueue s : room.getSessions()) {
+            SessionPrincipal principal = getPrincipal(s.getSession());
+            if (principal == null || !principal.getUserId().equals(userId)) {
+                continue;
+            }
+            principal.setPermission(permission);
+            if (!principal.canRead()) {
+                logger.info("[WebSocket] 用户已失去文档访问权限，断开连接: userId={}, docId={}", userId, room.getDocId());
+                s.close(CloseStatus.POLICY_VIOLATION);
+            }
+        }
+    }
+
+    private static SessionPrincipal getPrincipal(WebSocketSession session) {
+        return (SessionPrincipal) session.getAttributes().get(SessionPrincipal.ATTRIBUTE);
+    }
+
+    /**
+     * 完整读一遍，提前拒绝格式错误的更新，避免污染房间状态
+     */
+    private boolean isWellFormed(byte[] update) {
+        try {
+            YUpdates.readDeleteSet(update);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
 
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
         String docId = extractDocId(session);
-        if (docId != null && documentSessions.containsKey(docId)) {
-            Set<WebSocketSession> sessions = documentSessions.get(docId);
-            sessions.remove(session);
-            if (sessions.isEmpty()) {
-                documentSessions.remove(docId);
+        if (docId != null) {
+            AtomicBoolean removed = new AtomicBoolean(false);
+            documentRooms.computeIfPresent(docId, (k, room) -> {
+                SessionSendQueue outbound = room.getSession(session.getId());
+                if (outbound != null) {
+                    outbound.close(status);
+                    room.removeSession(session.getId());
+                    removed.set(true);
+                }
+                return room.isEmpty() ? null : room;
+            });
+            if (removed.get()) {
+                roomMessageBus.leave(docId);
             }
-            System.out.println("[WebSocket] 用户离开文档: " + docId);
+            logger.info("[WebSocket] 用户离开文档: {}", docId);
         }
     }
 
+    /**
+     * 广播：放入房间内除发送者外所有人的发送队列，不在当前线程上发送
+     * 来自其他节点的消息 senderId 为 null，发给房间内所有人
+     */
+    private void broadcast(DocumentRoom room, String senderId, BinaryMessage message, boolean droppable) {
+        for (SessionSendQueue s : room.getSessions()) {
+            if (!s.isOpen() || s.getId().equals(senderId)) {
+                continue;
+            }
+            if (droppable) {
+                if (!s.sendDroppable(message)) {
+                    droppedAwareness.increment();
+                }
+            } else {
+                s.send(message);
+            }
+        }
+    }
+
+    private static double sumQueues(Map<String, DocumentRoom> rooms, ToLongFunction<SessionSendQueue> metric) {
+        return rooms.values().stream()
+                .flatMap(room -> room.getSessions().stream())
+                .mapToLong(metric)
+                .sum();
+    }
+
+    private byte[] loadPersistedState(String docId) {
+        try {
+            return documentService.loadDocumentState(Long.parseLong(docId));
+        } catch (Exception e) {
+            // 加载失败时以空状态启动，客户端的 SyncStep2 会把内容补齐
+            logger.warn("[WebSocket] 加载文档状态失败, docId={}: {}", docId, e.getMessage());
+            return YUpdates.EMPTY_UPDATE;
+        }
+    }
+
+    private byte[] toBytes(BinaryMessage message) {
+        ByteBuffer payload = message.getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return bytes;
+    }
+
     private String extractDocId(WebSocketSession session) {
         // 从路径中解析 docId: /ws/document/123 -> 123
         String path = Objects.requireNonNull(session.getUri()).getPath();
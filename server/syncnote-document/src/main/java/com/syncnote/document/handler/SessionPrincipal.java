@@ -0,0 +1,62 @@
+package com.syncnote.document.handler;
+
+import com.syncnote.document.model.DocumentCollaborator;
+
+/**
+ * 协同连接的身份与权限，在握手时解析一次并放入 WebSocket 会话属性
+ * 之后每条消息只读取这里缓存的权限，不再访问数据库；权限变化时由事件直接更新
+ */
+public class SessionPrincipal {
+
+    public static final String ATTRIBUTE = "syncnote.principal";
+
+    private final Long userId;
+
+    private volatile DocumentCollaborator.Permission permission;
+
+    /**
+     * 是否已经告知过客户端写入被拒绝，避免每条更新都回复一次
+     */
+    private volatile boolean writeDeniedNotified = false;
+
+    public SessionPrincipal(Long userId, DocumentCollaborator.Permission permission) {
+        this.userId = userId;
+        this.permission = permission;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public DocumentCollaborator.Permission getPermission() {
+        return permission;
+    }
+
+    public void setPermission(DocumentCollaborator.Permission permission) {
+        this.permission = permission;
+        this.writeDeniedNotified = false;
+    }
+
+    public boolean canRead() {
+        DocumentCollaborator.Permission p = permission;
+        return p != null && p.canRead();
+    }
+
+    public boolean canWrite() {
+        DocumentCollaborator.Permission p = permission;
+        return p != null && p.canWrite();
+    }
+
+    /**
+     * 标记已告知写入被拒绝
+     *
+     * @return 是否是第一次标记
+     */
+    public boolean markWriteDeniedNotified() {
+        if (writeDeniedNotified) {
+            return false;
+        }
+        writeDeniedNotified = true;
+        return true;
+    }
+}
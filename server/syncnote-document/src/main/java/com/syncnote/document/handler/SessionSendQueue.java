@@ -0,0 +1,186 @@
+package com.syncnote.document.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个 WebSocket 连接的异步发送队列
+ * 调用方只负责入队，实际发送在 executor 上串行执行，慢客户端不会阻塞接收线程和房间内的其他人
+ * 广播时同一个 BinaryMessage 会进入多个队列，发送时各自使用 payload 的只读副本：
+ * 容器写出时会移动 ByteBuffer 的 position/limit，多个连接并发发送同一个 buffer 会互相破坏
+ * 溢出策略：
+ * 1. 待发送字节数超过 awarenessDropThreshold 后，新的 Awareness 消息直接丢弃（下一次光标移动会再发）
+ * 2. 文档更新无法丢弃，超过 bufferSizeLimit 或单次发送超过 sendTimeLimit 时断开连接，
+ *    客户端重连后通过 SyncStep1/2 补齐缺失的内容
+ */
+public class SessionSendQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionSendQueue.class);
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final long sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final int awarenessDropThreshold;
+
+    private final Queue<BinaryMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedMessages = new AtomicInteger();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicLong droppedMessages = new AtomicLong();
+
+    /**
+     * 当前这条消息开始发送的时间，0 表示没有在发送
+     */
+    private volatile long sendStartTime = 0;
+    private volatile boolean closed = false;
+
+    public SessionSendQueue(WebSocketSession session, Executor executor,
+                            long sendTimeLimitMs, int bufferSizeLimit, int awarenessDropThreshold) {
+        this.session = session;
+        this.executor = executor;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.awarenessDropThreshold = awarenessDropThreshold;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    public boolean isOpen() {
+        return !closed && session.isOpen();
+    }
+
+    public int getQueuedMessages() {
+        return queuedMessages.get();
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    /**
+     * 入队一条文档消息（同步、更新），超出限制时断开连接
+     *
+     * @return 是否成功入队
+     */
+    public boolean send(BinaryMessage message) {
+        return enqueue(message, false);
+    }
+
+    /**
+     * 入队一条可丢弃的消息（Awareness），积压较多时直接丢弃
+     *
+     * @return 是否成功入队
+     */
+    public boolean sendDroppable(BinaryMessage message) {
+        return enqueue(message, true);
+    }
+
+    private boolean enqueue(BinaryMessage message, boolean droppable) {
+        if (!isOpen()) {
+            return false;
+        }
+        if (isSendTimeExceeded()) {
+            closeSlowSession("单条消息发送超过 " + sendTimeLimitMs + "ms");
+            return false;
+        }
+
+        int size = message.getPayloadLength();
+        long buffered = queuedBytes.get();
+        if (droppable && buffered + size > awarenessDropThreshold) {
+            droppedMessages.incrementAndGet();
+            return false;
+        }
+        if (buffered + size > bufferSizeLimit) {
+            closeSlowSession("待发送数据超过 " + bufferSizeLimit + " 字节");
+            return false;
+        }
+
+        queuedBytes.addAndGet(size);
+        queuedMessages.incrementAndGet();
+        queue.add(message);
+        scheduleDrain();
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            BinaryMessage message;
+            while (!closed && (message = queue.poll()) != null) {
+                queuedMessages.decrementAndGet();
+                queuedBytes.addAndGet(-message.getPayloadLength());
+                sendStartTime = System.currentTimeMillis();
+                try {
+                    session.sendMessage(new BinaryMessage(message.getPayload().asReadOnlyBuffer(), message.isLast()));
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("[WebSocket] 发送失败, sessionId={}: {}", session.getId(), e.getMessage());
+                    close(CloseStatus.SESSION_NOT_RELIABLE);
+                } finally {
+                    sendStartTime = 0;
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        // 退出循环与释放标记之间可能有新消息入队
+        if (!closed && !queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private boolean isSendTimeExceeded() {
+        long start = sendStartTime;
+        return start > 0 && System.currentTimeMillis() - start > sendTimeLimitMs;
+    }
+
+    private void closeSlowSession(String reason) {
+        logger.warn("[WebSocket] 客户端接收过慢，断开连接: sessionId={}, 原因: {}, 积压 {} 条 / {} 字节",
+                session.getId(), reason, queuedMessages.get(), queuedBytes.get());
+        close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    /**
+     * 关闭连接并清空队列
+     */
+    public void close(CloseStatus status) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        queuedMessages.set(0);
+        queuedBytes.set(0);
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            logger.debug("[WebSocket] 关闭连接失败, sessionId={}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
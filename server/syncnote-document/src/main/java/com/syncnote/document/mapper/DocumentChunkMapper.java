@@ -1,10 +1,35 @@
 package com.syncnote.document.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.syncnote.document.dto.response.DocumentChunkTailStat;
 import com.syncnote.document.model.DocumentChunk;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.Instant;
+import java.util.List;
 
 @Mapper
 public interface DocumentChunkMapper extends BaseMapper<DocumentChunk> {
 
+    // 查询增量行数、字节数或空闲时间超过阈值的文档，按增量行数倒序
+    List<DocumentChunkTailStat> selectCompactionCandidates(@Param("maxTailRows") long maxTailRows,
+                                                           @Param("maxTailBytes") long maxTailBytes,
+                                                           @Param("idleBefore") Instant idleBefore,
+                                                           @Param("limit") int limit);
+
+    // 查询当前库中某张表是否存在指定列
+    int countColumn(@Param("table") String table, @Param("column") String column);
+
+    // 旧表结构升级：增加二进制列 state，content 改为可空
+    void addStateColumn();
+
+    // 查询当前库中某张表是否存在指定索引
+    int countIndex(@Param("table") String table, @Param("index") String index);
+
+    // 查询 (document_id, chunk_index) 重复的行，每组保留 id 最小的一行，返回其余行
+    List<DocumentChunk> selectDuplicateChunks();
+
+    // 旧表结构升级：增加 (document_id, chunk_index) 唯一键
+    void addChunkUniqueKey();
 }
@@ -1,10 +1,33 @@
 package com.syncnote.document.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.syncnote.document.dto.response.DocumentDTO;
 import com.syncnote.document.model.Document;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.Instant;
+import java.util.List;
 
 @Mapper
 public interface DocumentMapper extends BaseMapper<Document> {
 
+    // 分页查询用户可访问（创建或协作）的未删除文档，创建的和共享的两路各取一页再合并；sortColumn 只能是 updated_at / created_at
+    List<DocumentDTO> selectAccessibleDocumentPage(@Param("userId") Long userId,
+                                                   @Param("fileType") String fileType,
+                                                   @Param("parentId") Long parentId,
+                                                   @Param("sortColumn") String sortColumn,
+                                                   @Param("ascending") boolean ascending,
+                                                   @Param("cursorValue") Instant cursorValue,
+                                                   @Param("cursorId") Long cursorId,
+                                                   @Param("limit") int limit);
+
+    // 查询当前库中某张表是否存在指定索引
+    int countIndex(@Param("table") String table, @Param("index") String index);
+
+    // 旧表结构升级：增加普通索引，table / index / columns 只能传代码中的常量
+    void addIndex(@Param("table") String table, @Param("index") String index, @Param("columns") String columns);
+
+    // 旧表结构升级：删除被新索引取代的索引
+    void dropIndex(@Param("table") String table, @Param("index") String index);
 }
@@ -16,8 +16,16 @@ public class DocumentChunk {
 
     private Integer chunkIndex;
 
+    /**
+     * 旧版本保存的 Base64 文本，迁移到 state 后置空
+     */
     private String content;
 
+    /**
+     * Yjs 更新的原始二进制（LONGBLOB）
+     */
+    private byte[] state;
+
     @TableField(fill = FieldFill.INSERT_UPDATE)
     private Instant updatedAt;
 }
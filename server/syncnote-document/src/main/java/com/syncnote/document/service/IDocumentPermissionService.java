@@ -0,0 +1,46 @@
+package com.syncnote.document.service;
+
+import com.syncnote.document.model.DocumentCollaborator;
+
+/**
+ * 文档权限查询
+ * 文档服务和协作者服务共用，结果按 (用户, 文档) 缓存，协作者变化、文档删除时失效（跨节点同步）
+ */
+public interface IDocumentPermissionService {
+
+    /**
+     * 用户在协作表中的权限，不校验文档状态
+     *
+     * @param docId  文档的Id
+     * @param userId 用户Id
+     * @return 权限，用户不是协作者时返回 null
+     */
+    DocumentCollaborator.Permission getCollaboratorPermission(Long docId, Long userId);
+
+    /**
+     * 查询未删除文档的拥有者
+     *
+     * @param docId 文档的Id
+     * @return 拥有者Id，文档不存在或已删除时返回 null
+     */
+    Long getActiveDocumentOwner(Long docId);
+
+    /**
+     * 用户对未删除文档的权限
+     *
+     * @param docId  文档的Id
+     * @param userId 用户Id
+     * @return 权限，文档不存在、已删除或用户不是协作者时返回 null
+     */
+    DocumentCollaborator.Permission getPermission(Long docId, Long userId);
+
+    /**
+     * 协作关系变化后调用，清除该用户对该文档的缓存
+     */
+    void evict(Long docId, Long userId);
+
+    /**
+     * 文档删除、恢复后调用，清除该文档的全部缓存
+     */
+    void evictDocument(Long docId);
+}
@@ -1,9 +1,12 @@
 package com.syncnote.document.service;
 
 import com.syncnote.document.dto.request.CreateDocumentRequestDTO;
+import com.syncnote.document.dto.request.DocumentListQueryDTO;
 import com.syncnote.document.dto.request.GetDocumentDetailBase64State;
 import com.syncnote.document.dto.response.DocumentDetailDTO;
 import com.syncnote.document.dto.response.DocumentDTO;
+import com.syncnote.document.dto.response.DocumentPageDTO;
+import com.syncnote.document.model.DocumentCollaborator;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -14,11 +17,12 @@ import java.util.List;
  */
 public interface IDocumentService {
     /**
-     * 获取文档列表
+     * 分页获取文档列表（自己创建的和参与协作的）
+     * @param query 分页、排序和过滤参数
      * @param token 用户认证令牌
-     * @return 文档列表
+     * @return 当前页的文档和下一页游标
      */
-    List<DocumentDTO> getDocumentList(String token);
+    DocumentPageDTO getDocumentList(DocumentListQueryDTO query, String token);
 
     /**
      * 根据ID获取文档详情
@@ -100,4 +104,56 @@ public interface IDocumentService {
      * @param docContent 修改后的Y.js的二进制信息
      */
     void saveDocumentBinaryState(Long docId, GetDocumentDetailBase64State docContent);
-}
\ No newline at end of file
+
+    /**
+     * 获取Y.js的二进制状态（原始字节，不经过 Base64）
+     *
+     * @param docId 文档的Id
+     * @return Y.js的二进制更新，没有内容时返回空数组
+     */
+    byte[] getDocumentBinaryStateBytes(Long docId);
+
+    /**
+     * 获取文档当前内容的纯文本（Markdown 文档渲染为 Markdown），同一版本的状态只解码一次
+     *
+     * @param docId 文档的Id
+     * @return 文档文本，没有内容时返回空字符串
+     */
+    String getDocumentText(Long docId);
+
+    /**
+     * 保存Y.js的二进制状态（原始字节，不经过 Base64）
+     *
+     * @param docId 文档的Id
+     * @param state 客户端的 Y.encodeStateAsUpdate 结果
+     */
+    void saveDocumentBinaryState(Long docId, byte[] state);
+
+    /**
+     * 读取文档当前的Y.js二进制状态
+     * 不做权限校验，仅供服务端内部使用（如 WebSocket 同步房间初始化）
+     *
+     * @param docId 文档的Id
+     * @return Y.js的二进制更新，不存在时返回空更新
+     */
+    byte[] loadDocumentState(Long docId);
+
+    /**
+     * 读取文档当前内容的纯文本
+     * 不做权限校验，仅供服务端内部使用（如 AI 问答的文档索引）
+     *
+     * @param docId 文档的Id
+     * @return 文档文本，没有内容时返回空字符串
+     */
+    String loadDocumentText(Long docId);
+
+    /**
+     * 查询用户对文档的权限
+     * 不依赖 CurrentUserContext，供 WebSocket 握手等没有请求上下文的场景使用
+     *
+     * @param docId  文档的Id
+     * @param userId 用户Id
+     * @return 权限，文档不存在、已删除或用户不是协作者时返回 null
+     */
+    DocumentCollaborator.Permission getDocumentPermission(Long docId, Long userId);
+}
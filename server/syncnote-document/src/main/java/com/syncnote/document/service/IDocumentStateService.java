@@ -0,0 +1,36 @@
+package com.syncnote.document.service;
+
+import java.util.List;
+
+/**
+ * 文档 Yjs 状态的存取（document_chunk 表）
+ * 不做权限校验，由调用方负责
+ */
+public interface IDocumentStateService {
+
+    /**
+     * 读取文档当前的完整状态：chunk 0 的快照与后续增量合并后的结果
+     *
+     * @param docId 文档Id
+     * @return Yjs 更新（V1 编码），没有内容时返回空更新
+     */
+    byte[] loadState(Long docId);
+
+    /**
+     * 保存客户端上传的完整状态，有新内容写入时同步更新文档的大小和修改时间
+     *
+     * @param docId 文档Id
+     * @param state 客户端的 Y.encodeStateAsUpdate 结果
+     * @return 是否真正写入了数据（状态没有变化时返回 false）
+     */
+    boolean saveState(Long docId, byte[] state);
+
+    /**
+     * 把文档的全部行合并为新的 chunk 0 快照
+     * 被取代的行不在本事务内删除（合并是幂等的，残留的行不影响读取），由调用方分批清理
+     *
+     * @param docId 文档Id
+     * @return 被取代的行ID，没有需要压缩的内容时返回空列表
+     */
+    List<Long> compact(Long docId);
+}
@@ -5,15 +5,15 @@ import com.syncnote.document.dto.request.AddCollaboratorRequestDTO;
 import com.syncnote.document.dto.request.UpdateCollaboratorPermissionRequestDTO;
 import com.syncnote.document.dto.response.CollaboratorResponseDTO;
 import com.syncnote.document.dto.response.UserSimpleInfo;
+import com.syncnote.document.event.CollaboratorPermissionChangedEvent;
 import com.syncnote.document.mapper.DocumentCollaboratorMapper;
-import com.syncnote.document.mapper.DocumentMapper;
-import com.syncnote.document.model.DocStatus;
-import com.syncnote.document.model.Document;
 import com.syncnote.document.model.DocumentCollaborator;
 import com.syncnote.util.context.CurrentUserContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import com.syncnote.document.service.ICollaboratorService;
+import com.syncnote.document.service.IDocumentPermissionService;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,7 +28,10 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
     private DocumentCollaboratorMapper documentCollaboratorMapper;
 
     @Autowired
-    private DocumentMapper documentMapper;
+    private IDocumentPermissionService permissionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<CollaboratorResponseDTO> getCollaborators(Long documentId, String token) {
@@ -38,22 +41,17 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         }
 
         // 验证文档是否存在且用户有权限查看（拥有者或协作者）
-        Document document = documentMapper.selectById(documentId);
-        if (document == null || DocStatus.Deleted.equals(document.getStatus())) {
+        Long ownerId = permissionService.getActiveDocumentOwner(documentId);
+        if (ownerId == null) {
             throw new RuntimeException("文档不存在");
         }
 
         // 检查用户是否有权限查看协作者列表（拥有者或协作者都可以查看）
         boolean hasPermission;
-        if (document.getOwnerId().equals(userId)) {
+        if (ownerId.equals(userId)) {
             hasPermission = true;
         } else {
-            DocumentCollaborator collaborator = documentCollaboratorMapper.selectOne(
-                    new QueryWrapper<DocumentCollaborator>()
-                            .eq("document_id", documentId)
-                            .eq("user_id", userId)
-            );
-            hasPermission = collaborator != null;
+            hasPermission = permissionService.getCollaboratorPermission(documentId, userId) != null;
         }
 
         if (!hasPermission) {
@@ -102,23 +100,18 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         }
 
         // 验证文档是否存在
-        Document document = documentMapper.selectById(documentId);
-        if (document == null || DocStatus.Deleted.equals(document.getStatus())) {
+        Long ownerId = permissionService.getActiveDocumentOwner(documentId);
+        if (ownerId == null) {
             throw new RuntimeException("文档不存在");
         }
 
         // 验证当前用户是否有权限添加协作者（只有文档拥有者或具有WRITE权限的协作者可以添加）
         boolean canAdd;
-        if (document.getOwnerId().equals(userId)) {
+        if (ownerId.equals(userId)) {
             canAdd = true;
         } else {
-            DocumentCollaborator currentUserCollaborator = documentCollaboratorMapper.selectOne(
-                    new QueryWrapper<DocumentCollaborator>()
-                            .eq("document_id", documentId)
-                            .eq("user_id", userId)
-            );
-            canAdd = currentUserCollaborator != null 
-                    && currentUserCollaborator.getPermission().canWrite();
+            DocumentCollaborator.Permission currentPermission = permissionService.getCollaboratorPermission(documentId, userId);
+            canAdd = currentPermission != null && currentPermission.canWrite();
         }
 
         if (!canAdd) {
@@ -137,7 +130,7 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         }
 
         // 不能将自己添加为协作者（如果已经是拥有者）
-        if (document.getOwnerId().equals(request.getUserId())) {
+        if (ownerId.equals(request.getUserId())) {
             throw new RuntimeException("文档拥有者不能添加为自己为协作者");
         }
 
@@ -153,6 +146,7 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         collaborator.setUserId(request.getUserId());
         collaborator.setPermission(permission);
         documentCollaboratorMapper.insert(collaborator);
+        eventPublisher.publishEvent(new CollaboratorPermissionChangedEvent(documentId, request.getUserId(), permission));
 
         // 查询用户名
         List<UserSimpleInfo> userInfoList = documentCollaboratorMapper.selectUserSimpleByIds(
@@ -186,23 +180,18 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         }
 
         // 验证文档是否存在
-        Document document = documentMapper.selectById(documentId);
-        if (document == null || DocStatus.Deleted.equals(document.getStatus())) {
+        Long ownerId = permissionService.getActiveDocumentOwner(documentId);
+        if (ownerId == null) {
             throw new RuntimeException("文档不存在");
         }
 
         // 验证当前用户是否有权限移除协作者（只有文档拥有者可以移除）
         boolean canRemove;
-        if (document.getOwnerId().equals(userId)) {
+        if (ownerId.equals(userId)) {
             canRemove = true;
         } else {
-            DocumentCollaborator currentUserCollaborator = documentCollaboratorMapper.selectOne(
-                    new QueryWrapper<DocumentCollaborator>()
-                            .eq("document_id", documentId)
-                            .eq("user_id", userId)
-            );
-            canRemove = currentUserCollaborator != null 
-                    && currentUserCollaborator.getPermission().isOwner();
+            DocumentCollaborator.Permission currentPermission = permissionService.getCollaboratorPermission(documentId, userId);
+            canRemove = currentPermission != null && currentPermission.isOwner();
         }
 
         if (!canRemove) {
@@ -222,6 +211,8 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
 
         // 删除协作者记录
         documentCollaboratorMapper.deleteById(collaboratorToRemove.getId());
+        // 通知在线的协同连接，被移除的用户会被断开
+        eventPublisher.publishEvent(new CollaboratorPermissionChangedEvent(documentId, userIdToRemove, null));
     }
 
     @Override
@@ -232,13 +223,13 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         }
 
         // 验证文档是否存在
-        Document document = documentMapper.selectById(documentId);
-        if (document == null || DocStatus.Deleted.equals(document.getStatus())) {
+        Long ownerId = permissionService.getActiveDocumentOwner(documentId);
+        if (ownerId == null) {
             throw new RuntimeException("文档不存在");
         }
 
         // 检查用户是否已经是文档拥有者
-        if (document.getOwnerId().equals(userId)) {
+        if (ownerId.equals(userId)) {
             throw new RuntimeException("文档拥有者无需加入协作者列表");
         }
 
@@ -259,6 +250,7 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         collaborator.setUserId(userId);
         collaborator.setPermission(DocumentCollaborator.Permission.READ);
         documentCollaboratorMapper.insert(collaborator);
+        eventPublisher.publishEvent(new CollaboratorPermissionChangedEvent(documentId, userId, collaborator.getPermission()));
 
         // 转换为DTO
         CollaboratorResponseDTO dto = new CollaboratorResponseDTO();
@@ -280,23 +272,18 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         }
 
         // 验证文档是否存在
-        Document document = documentMapper.selectById(documentId);
-        if (document == null || DocStatus.Deleted.equals(document.getStatus())) {
+        Long ownerId = permissionService.getActiveDocumentOwner(documentId);
+        if (ownerId == null) {
             throw new RuntimeException("文档不存在");
         }
 
         // 验证当前用户是否有权限更新协作者权限（只有文档拥有者或具有WRITE权限的协作者可以更新）
         boolean canUpdate;
-        if (document.getOwnerId().equals(userId)) {
+        if (ownerId.equals(userId)) {
             canUpdate = true;
         } else {
-            DocumentCollaborator currentUserCollaborator = documentCollaboratorMapper.selectOne(
-                    new QueryWrapper<DocumentCollaborator>()
-                            .eq("document_id", documentId)
-                            .eq("user_id", userId)
-            );
-            canUpdate = currentUserCollaborator != null 
-                    && DocumentCollaborator.Permission.OWNER.equals(currentUserCollaborator.getPermission());
+            DocumentCollaborator.Permission currentPermission = permissionService.getCollaboratorPermission(documentId, userId);
+            canUpdate = DocumentCollaborator.Permission.OWNER.equals(currentPermission);
         }
 
         if (!canUpdate) {
@@ -323,6 +310,8 @@ public class CollaboratorServiceImpl implements ICollaboratorService {
         // 更新权限
         collaboratorToUpdate.setPermission(newPermission);
         documentCollaboratorMapper.updateById(collaboratorToUpdate);
+        // 通知在线的协同连接刷新缓存的权限
+        eventPublisher.publishEvent(new CollaboratorPermissionChangedEvent(documentId, userIdToUpdate, newPermission));
 
         // 转换为DTO
         CollaboratorResponseDTO dto = new CollaboratorResponseDTO();
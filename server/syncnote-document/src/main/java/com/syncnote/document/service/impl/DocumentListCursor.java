@@ -0,0 +1,49 @@
+package com.syncnote.document.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * 文档列表的分页游标：上一页最后一条记录的 (排序字段, 排序值, id)
+ * 编码为 URL 安全的 Base64，客户端只需原样传回；排序字段一并编码，换了排序方式的旧游标会被拒绝
+ *
+ * @param sort  排序字段（列名）
+ * @param value 最后一条记录的排序值
+ * @param id    最后一条记录的文档ID
+ */
+record DocumentListCursor(String sort, Instant value, Long id) {
+
+    String encode() {
+        String raw = sort + ":" + value.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor       客户端传回的游标
+     * @param expectedSort 本次查询的排序字段
+     * @return 游标，cursor 为空时返回 null
+     */
+    static DocumentListCursor decode(String cursor, String expectedSort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        DocumentListCursor decoded;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            decoded = new DocumentListCursor(parts[0], Instant.ofEpochMilli(Long.parseLong(parts[1])), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // Base64 和数字格式错误（NumberFormatException 是其子类）统一按无效游标处理
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+        if (!decoded.sort().equals(expectedSort)) {
+            throw new IllegalArgumentException("分页游标与排序方式不匹配，请从第一页重新查询");
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,257 @@
+package com.syncnote.document.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syncnote.document.config.DocumentPermissionCacheProperties;
+import com.syncnote.document.event.CollaboratorPermissionChangedEvent;
+import com.syncnote.document.mapper.DocumentCollaboratorMapper;
+import com.syncnote.document.mapper.DocumentMapper;
+import com.syncnote.document.model.DocStatus;
+import com.syncnote.document.model.Document;
+import com.syncnote.document.model.DocumentCollaborator;
+import com.syncnote.document.service.IDocumentPermissionService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文档权限查询实现
+ * 两级本地缓存：文档 -> 未删除时的拥有者，文档 -> (用户 -> 协作表中的权限)，"无权限"也会缓存
+ * 权限按文档分组，整篇文档失效时只需清除一个条目；组内的 Map 不可变，修改时整体替换，
+ * 这样缓存能按组内的用户数重新计算权重，maxEntries 仍然限制的是 (文档, 用户) 条目数
+ * 失效方式：
+ * 1. 本节点修改后立即清除，事务结束后再清除一次，避免事务提交前被并发请求读回旧值
+ * 2. 通过 Redis 频道通知其他节点，消息为 "docId:userId"，整篇文档失效时为 "docId:*"
+ * 3. 通知丢失时缓存最多在 ttlSeconds 后过期
+ */
+@Service
+public class DocumentPermissionServiceImpl implements IDocumentPermissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentPermissionServiceImpl.class);
+
+    private static final String ALL_USERS = "*";
+
+    @Autowired
+    private DocumentMapper documentMapper;
+
+    @Autowired
+    private DocumentCollaboratorMapper documentCollaboratorMapper;
+
+    @Autowired
+    private DocumentPermissionCacheProperties properties;
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private Cache<Long, Map<Long, Optional<DocumentCollaborator.Permission>>> permissions;
+
+    private Cache<Long, Optional<Long>> activeOwners;
+
+    /**
+     * 每次失效加一；查询数据库期间发生过失效时不写缓存，防止旧结果覆盖刚清除的条目
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Duration ttl = Duration.ofSeconds(properties.getTtlSeconds());
+        this.permissions = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxEntries())
+                .weigher((Long docId, Map<Long, Optional<DocumentCollaborator.Permission>> users) ->
+                        Math.max(1, users.size()))
+                .expireAfterWrite(ttl)
+                .build();
+        this.activeOwners = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(ttl)
+                .build();
+
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // Redis 不可用时只影响跨节点失效，缓存仍会在 TTL 后过期
+        try {
+            listenerContainer.addMessageListener((message, pattern) ->
+                            onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(properties.getInvalidationChannel()));
+        } catch (Exception e) {
+            logger.warn("订阅文档权限失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public DocumentCollaborator.Permission getCollaboratorPermission(Long docId, Long userId) {
+        if (docId == null || userId == null) return null;
+        if (!properties.isEnabled()) {
+            return loadPermission(docId, userId);
+        }
+
+        Map<Long, Optional<DocumentCollaborator.Permission>> users = permissions.getIfPresent(docId);
+        Optional<DocumentCollaborator.Permission> cached = users == null ? null : users.get(userId);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        long version = invalidations.get();
+        DocumentCollaborator.Permission permission = loadPermission(docId, userId);
+        if (invalidations.get() == version) {
+            permissions.asMap().compute(docId, (id, current) -> {
+                Map<Long, Optional<DocumentCollaborator.Permission>> next =
+                        current == null ? new HashMap<>() : new HashMap<>(current);
+                next.put(userId, Optional.ofNullable(permission));
+                return Map.copyOf(next);
+            });
+            // 写入前后发生过失效时撤销，失效和写入的先后顺序不影响结果
+            if (invalidations.get() != version) {
+                removeUser(docId, userId);
+            }
+        }
+        return permission;
+    }
+
+    @Override
+    public Long getActiveDocumentOwner(Long docId) {
+        if (docId == null) return null;
+        if (!properties.isEnabled()) {
+            return loadActiveOwner(docId);
+        }
+
+        Optional<Long> cached = activeOwners.getIfPresent(docId);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        long version = invalidations.get();
+        Long ownerId = loadActiveOwner(docId);
+        if (invalidations.get() == version) {
+            activeOwners.put(docId, Optional.ofNullable(ownerId));
+            if (invalidations.get() != version) {
+                activeOwners.invalidate(docId);
+            }
+        }
+        return ownerId;
+    }
+
+    @Override
+    public DocumentCollaborator.Permission getPermission(Long docId, Long userId) {
+        if (getActiveDocumentOwner(docId) == null) return null;
+        return getCollaboratorPermission(docId, userId);
+    }
+
+    @Override
+    public void evict(Long docId, Long userId) {
+        invalidate(docId + ":" + userId);
+    }
+
+    @Override
+    public void evictDocument(Long docId) {
+        invalidate(docId + ":" + ALL_USERS);
+    }
+
+    /**
+     * 协作者添加、移除、修改权限后清除对应缓存
+     */
+    @EventListener
+    public void onPermissionChanged(CollaboratorPermissionChangedEvent event) {
+        evict(event.documentId(), event.userId());
+    }
+
+    private void invalidate(String target) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        evictLocal(target);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务提交前其他请求仍可能读到旧数据并写回缓存，结束后再清除一次；回滚时同样需要清除
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictLocal(target);
+                    publish(target);
+                }
+            });
+        } else {
+            publish(target);
+        }
+    }
+
+    private void onInvalidation(String target) {
+        try {
+            evictLocal(target);
+        } catch (RuntimeException e) {
+            logger.warn("无法解析文档权限失效通知: {}", target);
+        }
+    }
+
+    private void evictLocal(String target) {
+        int separator = target.indexOf(':');
+        Long docId = Long.valueOf(target.substring(0, separator));
+        String user = target.substring(separator + 1);
+
+        invalidations.incrementAndGet();
+        if (ALL_USERS.equals(user)) {
+            activeOwners.invalidate(docId);
+            permissions.invalidate(docId);
+        } else {
+            removeUser(docId, Long.valueOf(user));
+        }
+    }
+
+    private void removeUser(Long docId, Long userId) {
+        permissions.asMap().computeIfPresent(docId, (id, users) -> {
+            if (!users.containsKey(userId)) {
+                return users;
+            }
+            Map<Long, Optional<DocumentCollaborator.Permission>> next = new HashMap<>(users);
+            next.remove(userId);
+            return next.isEmpty() ? null : Map.copyOf(next);
+        });
+    }
+
+    private void publish(String target) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.publish(properties.getInvalidationChannel().getBytes(StandardCharsets.UTF_8),
+                    target.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            logger.warn("发布文档权限失效通知失败, target={}: {}", target, e.getMessage());
+        }
+    }
+
+    private DocumentCollaborator.Permission loadPermission(Long docId, Long userId) {
+        DocumentCollaborator collaborator = documentCollaboratorMapper.selectOne(
+                new QueryWrapper<DocumentCollaborator>()
+                        .select("permission")
+                        .eq("document_id", docId)
+                        .eq("user_id", userId)
+        );
+        return collaborator == null ? null : collaborator.getPermission();
+    }
+
+    private Long loadActiveOwner(Long docId) {
+        Document document = documentMapper.selectOne(
+                new QueryWrapper<Document>()
+                        .select("owner_id", "status")
+                        .eq("id", docId)
+        );
+        if (document == null || DocStatus.Deleted.equals(document.getStatus())) return null;
+        return document.getOwnerId();
+    }
+}
@@ -2,29 +2,35 @@ package com.syncnote.document.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.syncnote.document.dto.request.CreateDocumentRequestDTO;
+import com.syncnote.document.dto.request.DocumentListQueryDTO;
 import com.syncnote.document.dto.request.GetDocumentDetailBase64State;
 import com.syncnote.document.dto.response.DocumentDetailDTO;
 import com.syncnote.document.dto.response.DocumentDTO;
-import com.syncnote.document.mapper.DocumentChunkMapper;
+import com.syncnote.document.dto.response.DocumentPageDTO;
+import com.syncnote.document.event.DocumentStateSavedEvent;
 import com.syncnote.document.mapper.DocumentCollaboratorMapper;
 import com.syncnote.document.mapper.DocumentMapper;
 import com.syncnote.document.model.*;
 import com.syncnote.document.config.StorageConfigProvider;
+import com.syncnote.document.service.IDocumentPermissionService;
 import com.syncnote.document.service.IDocumentService;
+import com.syncnote.document.service.IDocumentStateService;
 import com.syncnote.document.service.IStorageService;
+import com.syncnote.document.yjs.YUpdates;
 import com.syncnote.util.context.CurrentUserContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -33,11 +39,14 @@ public class DocumentServiceImpl implements IDocumentService {
 
     private static final Logger logger = LoggerFactory.getLogger(DocumentServiceImpl.class);
 
-    @Autowired
-    private DocumentMapper documentMapper;
+    /**
+     * 文档列表默认每页条数和上限
+     */
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
 
     @Autowired
-    private DocumentChunkMapper documentChunkMapper;
+    private DocumentMapper documentMapper;
 
     @Autowired
     private DocumentCollaboratorMapper documentCollaboratorMapper;
@@ -45,11 +54,26 @@ public class DocumentServiceImpl implements IDocumentService {
     @Autowired
     private IStorageService storageService;
 
+    @Autowired
+    private IDocumentStateService documentStateService;
+
+    @Autowired
+    private DocumentStateWriteBuffer documentStateWriteBuffer;
+
     @Autowired
     private StorageConfigProvider storageConfigProvider;
 
+    @Autowired
+    private DocumentTextCache documentTextCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private IDocumentPermissionService permissionService;
+
     @Override
-    public List<DocumentDTO> getDocumentList(String token) {
+    public DocumentPageDTO getDocumentList(DocumentListQueryDTO query, String token) {
         // 从token中解析用户ID
         Long userId = CurrentUserContext.getUserId();
 
@@ -57,46 +81,37 @@ public class DocumentServiceImpl implements IDocumentService {
             throw new IllegalArgumentException("用户未登录或 token 无效");
         }
 
-        // 查询协作表，同时获取文档ID和权限信息
-        List<DocumentCollaborator> collaborators = documentCollaboratorMapper.selectList(
-                new QueryWrapper<DocumentCollaborator>().eq("user_id", userId)
-        );
-
-        // 构建文档ID -> 权限的映射
-        Map<Long, DocumentCollaborator.Permission> docPermissionMap = collaborators.stream()
-                .collect(Collectors.toMap(
-                        DocumentCollaborator::getDocumentId,
-                        DocumentCollaborator::getPermission,
-                        (existing, replacement) -> existing // 如果有重复的文档ID，保留第一个
-                ));
-
-        // 获取协作文档ID列表
-        List<Long> collaboratorDocIds = collaborators.stream()
-                .map(DocumentCollaborator::getDocumentId)
-                .distinct()
-                .collect(Collectors.toList());
-
-        // 查询文档表：用户创建的文档 + 协作文档
-        QueryWrapper<Document> queryWrapper = new QueryWrapper<>();
-        queryWrapper.and(wrapper -> wrapper
-                .eq("owner_id", userId)
-                .or()
-                .in(!collaboratorDocIds.isEmpty(), "id", collaboratorDocIds)
-        ).ne("status", DocStatus.Deleted);
-
-        List<Document> documents = documentMapper.selectList(queryWrapper);
-
-        // 转换为DTO并设置权限
-        return documents.stream().map(document -> {
-            DocumentDTO dto = new DocumentDTO();
-            BeanUtils.copyProperties(document, dto);
-            dto.setIsDeleted(DocStatus.Deleted.equals(document.getStatus()));
-
-            // 设置权限：如果是文档拥有者，权限为Owner；否则从协作表中获取权限
-            dto.setPermission(getPermissionString(document, userId, docPermissionMap));
+        String sortColumn = resolveSortColumn(query.getSort());
+        boolean ascending = resolveAscending(query.getOrder());
+        int limit = query.getLimit() == null
+                ? DEFAULT_PAGE_SIZE
+                : Math.min(Math.max(query.getLimit(), 1), MAX_PAGE_SIZE);
+        DocumentListCursor cursor = DocumentListCursor.decode(query.getCursor(), sortColumn);
+
+        // 一次查询取出本页文档和权限（创建的和共享的两路合并），按 (排序字段, id) 游标分页，多取一条判断是否还有下一页
+        List<DocumentDTO> items = documentMapper.selectAccessibleDocumentPage(
+                userId,
+                query.getFileType(),
+                query.getParentId(),
+                sortColumn,
+                ascending,
+                cursor == null ? null : cursor.value(),
+                cursor == null ? null : cursor.id(),
+                limit + 1);
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items = items.subList(0, limit);
+        }
 
-            return dto;
-        }).collect(Collectors.toList());
+        DocumentPageDTO page = new DocumentPageDTO();
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            DocumentDTO last = items.getLast();
+            Instant lastValue = "created_at".equals(sortColumn) ? last.getCreatedAt() : last.getUpdatedAt();
+            page.setNextCursor(new DocumentListCursor(sortColumn, lastValue, last.getId()).encode());
+        }
+        return page;
     }
 
     @Override
@@ -121,11 +136,7 @@ public class DocumentServiceImpl implements IDocumentService {
         }
 
         // 查询用户的权限信息
-        DocumentCollaborator collaborator = documentCollaboratorMapper.selectOne(
-                new QueryWrapper<DocumentCollaborator>()
-                        .eq("document_id", document.getId())
-                        .eq("user_id", userId)
-        );
+        DocumentCollaborator.Permission permission = permissionService.getCollaboratorPermission(document.getId(), userId);
 
         // 转换 DTO
         DocumentDetailDTO dto = new DocumentDetailDTO();
@@ -135,8 +146,8 @@ public class DocumentServiceImpl implements IDocumentService {
         // 设置权限：如果是文档拥有者，权限为OWNER；否则从协作表中获取权限
         if (document.getOwnerId().equals(userId)) {
             dto.setPermission(DocumentCollaborator.Permission.OWNER.toValue());
-        } else if (collaborator != null) {
-            dto.setPermission(collaborator.getPermission().toValue());
+        } else if (permission != null) {
+            dto.setPermission(permission.toValue());
         } else {
             // 理论上不应该到这里，因为查询条件已经限制了权限
             dto.setPermission(DocumentCollaborator.Permission.READ.toValue());
@@ -206,6 +217,7 @@ public class DocumentServiceImpl implements IDocumentService {
             collaborator.setUserId(userId);
             collaborator.setPermission(DocumentCollaborator.Permission.OWNER);
             documentCollaboratorMapper.insert(collaborator);
+            permissionService.evict(document.getId(), userId);
 
             // 创建Chunk内容
             // 必须先有写权限才能写Chunk
@@ -315,6 +327,7 @@ public class DocumentServiceImpl implements IDocumentService {
         collaborator.setUserId(userId);
         collaborator.setPermission(DocumentCollaborator.Permission.OWNER);
         documentCollaboratorMapper.insert(collaborator);
+        permissionService.evict(document.getId(), userId);
 
         // 添加Chunk内容
         // 必须先有写权限才能写Chunk
@@ -354,6 +367,7 @@ public class DocumentServiceImpl implements IDocumentService {
         // 执行软删除：更新状态为Deleted
         document.setStatus(DocStatus.Deleted);
         documentMapper.updateById(document);
+        permissionService.evictDocument(id);
     }
 
     @Override
@@ -421,6 +435,7 @@ public class DocumentServiceImpl implements IDocumentService {
 
         // 硬删除：从数据库中彻底删除文档记录
         documentMapper.deleteById(id);
+        permissionService.evictDocument(id);
     }
 
     @Override
@@ -446,6 +461,7 @@ public class DocumentServiceImpl implements IDocumentService {
         document.setStatus(DocStatus.Active);
         document.setUpdatedAt(Instant.now());
         documentMapper.updateById(document);
+        permissionService.evictDocument(id);
 
         logger.info("文档已从回收站恢复: documentId={}, fileName={}", document.getId(), document.getFileName());
     }
@@ -458,25 +474,33 @@ public class DocumentServiceImpl implements IDocumentService {
      */
     @Override
     public String getDocumentBinaryState(Long docId) {
+        byte[] state = getDocumentBinaryStateBytes(docId);
+        return state.length == 0 ? "" : Base64.getEncoder().encodeToString(state);
+    }
+
+    @Override
+    public byte[] getDocumentBinaryStateBytes(Long docId) {
         if(!checkReadPermission(docId)) throw new RuntimeException("没有读文件的权限");
 
-        DocumentChunk chunk = documentChunkMapper.selectOne(
-                new QueryWrapper<DocumentChunk>()
-                        .eq("document_id", docId)
-                        .eq("chunk_index", 0)
-        );
-        if(chunk != null){
-            return chunk.getContent();
-        }
+        byte[] state = loadDocumentState(docId);
+        return YUpdates.isEmpty(state) ? new byte[0] : state;
+    }
 
-        return "";
+    @Override
+    public String getDocumentText(Long docId) {
+        byte[] state = getDocumentBinaryStateBytes(docId);
+        return state.length == 0 ? "" : documentTextCache.getText(docId, state);
+    }
+
+    @Override
+    public String loadDocumentText(Long docId) {
+        byte[] state = loadDocumentState(docId);
+        return state.length == 0 ? "" : documentTextCache.getText(docId, state);
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void saveDocumentBinaryState(Long docId, GetDocumentDetailBase64State docContent){
-        if(!checkWritePermission(docId)) throw new RuntimeException("没有写文件权限");
-
         // 获取文档的Base64二进制信息
         String base64State = docContent.getBase64State();
 
@@ -485,53 +509,56 @@ public class DocumentServiceImpl implements IDocumentService {
         if (base64State.startsWith("\"") && base64State.endsWith("\"")) {
             base64State = base64State.substring(1, base64State.length() - 1);
         }
-        
-        // 查找文件的内容
-        DocumentChunk chunk = documentChunkMapper.selectOne(
-                new QueryWrapper<DocumentChunk>()
-                        .eq("document_id", docId)
-                        .eq("chunk_index", 0)
-        );
 
-        // 更新文档的内容
-        if (chunk == null) {
-            chunk = new DocumentChunk();
-            chunk.setDocumentId(docId);
-            chunk.setChunkIndex(0);
-            chunk.setContent(base64State);
-            documentChunkMapper.insert(chunk);
-        } else {
-            chunk.setContent(base64State);
-            documentChunkMapper.updateById(chunk);
+        byte[] state;
+        try {
+            state = Base64.getDecoder().decode(base64State);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("文档状态不是合法的 Base64 编码");
         }
+        saveDocumentBinaryState(docId, state);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveDocumentBinaryState(Long docId, byte[] state) {
+        if(!checkWritePermission(docId)) throw new RuntimeException("没有写文件权限");
 
-        // 同步修改主表的信息
-        Document doc = documentMapper.selectById(docId);
-        if(doc != null){
-            doc.setFileSize((long) base64State.length());
-            doc.setUpdatedAt(Instant.now());
-            documentMapper.updateById(doc);
+        // 多个协作者的保存先进入写缓冲合并，再按间隔统一落库
+        if (documentStateWriteBuffer.isEnabled()) {
+            documentStateWriteBuffer.submit(docId, state);
+        } else {
+            documentStateService.saveState(docId, state);
         }
+        eventPublisher.publishEvent(new DocumentStateSavedEvent(docId));
+    }
+
+    @Override
+    public byte[] loadDocumentState(Long docId) {
+        return documentStateWriteBuffer.overlay(docId, () -> documentStateService.loadState(docId));
     }
 
     /**
-     * 获取权限字符串
-     * 文档拥有者默认为Owner权限，协作者从协作表中获取权限
-     *
-     * @param document         文档对象
-     * @param userId           当前用户ID
-     * @param docPermissionMap 文档ID到权限的映射
-     * @return 权限字符串
+     * 列表排序字段转换为列名
      */
-    private String getPermissionString(Document document, Long userId, Map<Long, DocumentCollaborator.Permission> docPermissionMap) {
-        // 如果是文档拥有者，权限为Owner
-        if (document.getOwnerId().equals(userId)) {
-            return DocumentCollaborator.Permission.OWNER.toValue();
+    private String resolveSortColumn(String sort) {
+        if (sort == null || sort.isBlank() || "updatedAt".equals(sort)) {
+            return "updated_at";
         }
+        if ("createdAt".equals(sort)) {
+            return "created_at";
+        }
+        throw new IllegalArgumentException("排序字段无效，只能是 'updatedAt' 或 'createdAt'");
+    }
 
-        // 否则从协作表中获取权限，默认为READ
-        DocumentCollaborator.Permission permission = docPermissionMap.get(document.getId());
-        return permission != null ? permission.toValue() : DocumentCollaborator.Permission.READ.toValue();
+    private boolean resolveAscending(String order) {
+        if (order == null || order.isBlank() || "desc".equalsIgnoreCase(order)) {
+            return false;
+        }
+        if ("asc".equalsIgnoreCase(order)) {
+            return true;
+        }
+        throw new IllegalArgumentException("排序方向无效，只能是 'asc' 或 'desc'");
     }
 
     /**
@@ -566,17 +593,16 @@ public class DocumentServiceImpl implements IDocumentService {
         return String.format("%s/%s-%s", datePath, uuid, originalFilename);
     }
 
+    @Override
+    public DocumentCollaborator.Permission getDocumentPermission(Long docId, Long userId) {
+        return permissionService.getPermission(docId, userId);
+    }
+
     private DocumentCollaborator.Permission getPermissionFromDocId(Long docId) {
         Long userId = CurrentUserContext.getUserId();
         if (userId == null) return null;
 
-        DocumentCollaborator collaborator = documentCollaboratorMapper.selectOne(
-                new QueryWrapper<DocumentCollaborator>()
-                        .eq("user_id", userId)
-                        .eq("document_id", docId)
-        );
-
-        return collaborator == null ? null : collaborator.getPermission();
+        return permissionService.getCollaboratorPermission(docId, userId);
     }
 
     private Boolean checkReadPermission(Long docId) {
@@ -0,0 +1,283 @@
+package com.syncnote.document.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.syncnote.document.config.DocumentPersistenceProperties;
+import com.syncnote.document.mapper.DocumentChunkMapper;
+import com.syncnote.document.mapper.DocumentMapper;
+import com.syncnote.document.model.Document;
+import com.syncnote.document.model.DocumentChunk;
+import com.syncnote.document.service.IDocumentStateService;
+import com.syncnote.document.yjs.YUpdates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文档状态存储
+ * chunk_index = 0 为快照，delta 模式下之后的每一行都是一次保存带来的增量（只包含新结构体和新删除）
+ * 读取时按 chunk_index 顺序合并全部行；Yjs 更新的合并满足交换律和幂等，行的重复或乱序都不影响结果
+ */
+@Service
+public class DocumentStateServiceImpl implements IDocumentStateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentStateServiceImpl.class);
+
+    /**
+     * 并发追加时 chunk_index 冲突的重试次数
+     */
+    private static final int MAX_APPEND_RETRIES = 3;
+
+    /**
+     * 已落库状态摘要的最大缓存文档数，超过后整体清空
+     */
+    private static final int MAX_CACHED_SUMMARIES = 4096;
+
+    @Autowired
+    private DocumentChunkMapper documentChunkMapper;
+
+    @Autowired
+    private DocumentMapper documentMapper;
+
+    @Autowired
+    private DocumentPersistenceProperties persistenceProperties;
+
+    /**
+     * 已落库状态的摘要：docId -> 状态向量 + 删除集合
+     * 只会在事务提交后增长，因此总是真实落库状态的子集；即使其他节点也在写，
+     * 以它为基准计算的增量最多偏大，不会丢内容
+     */
+    private final Map<Long, StoredSummary> summaries = new ConcurrentHashMap<>();
+
+    private record StoredSummary(Map<Long, Long> stateVector, Map<Long, List<long[]>> deleteSet) {
+
+        static StoredSummary of(byte[] update) {
+            return new StoredSummary(YUpdates.stateVectorFromUpdate(update), YUpdates.readDeleteSet(update));
+        }
+
+        StoredSummary merge(StoredSummary other) {
+            return new StoredSummary(
+                    YUpdates.mergeStateVectors(stateVector, other.stateVector),
+                    YUpdates.mergeDeleteSets(deleteSet, other.deleteSet));
+        }
+    }
+
+    @Override
+    public byte[] loadState(Long docId) {
+        List<DocumentChunk> chunks = documentChunkMapper.selectList(
+                new QueryWrapper<DocumentChunk>()
+                        .eq("document_id", docId)
+                        .orderByAsc("chunk_index")
+        );
+        return mergeChunks(chunks);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveState(Long docId, byte[] state) {
+        state = YUpdates.normalize(state);
+        boolean written;
+        if (persistenceProperties.getMode() == DocumentPersistenceProperties.Mode.SNAPSHOT) {
+            saveSnapshot(docId, state);
+            written = true;
+        } else {
+            written = appendDelta(docId, state);
+        }
+
+        // 状态没有变化时不再改动主表
+        if (written) {
+            Document doc = documentMapper.selectById(docId);
+            if (doc != null) {
+                doc.setFileSize((long) state.length);
+                doc.setUpdatedAt(Instant.now());
+                documentMapper.updateById(doc);
+            }
+        }
+        return written;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> compact(Long docId) {
+        // 锁住该文档的所有行，避免多个节点同时压缩时用较旧的合并结果覆盖较新的快照
+        List<DocumentChunk> chunks = documentChunkMapper.selectList(
+                new QueryWrapper<DocumentChunk>()
+                        .eq("document_id", docId)
+                        .orderByAsc("chunk_index")
+                        .last("FOR UPDATE")
+        );
+        if (chunks.isEmpty() || (chunks.size() == 1 && chunks.getFirst().getChunkIndex() == 0)) {
+            return List.of();
+        }
+
+        byte[] merged = mergeChunks(chunks);
+        DocumentChunk snapshot = chunks.getFirst().getChunkIndex() == 0 ? chunks.getFirst() : null;
+        if (snapshot == null) {
+            insertChunk(docId, 0, merged);
+        } else {
+            updateChunk(snapshot.getId(), merged);
+        }
+        return chunks.stream()
+                .filter(chunk -> chunk != snapshot)
+                .map(DocumentChunk::getId)
+                .toList();
+    }
+
+    /**
+     * snapshot 模式：用完整状态覆盖 chunk 0
+     * 如果之前以 delta 模式追加过增量，先把它们并入快照再删除，避免丢失客户端没有的内容
+     */
+    private void saveSnapshot(Long docId, byte[] state) {
+        List<DocumentChunk> tail = documentChunkMapper.selectList(
+                new QueryWrapper<DocumentChunk>()
+                        .eq("document_id", docId)
+                        .gt("chunk_index", 0)
+        );
+        if (!tail.isEmpty()) {
+            List<byte[]> updates = new ArrayList<>(tail.size() + 1);
+            updates.add(state);
+            tail.forEach(chunk -> updates.add(decode(chunk)));
+            state = YUpdates.mergeUpdates(updates);
+            documentChunkMapper.delete(
+                    new QueryWrapper<DocumentChunk>()
+                            .eq("document_id", docId)
+                            .gt("chunk_index", 0)
+            );
+        }
+
+        DocumentChunk chunk = documentChunkMapper.selectOne(
+                new QueryWrapper<DocumentChunk>()
+                        .select("id")
+                        .eq("document_id", docId)
+                        .eq("chunk_index", 0)
+        );
+        if (chunk == null) {
+            insertChunk(docId, 0, state);
+        } else {
+            updateChunk(chunk.getId(), state);
+        }
+        summaries.remove(docId);
+    }
+
+    /**
+     * delta 模式：只追加已落库状态中没有的结构体和删除
+     */
+    private boolean appendDelta(Long docId, byte[] state) {
+        StoredSummary stored = summaries.get(docId);
+        if (stored == null) {
+            stored = StoredSummary.of(loadState(docId));
+        }
+
+        byte[] delta = YUpdates.diffUpdate(state, YUpdates.encodeStateVector(stored.stateVector()), stored.deleteSet());
+        if (YUpdates.isEmpty(delta)) {
+            cacheSummary(docId, stored);
+            return false;
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insertChunk(docId, nextChunkIndex(docId), delta);
+                break;
+            } catch (DuplicateKeyException e) {
+                // 其他节点同时追加了同一个 chunk_index
+                if (attempt >= MAX_APPEND_RETRIES) {
+                    throw e;
+                }
+                logger.debug("追加文档增量时 chunk_index 冲突, docId={}, 重试第 {} 次", docId, attempt);
+            }
+        }
+
+        StoredSummary written = new StoredSummary(
+                YUpdates.mergeStateVectors(stored.stateVector(), YUpdates.stateVectorFromUpdate(state)),
+                YUpdates.mergeDeleteSets(stored.deleteSet(), YUpdates.readDeleteSet(delta)));
+        cacheSummary(docId, written);
+        return true;
+    }
+
+    /**
+     * 事务提交后才更新摘要，回滚的写入不能被当作已落库
+     */
+    private void cacheSummary(Long docId, StoredSummary summary) {
+        Runnable update = () -> {
+            if (summaries.size() >= MAX_CACHED_SUMMARIES) {
+                summaries.clear();
+            }
+            summaries.merge(docId, summary, StoredSummary::merge);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private void insertChunk(Long docId, int chunkIndex, byte[] state) {
+        DocumentChunk chunk = new DocumentChunk();
+        chunk.setDocumentId(docId);
+        chunk.setChunkIndex(chunkIndex);
+        chunk.setState(state);
+        documentChunkMapper.insert(chunk);
+    }
+
+    /**
+     * 用 UpdateWrapper 显式置空旧的 Base64 列，updateById 会忽略 null 字段
+     */
+    private void updateChunk(Long chunkId, byte[] state) {
+        documentChunkMapper.update(null,
+                new UpdateWrapper<DocumentChunk>()
+                        .set("state", state)
+                        .set("content", null)
+                        .set("updated_at", Instant.now())
+                        .eq("id", chunkId)
+        );
+    }
+
+    private int nextChunkIndex(Long docId) {
+        List<Object> max = documentChunkMapper.selectObjs(
+                new QueryWrapper<DocumentChunk>()
+                        .select("MAX(chunk_index)")
+                        .eq("document_id", docId)
+        );
+        if (max.isEmpty() || max.getFirst() == null) {
+            return 0;
+        }
+        return ((Number) max.getFirst()).intValue() + 1;
+    }
+
+    private byte[] mergeChunks(List<DocumentChunk> chunks) {
+        List<byte[]> updates = chunks.stream()
+                .map(this::decode)
+                .toList();
+        return YUpdates.mergeUpdates(updates);
+    }
+
+    /**
+     * 优先读取二进制列，尚未迁移的旧行回退到 Base64 列
+     */
+    private byte[] decode(DocumentChunk chunk) {
+        if (chunk.getState() != null) {
+            return YUpdates.normalize(chunk.getState());
+        }
+        if (chunk.getContent() == null || chunk.getContent().isEmpty()) {
+            return YUpdates.EMPTY_UPDATE;
+        }
+        return Base64.getDecoder().decode(chunk.getContent());
+    }
+}
@@ -0,0 +1,307 @@
+package com.syncnote.document.service.impl;
+
+import com.syncnote.document.config.DocumentPersistenceProperties;
+import com.syncnote.document.service.IDocumentStateService;
+import com.syncnote.document.yjs.YUpdates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 文档状态写缓冲（write-behind）
+ * 多个协作者会各自定时上传完整状态，这里按文档合并（Y.mergeUpdates）后再按间隔或大小统一落库，
+ * 同一文档在一个间隔内只写一次数据库
+ * 应用关闭时会同步落库全部缓冲；进程异常退出时最多丢失一个间隔的保存，
+ * 客户端下一次保存的是完整状态，届时会补齐
+ * 同一文档同一时间只有一个落库在执行；超过重试次数的状态不会丢弃，继续参与读取合并，
+ * 并在该文档下一次保存时重新进入缓冲
+ * 一份状态在 pendingStates / flushingStates / failedStates 之间的转移，以及读取时的快照，
+ * 都在 pendingStates 对该文档的 compute 中执行，读取时不会看到"两边都不在"的中间状态
+ */
+@Component
+public class DocumentStateWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentStateWriteBuffer.class);
+
+    /**
+     * 单个文档缓冲多少份状态后先在内存中合并一次
+     */
+    private static final int MAX_PENDING_UPDATES = 8;
+
+    @Autowired
+    private IDocumentStateService documentStateService;
+
+    @Autowired
+    private DocumentPersistenceProperties persistenceProperties;
+
+    private final Map<Long, PendingState> pendingStates = new ConcurrentHashMap<>();
+
+    /**
+     * 已从缓冲取出、正在落库的状态，落库完成前读取时也要合并进去
+     */
+    private final Map<Long, byte[]> flushingStates = new ConcurrentHashMap<>();
+
+    /**
+     * 正在落库的文档，保证同一文档的落库串行执行
+     */
+    private final Set<Long> flushingDocs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 超过重试次数仍未落库的状态，读取时合并，下一次保存时重新进入缓冲
+     */
+    private final Map<Long, byte[]> failedStates = new ConcurrentHashMap<>();
+
+    /**
+     * 超过大小上限时的落库在这里执行：提交可能发生在 afterCommit 回调中，
+     * 那时原事务已经结束，不能在当前线程里再开启依赖它的事务
+     */
+    private final ExecutorService flushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter submitted;
+    private final Counter flushed;
+    private final Counter failures;
+    private final Counter abandoned;
+
+    /**
+     * 一个文档尚未落库的状态
+     */
+    private static final class PendingState {
+        private final List<byte[]> updates = new ArrayList<>();
+        private long bytes = 0;
+        private int attempts = 0;
+
+        void add(byte[] update) {
+            updates.add(update);
+            bytes += update.length;
+            if (updates.size() >= MAX_PENDING_UPDATES) {
+                byte[] merged = YUpdates.mergeUpdates(updates);
+                updates.clear();
+                updates.add(merged);
+                bytes = merged.length;
+            }
+        }
+
+        void addAll(PendingState other) {
+            other.updates.forEach(this::add);
+            attempts = Math.max(attempts, other.attempts);
+        }
+
+        byte[] merge() {
+            return YUpdates.mergeUpdates(updates);
+        }
+    }
+
+    public DocumentStateWriteBuffer(MeterRegistry meterRegistry) {
+        meterRegistry.gaugeMapSize("syncnote.document.state.buffer.pending", List.of(), pendingStates);
+        this.submitted = meterRegistry.counter("syncnote.document.state.buffer.submitted");
+        this.flushed = meterRegistry.counter("syncnote.document.state.buffer.flushed");
+        this.failures = meterRegistry.counter("syncnote.document.state.buffer.failures");
+        this.abandoned = meterRegistry.counter("syncnote.document.state.buffer.abandoned");
+        meterRegistry.gaugeMapSize("syncnote.document.state.buffer.failed", List.of(), failedStates);
+    }
+
+    public boolean isEnabled() {
+        return persistenceProperties.getWriteBehind().isEnabled();
+    }
+
+    /**
+     * 提交一次保存；在事务中调用时，等事务提交后才进入缓冲
+     */
+    public void submit(Long docId, byte[] state) {
+        byte[] update = YUpdates.normalize(state);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(docId, update);
+                }
+            });
+        } else {
+            enqueue(docId, update);
+        }
+    }
+
+    /**
+     * 把缓冲中尚未落库的内容合并到已落库的状态上，保证读到的总是最新的
+     * 先取缓冲快照再读数据库：两次读取之间完成的落库已经在数据库里，快照中的重复部分合并时会去重
+     */
+    public byte[] overlay(Long docId, Supplier<byte[]> persistedLoader) {
+        List<byte[]> buffered = snapshot(docId);
+        byte[] persisted = persistedLoader.get();
+        if (buffered.isEmpty()) {
+            return persisted;
+        }
+        List<byte[]> updates = new ArrayList<>();
+        updates.add(persisted);
+        updates.addAll(buffered);
+        return YUpdates.mergeUpdates(updates);
+    }
+
+    private List<byte[]> snapshot(Long docId) {
+        List<byte[]> updates = new ArrayList<>();
+        pendingStates.compute(docId, (k, pending) -> {
+            byte[] failed = failedStates.get(docId);
+            if (failed != null) {
+                updates.add(failed);
+            }
+            byte[] flushing = flushingStates.get(docId);
+            if (flushing != null) {
+                updates.add(flushing);
+            }
+            if (pending != null) {
+                synchronized (pending) {
+                    updates.addAll(pending.updates);
+                }
+            }
+            return pending;
+        });
+        return updates;
+    }
+
+    @Scheduled(fixedDelayString = "${syncnote.document.persistence.write-behind.flush-interval-ms:2000}")
+    public void flushAll() {
+        for (Long docId : List.copyOf(pendingStates.keySet())) {
+            flush(docId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        // 上次失败的状态在关闭前再尝试一次
+        for (Long docId : List.copyOf(failedStates.keySet())) {
+            pendingStates.compute(docId, (k, current) -> {
+                byte[] failed = failedStates.remove(docId);
+                if (failed == null) {
+                    return current;
+                }
+                PendingState target = current != null ? current : new PendingState();
+                synchronized (target) {
+                    target.add(failed);
+                }
+                return target;
+            });
+        }
+        if (!pendingStates.isEmpty()) {
+            logger.info("应用关闭，落库 {} 个文档的缓冲状态", pendingStates.size());
+            flushAll();
+        }
+        if (!failedStates.isEmpty()) {
+            logger.error("应用关闭时仍有 {} 个文档的状态未能落库", failedStates.size());
+        }
+    }
+
+    private void enqueue(Long docId, byte[] update) {
+        submitted.increment();
+        // compute 与 flush 中取走缓冲互斥，不会把状态加到已经取走的缓冲上
+        PendingState pending = pendingStates.compute(docId, (k, current) -> {
+            PendingState target = current != null ? current : new PendingState();
+            byte[] failed = failedStates.remove(docId);
+            synchronized (target) {
+                if (failed != null) {
+                    target.add(failed);
+                }
+                target.add(update);
+            }
+            return target;
+        });
+        if (exceedsMaxPendingBytes(pending)) {
+            flushExecutor.execute(() -> flush(docId));
+        }
+    }
+
+    private boolean exceedsMaxPendingBytes(PendingState pending) {
+        synchronized (pending) {
+            return pending.bytes >= persistenceProperties.getWriteBehind().getMaxPendingBytes();
+        }
+    }
+
+    private void flush(Long docId) {
+        // 该文档已有落库在执行时跳过，缓冲留给下一轮；释放后再检查一次是否已超过大小上限
+        if (!flushingDocs.add(docId)) {
+            return;
+        }
+        try {
+            // 从缓冲取出并放入 flushingStates 是一步完成的
+            PendingState[] taken = new PendingState[1];
+            pendingStates.computeIfPresent(docId, (k, pending) -> {
+                synchronized (pending) {
+                    flushingStates.put(docId, pending.merge());
+                }
+                taken[0] = pending;
+                return null;
+            });
+            PendingState pending = taken[0];
+            if (pending == null) {
+                return;
+            }
+            byte[] state = flushingStates.get(docId);
+            try {
+                documentStateService.saveState(docId, state);
+                flushed.increment();
+                pendingStates.compute(docId, (k, current) -> {
+                    flushingStates.remove(docId);
+                    return current;
+                });
+            } catch (Exception e) {
+                failures.increment();
+                requeue(docId, pending, state, e);
+            }
+        } finally {
+            flushingDocs.remove(docId);
+        }
+        PendingState next = pendingStates.get(docId);
+        if (next != null && exceedsMaxPendingBytes(next) && !flushExecutor.isShutdown()) {
+            flushExecutor.execute(() -> flush(docId));
+        }
+    }
+
+    /**
+     * 落库失败时放回缓冲，与期间新提交的状态合并，下一轮重试
+     * 放回和移出 flushingStates 在同一个 compute 中完成
+     */
+    private void requeue(Long docId, PendingState failed, byte[] state, Exception cause) {
+        int maxAttempts = persistenceProperties.getWriteBehind().getMaxFlushAttempts();
+        failed.attempts++;
+        boolean giveUp = failed.attempts >= maxAttempts;
+        pendingStates.compute(docId, (k, current) -> {
+            flushingStates.remove(docId);
+            if (giveUp) {
+                // 仍然参与读取合并，该文档下一次保存时重新进入缓冲
+                failedStates.merge(docId, state, (previous, latest) -> YUpdates.mergeUpdates(List.of(previous, latest)));
+                return current;
+            }
+            if (current == null) {
+                return failed;
+            }
+            synchronized (current) {
+                current.addAll(failed);
+            }
+            return current;
+        });
+        if (giveUp) {
+            abandoned.increment();
+            logger.error("文档状态落库失败且超过重试次数，暂停重试直到下一次保存: docId={}, attempts={}", docId, failed.attempts, cause);
+        } else {
+            logger.warn("文档状态落库失败，稍后重试: docId={}, attempts={}, error={}", docId, failed.attempts, cause.getMessage());
+        }
+    }
+}
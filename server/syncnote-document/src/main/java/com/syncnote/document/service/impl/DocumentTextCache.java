@@ -0,0 +1,70 @@
+package com.syncnote.document.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syncnote.document.yjs.YDocumentText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 文档纯文本缓存
+ * Yjs 状态转文本需要在内存中重排全部 Item，开销远大于读取状态本身；
+ * 这里以状态的 SHA-256 作为版本号，同一版本只解码一次，文档有新的保存后自然失效
+ * 未命中时在 compute 中解码，同一文档的并发请求只解码一次，其余等待结果
+ */
+@Component
+public class DocumentTextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentTextCache.class);
+
+    /**
+     * 最多缓存的文档数，超出后按 Caffeine 的策略淘汰
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    private record Entry(byte[] version, String text) {
+    }
+
+    private final Cache<Long, Entry> entries = Caffeine.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .build();
+
+    /**
+     * 返回该版本状态对应的文本，版本变化时重新解码
+     */
+    public String getText(Long docId, byte[] state) {
+        byte[] version = digest(state);
+        Entry cached = entries.getIfPresent(docId);
+        if (cached != null && Arrays.equals(cached.version(), version)) {
+            return cached.text();
+        }
+        Entry entry = entries.asMap().compute(docId, (id, current) -> {
+            if (current != null && Arrays.equals(current.version(), version)) {
+                return current;
+            }
+            return new Entry(version, decode(docId, state));
+        });
+        return entry.text();
+    }
+
+    private static String decode(Long docId, byte[] state) {
+        long start = System.nanoTime();
+        String text = YDocumentText.extract(state);
+        logger.debug("文档状态转文本: docId={}, stateBytes={}, chars={}, 耗时 {}ms",
+                docId, state.length, text.length(), (System.nanoTime() - start) / 1_000_000);
+        return text;
+    }
+
+    private static byte[] digest(byte[] state) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(state);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.syncnote.document.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.syncnote.document.mapper.DocumentChunkMapper;
+import com.syncnote.document.model.DocumentChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * document_chunk 从 Base64 文本迁移到二进制列
+ * 1. 启动时（schema.sql 执行之后）检查表结构，旧表缺少 state 列或 (document_id, chunk_index) 唯一键时自动补上
+ * 2. 应用就绪后在后台按主键分批把 content 中的 Base64 解码写入 state，并置空 content
+ * 迁移期间读取会回退到 content 列，因此不需要停机
+ */
+@Component
+@DependsOnDatabaseInitialization
+public class DocumentChunkMigrationTask implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentChunkMigrationTask.class);
+
+    private static final String TABLE_NAME = "document_chunk";
+
+    /**
+     * 每批迁移的行数
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private DocumentChunkMapper documentChunkMapper;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (documentChunkMapper.countColumn(TABLE_NAME, "id") == 0) {
+            // 表不存在，由 schema.sql 按新结构创建
+            return;
+        }
+        if (documentChunkMapper.countColumn(TABLE_NAME, "state") == 0) {
+            logger.info("document_chunk 缺少二进制列 state，开始升级表结构");
+            documentChunkMapper.addStateColumn();
+        }
+        if (documentChunkMapper.countIndex(TABLE_NAME, "uk_doc_chunk") == 0) {
+            // 并发追加依赖唯一键冲突重试，旧表没有唯一键时可能已经写入了重复的 chunk_index
+            logger.info("document_chunk 缺少唯一键 uk_doc_chunk，开始升级表结构");
+            renumberDuplicateChunks();
+            documentChunkMapper.addChunkUniqueKey();
+        }
+    }
+
+    /**
+     * 把重复的 chunk_index 改到该文档末尾
+     * Yjs 更新的合并与顺序无关，重新编号不会改变文档内容
+     */
+    private void renumberDuplicateChunks() {
+        List<DocumentChunk> duplicates = documentChunkMapper.selectDuplicateChunks();
+        for (DocumentChunk chunk : duplicates) {
+            List<Object> max = documentChunkMapper.selectObjs(
+                    new QueryWrapper<DocumentChunk>()
+                            .select("MAX(chunk_index)")
+                            .eq("document_id", chunk.getDocumentId())
+            );
+            int next = ((Number) max.getFirst()).intValue() + 1;
+            documentChunkMapper.update(null,
+                    new UpdateWrapper<DocumentChunk>()
+                            .set("chunk_index", next)
+                            .eq("id", chunk.getId())
+            );
+        }
+        if (!duplicates.isEmpty()) {
+            logger.warn("document_chunk 中有 {} 行 chunk_index 重复，已重新编号", duplicates.size());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyRows() {
+        Thread.ofVirtual().name("document-chunk-migration").start(this::migrate);
+    }
+
+    private void migrate() {
+        long lastId = 0;
+        int migrated = 0;
+        int failed = 0;
+        try {
+            while (true) {
+                List<DocumentChunk> batch = documentChunkMapper.selectList(
+                        new QueryWrapper<DocumentChunk>()
+                                .select("id", "content")
+                                .isNull("state")
+                                .isNotNull("content")
+                                .gt("id", lastId)
+                                .orderByAsc("id")
+                                .last("LIMIT " + BATCH_SIZE)
+                );
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (DocumentChunk chunk : batch) {
+                    lastId = chunk.getId();
+                    try {
+                        byte[] state = Base64.getDecoder().decode(chunk.getContent().trim());
+                        // 只迁移仍未写入 state 的行，避免覆盖迁移期间的新写入
+                        documentChunkMapper.update(null,
+                                new UpdateWrapper<DocumentChunk>()
+                                        .set("state", state)
+                                        .set("content", null)
+                                        .eq("id", chunk.getId())
+                                        .isNull("state")
+                        );
+                        migrated++;
+                    } catch (IllegalArgumentException e) {
+                        failed++;
+                        logger.warn("document_chunk 中的 Base64 内容无法解码，跳过: id={}", chunk.getId());
+                    }
+                }
+            }
+            if (migrated > 0 || failed > 0) {
+                logger.info("document_chunk 二进制迁移完成: 成功 {} 行, 失败 {} 行", migrated, failed);
+            }
+        } catch (Exception e) {
+            logger.error("document_chunk 二进制迁移失败, 已迁移 {} 行, 下次启动会继续", migrated, e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.syncnote.document.task;
+
+import com.syncnote.document.config.DocumentPersistenceProperties;
+import com.syncnote.document.dto.response.DocumentChunkTailStat;
+import com.syncnote.document.mapper.DocumentChunkMapper;
+import com.syncnote.document.service.IDocumentStateService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文档增量日志压缩定时任务
+ * delta 模式下每次保存都会追加一行增量，读取时需要全部合并；
+ * 本任务把增量行数、字节数超过阈值，或已经空闲一段时间的文档合并为新的 chunk 0 快照，
+ * 并分批删除被取代的行，使读取成本不随编辑时长无限增长
+ */
+@Component
+public class DocumentCompactionTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentCompactionTask.class);
+
+    @Autowired
+    private DocumentChunkMapper documentChunkMapper;
+
+    @Autowired
+    private IDocumentStateService documentStateService;
+
+    @Autowired
+    private DocumentPersistenceProperties persistenceProperties;
+
+    private final AtomicLong pendingDocuments = new AtomicLong();
+    private final Counter compactedDocuments;
+    private final Counter removedRows;
+    private final Counter failures;
+    private final Timer compactionTimer;
+
+    public DocumentCompactionTask(MeterRegistry meterRegistry) {
+        meterRegistry.gauge("syncnote.document.compaction.pending", pendingDocuments);
+        this.compactedDocuments = meterRegistry.counter("syncnote.document.compaction.documents");
+        this.removedRows = meterRegistry.counter("syncnote.document.compaction.rows.removed");
+        this.failures = meterRegistry.counter("syncnote.document.compaction.failures");
+        this.compactionTimer = meterRegistry.timer("syncnote.document.compaction.duration");
+    }
+
+    /**
+     * 按固定间隔扫描需要压缩的文档
+     */
+    @Scheduled(fixedDelayString = "${syncnote.document.persistence.compaction.interval-ms:30000}",
+            initialDelayString = "${syncnote.document.persistence.compaction.interval-ms:30000}")
+    public void compactUpdateLogs() {
+        DocumentPersistenceProperties.Compaction config = persistenceProperties.getCompaction();
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        List<DocumentChunkTailStat> candidates;
+        try {
+            candidates = documentChunkMapper.selectCompactionCandidates(
+                    config.getMaxTailRows(),
+                    config.getMaxTailBytes(),
+                    Instant.now().minusSeconds(config.getIdleSeconds()),
+                    config.getMaxDocumentsPerRun());
+        } catch (Exception e) {
+            logger.error("查询待压缩文档失败", e);
+            return;
+        }
+        pendingDocuments.set(candidates.size());
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        int compactedCount = 0;
+        long removedCount = 0;
+        for (DocumentChunkTailStat stat : candidates) {
+            try {
+                removedCount += compactionTimer.recordCallable(() -> compactDocument(stat.getDocumentId(), config));
+                compactedCount++;
+                compactedDocuments.increment();
+            } catch (Exception e) {
+                failures.increment();
+                logger.error("压缩文档增量日志失败: documentId={}, tailRows={}, error={}",
+                        stat.getDocumentId(), stat.getTailRows(), e.getMessage(), e);
+            }
+            pendingDocuments.decrementAndGet();
+        }
+
+        logger.info("文档增量日志压缩完成: 压缩 {} 个文档, 删除 {} 行", compactedCount, removedCount);
+    }
+
+    /**
+     * 先在事务内写入新快照，再分批删除被取代的行
+     * 删除失败只会留下冗余的行，下一轮会再次合并并删除
+     */
+    private long compactDocument(Long docId, DocumentPersistenceProperties.Compaction config) {
+        List<Long> superseded = documentStateService.compact(docId);
+        int batchSize = Math.max(1, config.getDeleteBatchSize());
+        long removed = 0;
+        for (int from = 0; from < superseded.size(); from += batchSize) {
+            List<Long> batch = superseded.subList(from, Math.min(from + batchSize, superseded.size()));
+            removed += documentChunkMapper.deleteByIds(batch);
+        }
+        removedRows.increment(removed);
+        logger.debug("已压缩文档增量日志: documentId={}, 删除 {} 行", docId, removed);
+        return removed;
+    }
+}
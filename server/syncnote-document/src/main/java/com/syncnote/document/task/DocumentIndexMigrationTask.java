@@ -0,0 +1,73 @@
+package com.syncnote.document.task;
+
+import com.syncnote.document.mapper.DocumentMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 文档列表索引升级
+ * schema.sql 只在建表时生效，已有的库在启动时（schema.sql 执行之后）按 information_schema 检查：
+ * 1. 缺少的列表分页索引自动补上（InnoDB 在线加索引，不阻塞读写）
+ * 2. 新索引建好后，删除被它们取代的旧索引
+ * 每一步都先检查再执行，重复启动不会重复修改
+ */
+@Component
+@DependsOnDatabaseInitialization
+public class DocumentIndexMigrationTask implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIndexMigrationTask.class);
+
+    private record IndexDefinition(String table, String name, String columns) {
+    }
+
+    /**
+     * 与 schema.sql 保持一致
+     */
+    private static final List<IndexDefinition> REQUIRED_INDEXES = List.of(
+            new IndexDefinition("document", "idx_owner_updated", "owner_id, updated_at, id"),
+            new IndexDefinition("document", "idx_owner_created", "owner_id, created_at, id"),
+            new IndexDefinition("document_collaborator", "idx_user_doc_perm", "user_id, document_id, permission")
+    );
+
+    /**
+     * idx_owner_id 是 idx_owner_updated 的前缀；idx_parent_id / idx_parent_updated 不再被文档列表使用
+     */
+    private static final List<IndexDefinition> OBSOLETE_INDEXES = List.of(
+            new IndexDefinition("document", "idx_owner_id", "owner_id"),
+            new IndexDefinition("document", "idx_parent_id", "parent_id"),
+            new IndexDefinition("document", "idx_parent_updated", "parent_id, updated_at, id")
+    );
+
+    @Autowired
+    private DocumentMapper documentMapper;
+
+    @Override
+    public void afterPropertiesSet() {
+        for (IndexDefinition index : REQUIRED_INDEXES) {
+            if (!tableExists(index.table())) {
+                // 表不存在，由 schema.sql 按新结构创建
+                continue;
+            }
+            if (documentMapper.countIndex(index.table(), index.name()) == 0) {
+                logger.info("{} 缺少索引 {}，开始升级表结构", index.table(), index.name());
+                documentMapper.addIndex(index.table(), index.name(), index.columns());
+            }
+        }
+        for (IndexDefinition index : OBSOLETE_INDEXES) {
+            if (tableExists(index.table()) && documentMapper.countIndex(index.table(), index.name()) > 0) {
+                logger.info("删除 {} 上已被取代的索引 {}", index.table(), index.name());
+                documentMapper.dropIndex(index.table(), index.name());
+            }
+        }
+    }
+
+    private boolean tableExists(String table) {
+        return documentMapper.countIndex(table, "PRIMARY") > 0;
+    }
+}
@@ -0,0 +1,175 @@
+package com.syncnote.document.yjs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * lib0 二进制解码器（与 Yjs 使用的 lib0/decoding 保持一致）
+ * 只实现 Yjs V1 更新格式和 y-websocket 协议用到的部分
+ */
+public class Lib0Decoder {
+
+    private final byte[] buf;
+    private int pos;
+
+    public Lib0Decoder(byte[] buf) {
+        this.buf = buf;
+        this.pos = 0;
+    }
+
+    public boolean hasContent() {
+        return pos < buf.length;
+    }
+
+    public int position() {
+        return pos;
+    }
+
+    public int readUint8() {
+        if (pos >= buf.length) {
+            throw new IllegalArgumentException("Yjs 数据格式错误：读取越界");
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    /**
+     * 读取无符号变长整数（每字节 7 位，最高位为延续标记）
+     */
+    public long readVarUint() {
+        long num = 0;
+        int shift = 0;
+        while (true) {
+            int r = readUint8();
+            num |= (long) (r & 0x7F) << shift;
+            if (r < 0x80) {
+                return num;
+            }
+            shift += 7;
+            if (shift > 56) {
+                throw new IllegalArgumentException("Yjs 数据格式错误：整数溢出");
+            }
+        }
+    }
+
+    /**
+     * 读取有符号变长整数（首字节第 7 位为符号位，低 6 位为数据）
+     */
+    public long readVarInt() {
+        int r = readUint8();
+        long num = r & 0x3F;
+        int shift = 6;
+        boolean negative = (r & 0x40) != 0;
+        while ((r & 0x80) != 0) {
+            r = readUint8();
+            num |= (long) (r & 0x7F) << shift;
+            shift += 7;
+            if (shift > 56) {
+                throw new IllegalArgumentException("Yjs 数据格式错误：整数溢出");
+            }
+        }
+        return negative ? -num : num;
+    }
+
+    public byte[] readBytes(int len) {
+        if (len < 0 || pos + len > buf.length) {
+            throw new IllegalArgumentException("Yjs 数据格式错误：读取越界");
+        }
+        byte[] out = new byte[len];
+        System.arraycopy(buf, pos, out, 0, len);
+        pos += len;
+        return out;
+    }
+
+    public byte[] readVarUint8Array() {
+        return readBytes((int) readVarUint());
+    }
+
+    public String readVarString() {
+        int len = (int) readVarUint();
+        if (len < 0 || pos + len > buf.length) {
+            throw new IllegalArgumentException("Yjs 数据格式错误：读取越界");
+        }
+        String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+        pos += len;
+        return s;
+    }
+
+    /**
+     * 读取 lib0 的 any 编码值，并返回其原始字节（用于不解析内容的原样转写）
+     */
+    public byte[] readAnyRaw() {
+        int start = pos;
+        readAny();
+        byte[] out = new byte[pos - start];
+        System.arraycopy(buf, start, out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * 读取 lib0 的 any 编码值
+     *
+     * @return null / Boolean / Long / Double / String / byte[] / List / Map
+     */
+    public Object readAny() {
+        int type = readUint8();
+        switch (type) {
+            case 127: // undefined
+            case 126: // null
+                return null;
+            case 125:
+                return readVarInt();
+            case 124:
+                return (double) Float.intBitsToFloat(readInt32());
+            case 123:
+                return Double.longBitsToDouble(readInt64());
+            case 122:
+                return readInt64();
+            case 121:
+                return Boolean.FALSE;
+            case 120:
+                return Boolean.TRUE;
+            case 119:
+                return readVarString();
+            case 118: {
+                int len = (int) readVarUint();
+                Map<String, Object> obj = new LinkedHashMap<>();
+                for (int i = 0; i < len; i++) {
+                    String key = readVarString();
+                    obj.put(key, readAny());
+                }
+                return obj;
+            }
+            case 117: {
+                int len = (int) readVarUint();
+                List<Object> arr = new ArrayList<>(len);
+                for (int i = 0; i < len; i++) {
+                    arr.add(readAny());
+                }
+                return arr;
+            }
+            case 116:
+                return readVarUint8Array();
+            default:
+                throw new IllegalArgumentException("Yjs 数据格式错误：未知的 any 类型 " + type);
+        }
+    }
+
+    private int readInt32() {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            v = (v << 8) | readUint8();
+        }
+        return v;
+    }
+
+    private long readInt64() {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | readUint8();
+        }
+        return v;
+    }
+}
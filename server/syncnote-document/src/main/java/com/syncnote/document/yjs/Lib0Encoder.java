@@ -0,0 +1,53 @@
+package com.syncnote.document.yjs;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * lib0 二进制编码器（与 Yjs 使用的 lib0/encoding 保持一致）
+ */
+public class Lib0Encoder {
+
+    private final ByteArrayOutputStream out;
+
+    public Lib0Encoder() {
+        this.out = new ByteArrayOutputStream();
+    }
+
+    public Lib0Encoder(int initialSize) {
+        this.out = new ByteArrayOutputStream(initialSize);
+    }
+
+    public void writeUint8(int b) {
+        out.write(b & 0xFF);
+    }
+
+    public void writeVarUint(long num) {
+        while (num > 0x7F) {
+            out.write((int) (0x80 | (num & 0x7F)));
+            num >>>= 7;
+        }
+        out.write((int) (num & 0x7F));
+    }
+
+    public void writeBytes(byte[] bytes) {
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public void writeVarUint8Array(byte[] bytes) {
+        writeVarUint(bytes.length);
+        writeBytes(bytes);
+    }
+
+    public void writeVarString(String s) {
+        writeVarUint8Array(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int length() {
+        return out.size();
+    }
+
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
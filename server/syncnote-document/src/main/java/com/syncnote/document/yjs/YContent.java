@@ -0,0 +1,232 @@
+package com.syncnote.document.yjs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Item 的内容（对应 Yjs 中的 ContentXxx 系列类）
+ * 服务端不需要理解大多数内容的语义，只保留能够按偏移量切分和原样写回所需的信息
+ */
+public class YContent {
+
+    public static final int DELETED = 1;
+    public static final int JSON = 2;
+    public static final int BINARY = 3;
+    public static final int STRING = 4;
+    public static final int EMBED = 5;
+    public static final int FORMAT = 6;
+    public static final int TYPE = 7;
+    public static final int ANY = 8;
+    public static final int DOC = 9;
+
+    /**
+     * ContentType 的类型引用
+     */
+    public static final int TYPE_ARRAY = 0;
+    public static final int TYPE_MAP = 1;
+    public static final int TYPE_TEXT = 2;
+    public static final int TYPE_XML_ELEMENT = 3;
+    public static final int TYPE_XML_FRAGMENT = 4;
+    public static final int TYPE_XML_HOOK = 5;
+    public static final int TYPE_XML_TEXT = 6;
+
+    private final int ref;
+
+    private long deletedLength;
+    private List<String> jsonValues;
+    private byte[] binary;
+    private String str;
+    private String embed;
+    private String formatKey;
+    private String formatValue;
+    private int typeRef;
+    private String typeName;
+    private List<byte[]> anyValues;
+    private String docGuid;
+    private byte[] docOpts;
+
+    private YContent(int ref) {
+        this.ref = ref;
+    }
+
+    public static YContent deleted(long length) {
+        YContent c = new YContent(DELETED);
+        c.deletedLength = length;
+        return c;
+    }
+
+    public static YContent string(String str) {
+        YContent c = new YContent(STRING);
+        c.str = str;
+        return c;
+    }
+
+    static YContent read(Lib0Decoder decoder, int ref) {
+        YContent c = new YContent(ref);
+        switch (ref) {
+            case DELETED -> c.deletedLength = decoder.readVarUint();
+            case JSON -> {
+                int len = (int) decoder.readVarUint();
+                c.jsonValues = new ArrayList<>(len);
+                for (int i = 0; i < len; i++) {
+                    c.jsonValues.add(decoder.readVarString());
+                }
+            }
+            case BINARY -> c.binary = decoder.readVarUint8Array();
+            case STRING -> c.str = decoder.readVarString();
+            case EMBED -> c.embed = decoder.readVarString();
+            case FORMAT -> {
+                c.formatKey = decoder.readVarString();
+                c.formatValue = decoder.readVarString();
+            }
+            case TYPE -> {
+                c.typeRef = (int) decoder.readVarUint();
+                if (c.typeRef == TYPE_XML_ELEMENT || c.typeRef == TYPE_XML_HOOK) {
+                    c.typeName = decoder.readVarString();
+                }
+            }
+            case ANY -> {
+                int len = (int) decoder.readVarUint();
+                c.anyValues = new ArrayList<>(len);
+                for (int i = 0; i < len; i++) {
+                    c.anyValues.add(decoder.readAnyRaw());
+                }
+            }
+            case DOC -> {
+                c.docGuid = decoder.readVarString();
+                c.docOpts = decoder.readAnyRaw();
+            }
+            default -> throw new IllegalArgumentException("Yjs 数据格式错误：未知的内容类型 " + ref);
+        }
+        return c;
+    }
+
+    /**
+     * 从 offset 开始写出内容（offset 之前的部分已被对端持有）
+     */
+    void write(Lib0Encoder encoder, int offset) {
+        switch (ref) {
+            case DELETED -> encoder.writeVarUint(deletedLength - offset);
+            case JSON -> {
+                encoder.writeVarUint(jsonValues.size() - offset);
+                for (int i = offset; i < jsonValues.size(); i++) {
+                    encoder.writeVarString(jsonValues.get(i));
+                }
+            }
+            case BINARY -> encoder.writeVarUint8Array(binary);
+            case STRING -> encoder.writeVarString(offset == 0 ? str : str.substring(offset));
+            case EMBED -> encoder.writeVarString(embed);
+            case FORMAT -> {
+                encoder.writeVarString(formatKey);
+                encoder.writeVarString(formatValue);
+            }
+            case TYPE -> {
+                encoder.writeVarUint(typeRef);
+                if (typeRef == TYPE_XML_ELEMENT || typeRef == TYPE_XML_HOOK) {
+                    encoder.writeVarString(typeName);
+                }
+            }
+            case ANY -> {
+                encoder.writeVarUint(anyValues.size() - offset);
+                for (int i = offset; i < anyValues.size(); i++) {
+                    encoder.writeBytes(anyValues.get(i));
+                }
+            }
+            case DOC -> {
+                encoder.writeVarString(docGuid);
+                encoder.writeBytes(docOpts);
+            }
+            default -> throw new IllegalStateException("未知的内容类型 " + ref);
+        }
+    }
+
+    /**
+     * 返回 offset 之后的右半部分，不修改当前对象
+     */
+    YContent splice(int offset) {
+        switch (ref) {
+            case DELETED:
+                return deleted(deletedLength - offset);
+            case JSON: {
+                YContent c = new YContent(JSON);
+                c.jsonValues = new ArrayList<>(jsonValues.subList(offset, jsonValues.size()));
+                return c;
+            }
+            case STRING: {
+                String right = str.substring(offset);
+                // 与 Yjs 一致：切分点落在代理对中间时用替换字符补位
+                if (offset > 0 && Character.isHighSurrogate(str.charAt(offset - 1)) && !right.isEmpty()) {
+                    right = '\uFFFD' + right.substring(1);
+                }
+                return string(right);
+            }
+            case ANY: {
+                YContent c = new YContent(ANY);
+                c.anyValues = new ArrayList<>(anyValues.subList(offset, anyValues.size()));
+                return c;
+            }
+            default:
+                throw new IllegalStateException("内容类型 " + ref + " 不可切分");
+        }
+    }
+
+    public int getRef() {
+        return ref;
+    }
+
+    public long getLength() {
+        return switch (ref) {
+            case DELETED -> deletedLength;
+            case JSON -> jsonValues.size();
+            case STRING -> str.length();
+            case ANY -> anyValues.size();
+            default -> 1;
+        };
+    }
+
+    /**
+     * 是否计入父类型的长度（已删除内容和格式标记不计入）
+     */
+    public boolean isCountable() {
+        return ref != DELETED && ref != FORMAT;
+    }
+
+    public String getString() {
+        return str;
+    }
+
+    public String getEmbed() {
+        return embed;
+    }
+
+    public String getFormatKey() {
+        return formatKey;
+    }
+
+    public String getFormatValue() {
+        return formatValue;
+    }
+
+    public int getTypeRef() {
+        return typeRef;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public List<String> getJsonValues() {
+        return jsonValues;
+    }
+
+    /**
+     * 解析 ContentAny 中的值
+     */
+    public List<Object> getAnyValues() {
+        List<Object> values = new ArrayList<>(anyValues.size());
+        for (byte[] raw : anyValues) {
+            values.add(new Lib0Decoder(raw).readAny());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,420 @@
+package com.syncnote.document.yjs;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 从 Yjs 状态中提取可读文本（供 AI 构造上下文）
+ * 在内存中按 YATA 规则把 Item 重新排好序（只读，不支持继续修改），再把根类型渲染成文本：
+ * 1. content-xml（TipTap Markdown 编辑器）/ prosemirror（旧字段）的 XmlFragment 渲染为 Markdown
+ * 2. content（纯文本编辑器）的 Y.Text 原样输出
+ * 为了不处理 Item 的拆分，字符串等可切分内容按单个单位展开，每个单位的 origin 指向前一个单位，与 Yjs 拆分后的结果一致
+ */
+public final class YDocumentText {
+
+    /**
+     * 按优先级排列的 XmlFragment 根类型
+     */
+    private static final List<String> XML_ROOTS = List.of("content-xml", "prosemirror");
+
+    /**
+     * 纯文本编辑器使用的 Y.Text 根类型
+     */
+    private static final String TEXT_ROOT = "content";
+
+    private final Map<YId, Node> nodes = new HashMap<>();
+    private final List<Node> order = new ArrayList<>();
+    private final Map<String, Type> roots = new HashMap<>();
+
+    private YDocumentText() {
+    }
+
+    /**
+     * 把文档状态渲染为文本：优先 Markdown 编辑器的内容，没有时使用纯文本编辑器的内容
+     *
+     * @param update 完整的文档状态（V1 编码）
+     * @return 文本，没有内容时返回空字符串
+     * @throws IllegalArgumentException 数据格式错误
+     */
+    public static String extract(byte[] update) {
+        if (YUpdates.isEmpty(update)) {
+            return "";
+        }
+        YDocumentText doc = new YDocumentText();
+        doc.load(update);
+        for (String root : XML_ROOTS) {
+            Type fragment = doc.roots.get(root);
+            if (fragment != null) {
+                String markdown = String.join("\n\n", blocks(fragment)).strip();
+                if (!markdown.isEmpty()) {
+                    return markdown;
+                }
+            }
+        }
+        Type text = doc.roots.get(TEXT_ROOT);
+        return text != null ? text(text) : "";
+    }
+
+    private void load(byte[] update) {
+        for (YStruct struct : YUpdates.readStructs(update)) {
+            if (struct.getKind() == YStruct.Kind.ITEM) {
+                expand(struct);
+            }
+        }
+        for (Node node : order) {
+            ensureIntegrated(node);
+        }
+        YUpdates.readDeleteSet(update).forEach((client, ranges) -> {
+            for (long[] range : ranges) {
+                for (long clock = range[0]; clock < range[0] + range[1]; clock++) {
+                    Node node = nodes.get(new YId(client, clock));
+                    if (node != null) {
+                        node.deleted = true;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 把一个 Item 按单位展开成节点
+     */
+    private void expand(YStruct struct) {
+        YContent content = struct.getContent();
+        List<Object> values = switch (content.getRef()) {
+            case YContent.ANY -> content.getAnyValues();
+            case YContent.JSON -> new ArrayList<>(content.getJsonValues());
+            default -> null;
+        };
+        long length = struct.getLength();
+        for (int i = 0; i < length; i++) {
+            long clock = struct.getClock() + i;
+            Node node = new Node(struct.getClient(), clock, content);
+            if (i == 0) {
+                node.origin = struct.getOrigin();
+                node.parentYKey = struct.getParentYKey();
+                node.parentId = struct.getParentId();
+                node.parentSub = struct.getParentSub();
+            } else {
+                node.origin = new YId(struct.getClient(), clock - 1);
+            }
+            node.rightOrigin = struct.getRightOrigin();
+            node.deleted = content.getRef() == YContent.DELETED;
+            if (content.getRef() == YContent.STRING) {
+                node.value = content.getString().charAt(i);
+            } else if (values != null) {
+                node.value = values.get(i);
+            }
+            nodes.put(new YId(node.client, node.clock), node);
+            order.add(node);
+        }
+    }
+
+    /**
+     * 先集成依赖（同一 client 的前一个单位、左右 origin、父类型），再集成自身
+     * 依赖链可能很长，用显式栈代替递归
+     */
+    private void ensureIntegrated(Node start) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            Node node = stack.peek();
+            if (node.integrated) {
+                stack.pop();
+                continue;
+            }
+            node.visiting = true;
+            Node dependency = pendingDependency(node);
+            if (dependency != null) {
+                stack.push(dependency);
+                continue;
+            }
+            integrate(node);
+            node.integrated = true;
+            node.visiting = false;
+            stack.pop();
+        }
+    }
+
+    private Node pendingDependency(Node node) {
+        for (YId id : new YId[]{new YId(node.client, node.clock - 1), node.origin, node.rightOrigin, node.parentId}) {
+            if (id == null) {
+                continue;
+            }
+            Node dependency = nodes.get(id);
+            // 正在集成的节点说明数据存在环，按缺失处理
+            if (dependency != null && !dependency.integrated && !dependency.visiting) {
+                return dependency;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 对应 Yjs Item.integrate 中确定左右邻居的部分（YATA 冲突解决）
+     */
+    private void integrate(Node node) {
+        Node left = node.origin != null ? integratedNode(node.origin) : null;
+        Node right = node.rightOrigin != null ? integratedNode(node.rightOrigin) : null;
+        // 引用的 Item 已被 GC（或数据不完整）时，与 Yjs 一样把该 Item 视为 GC
+        if ((node.origin != null && left == null) || (node.rightOrigin != null && right == null)) {
+            return;
+        }
+
+        Type parent;
+        if (node.parentYKey != null) {
+            parent = roots.computeIfAbsent(node.parentYKey, key -> new Type(null, -1));
+        } else if (node.parentId != null) {
+            Node parentItem = integratedNode(node.parentId);
+            parent = parentItem != null ? parentItem.type : null;
+        } else if (left != null) {
+            parent = left.parent;
+            node.parentSub = left.parentSub;
+        } else if (right != null) {
+            parent = right.parent;
+            node.parentSub = right.parentSub;
+        } else {
+            parent = null;
+        }
+        if (parent == null) {
+            return;
+        }
+        node.parent = parent;
+        if (node.content.getRef() == YContent.TYPE) {
+            node.type = new Type(node.content.getTypeName(), node.content.getTypeRef());
+        }
+
+        if ((left == null && (right == null || right.left != null)) || (left != null && left.right != right)) {
+            Node o;
+            if (left != null) {
+                o = left.right;
+            } else if (node.parentSub != null) {
+                o = leftmost(parent.map.get(node.parentSub));
+            } else {
+                o = parent.start;
+            }
+            Set<Node> conflicting = new HashSet<>();
+            Set<Node> itemsBeforeOrigin = new HashSet<>();
+            while (o != null && o != right) {
+                itemsBeforeOrigin.add(o);
+                conflicting.add(o);
+                if (Objects.equals(node.origin, o.origin)) {
+                    if (o.client < node.client) {
+                        left = o;
+                        conflicting.clear();
+                    } else if (Objects.equals(node.rightOrigin, o.rightOrigin)) {
+                        break;
+                    }
+                } else if (o.origin != null && itemsBeforeOrigin.contains(nodes.get(o.origin))) {
+                    if (!conflicting.contains(nodes.get(o.origin))) {
+                        left = o;
+                        conflicting.clear();
+                    }
+                } else {
+                    break;
+                }
+                o = o.right;
+            }
+        }
+
+        if (left != null) {
+            right = left.right;
+            left.right = node;
+        } else if (node.parentSub != null) {
+            right = leftmost(parent.map.get(node.parentSub));
+        } else {
+            right = parent.start;
+            parent.start = node;
+        }
+        node.left = left;
+        node.right = right;
+        if (right != null) {
+            right.left = node;
+        } else if (node.parentSub != null) {
+            // map 中保存最右边的条目，即当前值
+            parent.map.put(node.parentSub, node);
+        }
+    }
+
+    private Node integratedNode(YId id) {
+        Node node = nodes.get(id);
+        return node != null && node.integrated && node.parent != null ? node : null;
+    }
+
+    private static Node leftmost(Node node) {
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    // ------------------------------------------------------------------ 渲染
+
+    /**
+     * 容器下的 Markdown 块
+     */
+    private static List<String> blocks(Type container) {
+        List<String> blocks = new ArrayList<>();
+        for (Type child : children(container)) {
+            String block = block(child);
+            if (!block.isBlank()) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    private static String block(Type node) {
+        if (node.typeRef == YContent.TYPE_XML_TEXT || node.typeRef == YContent.TYPE_TEXT) {
+            return text(node);
+        }
+        String name = node.name != null ? node.name : "";
+        return switch (name) {
+            case "paragraph" -> inline(node);
+            case "heading" -> "#".repeat(headingLevel(node)) + " " + inline(node);
+            case "blockquote" -> prefixLines(String.join("\n\n", blocks(node)), "> ", "> ");
+            case "bulletList", "orderedList", "taskList" -> list(node, name.equals("orderedList"));
+            case "codeBlock" -> {
+                Object language = attribute(node, "language");
+                yield "```" + (language != null ? language : "") + "\n" + inline(node) + "\n```";
+            }
+            case "horizontalRule" -> "---";
+            default -> {
+                List<String> nested = blocks(node);
+                yield nested.isEmpty() ? inline(node) : String.join("\n\n", nested);
+            }
+        };
+    }
+
+    private static String list(Type list, boolean ordered) {
+        StringBuilder sb = new StringBuilder();
+        int index = 1;
+        for (Type item : children(list)) {
+            String marker = ordered ? (index++) + ". " : "- ";
+            String body = String.join("\n", blocks(item));
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(prefixLines(body, marker, " ".repeat(marker.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 块内的行内文本：XmlText 直接拼接，hardBreak 换行，其他行内元素取其文本
+     */
+    private static String inline(Type node) {
+        StringBuilder sb = new StringBuilder();
+        for (Type child : children(node)) {
+            if (child.typeRef == YContent.TYPE_XML_TEXT || child.typeRef == YContent.TYPE_TEXT) {
+                sb.append(text(child));
+            } else if ("hardBreak".equals(child.name)) {
+                sb.append('\n');
+            } else {
+                sb.append(inline(child));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Y.Text / Y.XmlText 的字符串内容（忽略格式标记和嵌入对象）
+     */
+    private static String text(Type type) {
+        StringBuilder sb = new StringBuilder();
+        for (Node n = type.start; n != null; n = n.right) {
+            if (!n.deleted && n.content.getRef() == YContent.STRING) {
+                sb.append((char) n.value);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<Type> children(Type type) {
+        List<Type> children = new ArrayList<>();
+        for (Node n = type.start; n != null; n = n.right) {
+            if (!n.deleted && n.type != null) {
+                children.add(n.type);
+            }
+        }
+        return children;
+    }
+
+    private static Object attribute(Type type, String key) {
+        Node entry = type.map.get(key);
+        return entry != null && !entry.deleted ? entry.value : null;
+    }
+
+    private static int headingLevel(Type heading) {
+        Object level = attribute(heading, "level");
+        try {
+            int value = level instanceof Number number ? number.intValue() : Integer.parseInt(String.valueOf(level));
+            return Math.max(1, Math.min(6, value));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static String prefixLines(String text, String first, String rest) {
+        String[] lines = text.split("\n", -1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            sb.append(i == 0 ? first : rest).append(lines[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 展开后的单个单位
+     */
+    private static final class Node {
+        final long client;
+        final long clock;
+        final YContent content;
+        YId origin;
+        YId rightOrigin;
+        String parentYKey;
+        YId parentId;
+        String parentSub;
+        Object value;
+        boolean deleted;
+
+        Node left;
+        Node right;
+        Type parent;
+        Type type;
+        boolean integrated;
+        boolean visiting;
+
+        Node(long client, long clock, YContent content) {
+            this.client = client;
+            this.clock = clock;
+            this.content = content;
+        }
+    }
+
+    /**
+     * 共享类型（根类型、XmlElement、XmlText 等）
+     */
+    private static final class Type {
+        final String name;
+        final int typeRef;
+        Node start;
+        final Map<String, Node> map = new HashMap<>();
+
+        Type(String name, int typeRef) {
+            this.name = name;
+            this.typeRef = typeRef;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.syncnote.document.yjs;
+
+/**
+ * Yjs 中的操作标识：(client, clock)
+ * client 为 uint32，clock 为单调递增的逻辑时钟，二者都用 long 保存避免溢出
+ */
+public record YId(long client, long clock) {
+}
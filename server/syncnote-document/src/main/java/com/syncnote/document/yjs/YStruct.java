@@ -0,0 +1,209 @@
+package com.syncnote.document.yjs;
+
+/**
+ * 更新中的一个结构体（对应 Yjs 的 GC / Skip / Item）
+ * 这里只做"惰性解码"：不集成进文档，只保留重新编码所需的字段
+ */
+public class YStruct {
+
+    public enum Kind {
+        GC,
+        SKIP,
+        ITEM
+    }
+
+    private static final int BIT6 = 0x20;
+    private static final int BIT7 = 0x40;
+    private static final int BIT8 = 0x80;
+    private static final int BITS5 = 0x1F;
+
+    private final Kind kind;
+    private final long client;
+    private final long clock;
+    private long length;
+
+    private final YId origin;
+    private final YId rightOrigin;
+    private final String parentYKey;
+    private final YId parentId;
+    private final String parentSub;
+    private final YContent content;
+
+    private YStruct(Kind kind, long client, long clock, long length,
+                    YId origin, YId rightOrigin, String parentYKey, YId parentId,
+                    String parentSub, YContent content) {
+        this.kind = kind;
+        this.client = client;
+        this.clock = clock;
+        this.length = length;
+        this.origin = origin;
+        this.rightOrigin = rightOrigin;
+        this.parentYKey = parentYKey;
+        this.parentId = parentId;
+        this.parentSub = parentSub;
+        this.content = content;
+    }
+
+    static YStruct gc(long client, long clock, long length) {
+        return new YStruct(Kind.GC, client, clock, length, null, null, null, null, null, null);
+    }
+
+    static YStruct skip(long client, long clock, long length) {
+        return new YStruct(Kind.SKIP, client, clock, length, null, null, null, null, null, null);
+    }
+
+    static YStruct item(long client, long clock, YId origin, YId rightOrigin,
+                        String parentYKey, YId parentId, String parentSub, YContent content) {
+        return new YStruct(Kind.ITEM, client, clock, content.getLength(),
+                origin, rightOrigin, parentYKey, parentId, parentSub, content);
+    }
+
+    /**
+     * 按 V1 格式读取一个结构体
+     */
+    static YStruct read(Lib0Decoder decoder, long client, long clock) {
+        int info = decoder.readUint8();
+        if (info == 10) {
+            return skip(client, clock, decoder.readVarUint());
+        }
+        if ((info & BITS5) != 0) {
+            boolean cantCopyParentInfo = (info & (BIT7 | BIT8)) == 0;
+            YId origin = (info & BIT8) == BIT8 ? readId(decoder) : null;
+            YId rightOrigin = (info & BIT7) == BIT7 ? readId(decoder) : null;
+            String parentYKey = null;
+            YId parentId = null;
+            if (cantCopyParentInfo) {
+                if (decoder.readVarUint() == 1) {
+                    parentYKey = decoder.readVarString();
+                } else {
+                    parentId = readId(decoder);
+                }
+            }
+            String parentSub = cantCopyParentInfo && (info & BIT6) == BIT6 ? decoder.readVarString() : null;
+            YContent content = YContent.read(decoder, info & BITS5);
+            return item(client, clock, origin, rightOrigin, parentYKey, parentId, parentSub, content);
+        }
+        return gc(client, clock, decoder.readVarUint());
+    }
+
+    /**
+     * 从 offset 开始写出该结构体
+     */
+    void write(Lib0Encoder encoder, int offset) {
+        switch (kind) {
+            case GC -> {
+                encoder.writeUint8(0);
+                encoder.writeVarUint(length - offset);
+            }
+            case SKIP -> {
+                encoder.writeUint8(10);
+                encoder.writeVarUint(length - offset);
+            }
+            case ITEM -> {
+                YId writeOrigin = offset > 0 ? new YId(client, clock + offset - 1) : origin;
+                int info = (content.getRef() & BITS5)
+                        | (writeOrigin == null ? 0 : BIT8)
+                        | (rightOrigin == null ? 0 : BIT7)
+                        | (parentSub == null ? 0 : BIT6);
+                encoder.writeUint8(info);
+                if (writeOrigin != null) {
+                    writeId(encoder, writeOrigin);
+                }
+                if (rightOrigin != null) {
+                    writeId(encoder, rightOrigin);
+                }
+                if (writeOrigin == null && rightOrigin == null) {
+                    if (parentYKey != null) {
+                        encoder.writeVarUint(1);
+                        encoder.writeVarString(parentYKey);
+                    } else {
+                        encoder.writeVarUint(0);
+                        writeId(encoder, parentId);
+                    }
+                    if (parentSub != null) {
+                        encoder.writeVarString(parentSub);
+                    }
+                }
+                content.write(encoder, offset);
+            }
+        }
+    }
+
+    /**
+     * 切掉前 diff 个单位，返回剩余部分
+     */
+    YStruct slice(long diff) {
+        return switch (kind) {
+            case GC -> gc(client, clock + diff, length - diff);
+            case SKIP -> skip(client, clock + diff, length - diff);
+            case ITEM -> item(client, clock + diff, new YId(client, clock + diff - 1), rightOrigin,
+                    parentYKey, parentId, parentSub, content.splice((int) diff));
+        };
+    }
+
+    /**
+     * 合并相邻结构体。惰性解码的 Item 没有左右邻居信息，因此只有 GC/Skip 能合并
+     */
+    boolean mergeWith(YStruct right) {
+        if (kind == Kind.ITEM || kind != right.kind) {
+            return false;
+        }
+        this.length += right.length;
+        return true;
+    }
+
+    private static YId readId(Lib0Decoder decoder) {
+        long c = decoder.readVarUint();
+        long k = decoder.readVarUint();
+        return new YId(c, k);
+    }
+
+    private static void writeId(Lib0Encoder encoder, YId id) {
+        encoder.writeVarUint(id.client());
+        encoder.writeVarUint(id.clock());
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getClient() {
+        return client;
+    }
+
+    public long getClock() {
+        return clock;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    void setLength(long length) {
+        this.length = length;
+    }
+
+    public YId getOrigin() {
+        return origin;
+    }
+
+    public YId getRightOrigin() {
+        return rightOrigin;
+    }
+
+    public String getParentYKey() {
+        return parentYKey;
+    }
+
+    public YId getParentId() {
+        return parentId;
+    }
+
+    public String getParentSub() {
+        return parentSub;
+    }
+
+    public YContent getContent() {
+        return content;
+    }
+}
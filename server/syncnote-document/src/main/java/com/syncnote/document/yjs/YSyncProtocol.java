@@ -0,0 +1,86 @@
+package com.syncnote.document.yjs;
+
+/**
+ * y-websocket / y-protocols 的消息格式
+ * 消息结构：[messageType varUint][...payload]
+ * 同步消息：[0][syncType varUint][varUint8Array]
+ */
+public final class YSyncProtocol {
+
+    public static final int MESSAGE_SYNC = 0;
+    public static final int MESSAGE_AWARENESS = 1;
+    public static final int MESSAGE_AUTH = 2;
+    public static final int MESSAGE_QUERY_AWARENESS = 3;
+
+    public static final int SYNC_STEP1 = 0;
+    public static final int SYNC_STEP2 = 1;
+    public static final int SYNC_UPDATE = 2;
+
+    public static final int AUTH_PERMISSION_DENIED = 0;
+
+    private YSyncProtocol() {
+    }
+
+    /**
+     * 解码后的消息；非同步消息的 syncType 为 -1，payload 为 null
+     */
+    public record Message(int messageType, int syncType, byte[] payload) {
+
+        public boolean isSync() {
+            return messageType == MESSAGE_SYNC;
+        }
+
+        public boolean isAwareness() {
+            return messageType == MESSAGE_AWARENESS;
+        }
+
+        /**
+         * 是否会修改文档内容（SyncStep2 或 Update）
+         */
+        public boolean isDocumentWrite() {
+            return isSync() && (syncType == SYNC_STEP2 || syncType == SYNC_UPDATE);
+        }
+    }
+
+    public static Message decode(byte[] data) {
+        Lib0Decoder decoder = new Lib0Decoder(data);
+        int messageType = (int) decoder.readVarUint();
+        if (messageType != MESSAGE_SYNC) {
+            return new Message(messageType, -1, null);
+        }
+        int syncType = (int) decoder.readVarUint();
+        byte[] payload = decoder.readVarUint8Array();
+        return new Message(messageType, syncType, payload);
+    }
+
+    public static byte[] encodeSyncStep1(byte[] stateVector) {
+        return encodeSync(SYNC_STEP1, stateVector);
+    }
+
+    public static byte[] encodeSyncStep2(byte[] update) {
+        return encodeSync(SYNC_STEP2, update);
+    }
+
+    public static byte[] encodeUpdate(byte[] update) {
+        return encodeSync(SYNC_UPDATE, update);
+    }
+
+    /**
+     * 权限拒绝消息：[2][0][reason varString]，y-websocket 客户端收到后会输出警告
+     */
+    public static byte[] encodePermissionDenied(String reason) {
+        Lib0Encoder encoder = new Lib0Encoder();
+        encoder.writeVarUint(MESSAGE_AUTH);
+        encoder.writeVarUint(AUTH_PERMISSION_DENIED);
+        encoder.writeVarString(reason);
+        return encoder.toByteArray();
+    }
+
+    private static byte[] encodeSync(int syncType, byte[] payload) {
+        Lib0Encoder encoder = new Lib0Encoder(payload.length + 8);
+        encoder.writeVarUint(MESSAGE_SYNC);
+        encoder.writeVarUint(syncType);
+        encoder.writeVarUint8Array(payload);
+        return encoder.toByteArray();
+    }
+}
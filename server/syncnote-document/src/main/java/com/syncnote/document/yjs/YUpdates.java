@@ -0,0 +1,537 @@
+package com.syncnote.document.yjs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Yjs V1 更新的纯二进制运算（移植自 yjs/src/utils/updates.js）
+ * 不需要在内存中构建完整的 Y.Doc，就能完成：
+ * 1. 合并多个更新（Y.mergeUpdates）
+ * 2. 按状态向量计算差量（Y.diffUpdate）
+ * 3. 从更新中提取状态向量（Y.encodeStateVectorFromUpdate）
+ */
+public final class YUpdates {
+
+    /**
+     * 空文档的更新：0 个结构体 + 0 条删除记录
+     */
+    public static final byte[] EMPTY_UPDATE = new byte[]{0, 0};
+
+    /**
+     * 空状态向量
+     */
+    public static final byte[] EMPTY_STATE_VECTOR = new byte[]{0};
+
+    private YUpdates() {
+    }
+
+    /**
+     * 把 null / 空数组统一成合法的空更新
+     */
+    public static byte[] normalize(byte[] update) {
+        return update == null || update.length == 0 ? EMPTY_UPDATE : update;
+    }
+
+    public static boolean isEmpty(byte[] update) {
+        return update == null || update.length == 0 || Arrays.equals(update, EMPTY_UPDATE);
+    }
+
+    /**
+     * 合并多个更新为一个，结果与 Y.mergeUpdates 一致
+     */
+    public static byte[] mergeUpdates(List<byte[]> updates) {
+        if (updates.isEmpty()) {
+            return EMPTY_UPDATE;
+        }
+        if (updates.size() == 1) {
+            return normalize(updates.getFirst());
+        }
+        List<Lib0Decoder> decoders = new ArrayList<>(updates.size());
+        List<LazyStructReader> readers = new ArrayList<>(updates.size());
+        for (byte[] update : updates) {
+            Lib0Decoder decoder = new Lib0Decoder(normalize(update));
+            decoders.add(decoder);
+            readers.add(new LazyStructReader(decoder, true));
+        }
+
+        LazyStructWriter writer = new LazyStructWriter();
+        YStruct currWrite = null;
+        int currOffset = 0;
+
+        while (true) {
+            // 先写 client 大的，同一 client 按 clock 升序
+            readers.removeIf(r -> r.curr == null);
+            readers.sort(READER_ORDER);
+            if (readers.isEmpty()) {
+                break;
+            }
+            LazyStructReader currDecoder = readers.getFirst();
+            long firstClient = currDecoder.curr.getClient();
+
+            if (currWrite != null) {
+                YStruct curr = currDecoder.curr;
+                boolean iterated = false;
+
+                // 跳过已经写过的部分
+                while (curr != null
+                        && curr.getClock() + curr.getLength() <= currWrite.getClock() + currWrite.getLength()
+                        && curr.getClient() >= currWrite.getClient()) {
+                    curr = currDecoder.next();
+                    iterated = true;
+                }
+                if (curr == null
+                        || curr.getClient() != firstClient
+                        || (iterated && curr.getClock() > currWrite.getClock() + currWrite.getLength())) {
+                    continue;
+                }
+
+                if (firstClient != currWrite.getClient()) {
+                    writer.write(currWrite, currOffset);
+                    currWrite = curr;
+                    currOffset = 0;
+                    currDecoder.next();
+                } else if (currWrite.getClock() + currWrite.getLength() < curr.getClock()) {
+                    // 中间存在缺口，用 Skip 占位
+                    if (currWrite.getKind() == YStruct.Kind.SKIP) {
+                        currWrite.setLength(curr.getClock() + curr.getLength() - currWrite.getClock());
+                    } else {
+                        writer.write(currWrite, currOffset);
+                        long diff = curr.getClock() - currWrite.getClock() - currWrite.getLength();
+                        currWrite = YStruct.skip(firstClient, currWrite.getClock() + currWrite.getLength(), diff);
+                        currOffset = 0;
+                    }
+                } else {
+                    long diff = currWrite.getClock() + currWrite.getLength() - curr.getClock();
+                    if (diff > 0) {
+                        if (currWrite.getKind() == YStruct.Kind.SKIP) {
+                            // 优先裁剪 Skip，因为另一个结构体携带更多信息
+                            currWrite.setLength(currWrite.getLength() - diff);
+                        } else {
+                            curr = curr.slice(diff);
+                        }
+                    }
+                    if (!currWrite.mergeWith(curr)) {
+                        writer.write(currWrite, currOffset);
+                        currWrite = curr;
+                        currOffset = 0;
+                        currDecoder.next();
+                    }
+                }
+            } else {
+                currWrite = currDecoder.curr;
+                currOffset = 0;
+                currDecoder.next();
+            }
+
+            for (YStruct next = currDecoder.curr;
+                 next != null
+                         && next.getClient() == firstClient
+                         && next.getClock() == currWrite.getClock() + currWrite.getLength()
+                         && next.getKind() != YStruct.Kind.SKIP;
+                 next = currDecoder.next()) {
+                writer.write(currWrite, currOffset);
+                currWrite = next;
+                currOffset = 0;
+            }
+        }
+        if (currWrite != null) {
+            writer.write(currWrite, currOffset);
+        }
+
+        Lib0Encoder encoder = writer.finish();
+        List<Map<Long, List<long[]>>> deleteSets = new ArrayList<>(decoders.size());
+        for (Lib0Decoder decoder : decoders) {
+            deleteSets.add(readDeleteSet(decoder));
+        }
+        writeDeleteSet(encoder, mergeDeleteSets(deleteSets));
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 计算对端（持有 stateVector）缺少的那部分更新，结果与 Y.diffUpdate 一致
+     */
+    public static byte[] diffUpdate(byte[] update, byte[] stateVector) {
+        return diffUpdate(update, stateVector, null);
+    }
+
+    /**
+     * 与 diffUpdate 相同，但删除集合中只保留 knownDeletes 之外的部分
+     * 对端同时持有状态向量和删除集合时（例如已落库的状态），差量的大小只与新增的编辑有关
+     */
+    public static byte[] diffUpdate(byte[] update, byte[] stateVector, Map<Long, List<long[]>> knownDeletes) {
+        Map<Long, Long> state = decodeStateVector(stateVector);
+        LazyStructWriter writer = new LazyStructWriter();
+        Lib0Decoder decoder = new Lib0Decoder(normalize(update));
+        LazyStructReader reader = new LazyStructReader(decoder, false);
+        while (reader.curr != null) {
+            YStruct curr = reader.curr;
+            long currClient = curr.getClient();
+            long svClock = state.getOrDefault(currClient, 0L);
+            if (curr.getKind() == YStruct.Kind.SKIP) {
+                // 写出的第一个结构体不能是 Skip
+                reader.next();
+                continue;
+            }
+            if (curr.getClock() + curr.getLength() > svClock) {
+                writer.write(curr, (int) Math.max(svClock - curr.getClock(), 0));
+                reader.next();
+                while (reader.curr != null && reader.curr.getClient() == currClient) {
+                    writer.write(reader.curr, 0);
+                    reader.next();
+                }
+            } else {
+                // 跳过对端已经拥有的部分
+                while (reader.curr != null
+                        && reader.curr.getClient() == currClient
+                        && reader.curr.getClock() + reader.curr.getLength() <= svClock) {
+                    reader.next();
+                }
+            }
+        }
+        Lib0Encoder encoder = writer.finish();
+        Map<Long, List<long[]>> ds = readDeleteSet(decoder);
+        writeDeleteSet(encoder, knownDeletes == null ? ds : subtractDeleteSet(ds, knownDeletes));
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 从更新中提取状态向量，结果与 Y.encodeStateVectorFromUpdate 一致
+     */
+    public static byte[] encodeStateVectorFromUpdate(byte[] update) {
+        return encodeStateVector(stateVectorFromUpdate(update));
+    }
+
+    /**
+     * 从更新中提取状态向量（client -> 下一个 clock），保持与更新中相同的 client 顺序
+     */
+    public static Map<Long, Long> stateVectorFromUpdate(byte[] update) {
+        Map<Long, Long> sv = new LinkedHashMap<>();
+        LazyStructReader reader = new LazyStructReader(new Lib0Decoder(normalize(update)), false);
+        YStruct curr = reader.curr;
+        if (curr == null) {
+            return sv;
+        }
+        long currClient = curr.getClient();
+        boolean stopCounting = curr.getClock() != 0;
+        long currClock = stopCounting ? 0 : curr.getClock() + curr.getLength();
+        for (; curr != null; curr = reader.next()) {
+            if (currClient != curr.getClient()) {
+                if (currClock != 0) {
+                    sv.put(currClient, currClock);
+                }
+                currClient = curr.getClient();
+                currClock = 0;
+                stopCounting = curr.getClock() != 0;
+            }
+            if (curr.getKind() == YStruct.Kind.SKIP) {
+                stopCounting = true;
+            }
+            if (!stopCounting) {
+                currClock = curr.getClock() + curr.getLength();
+            }
+        }
+        if (currClock != 0) {
+            sv.put(currClient, currClock);
+        }
+        return sv;
+    }
+
+    public static Map<Long, Long> decodeStateVector(byte[] stateVector) {
+        Map<Long, Long> state = new HashMap<>();
+        if (stateVector == null || stateVector.length == 0) {
+            return state;
+        }
+        Lib0Decoder decoder = new Lib0Decoder(stateVector);
+        long size = decoder.readVarUint();
+        for (long i = 0; i < size; i++) {
+            long client = decoder.readVarUint();
+            long clock = decoder.readVarUint();
+            state.put(client, clock);
+        }
+        return state;
+    }
+
+    public static byte[] encodeStateVector(Map<Long, Long> state) {
+        Lib0Encoder encoder = new Lib0Encoder();
+        encoder.writeVarUint(state.size());
+        state.forEach((client, clock) -> {
+            encoder.writeVarUint(client);
+            encoder.writeVarUint(clock);
+        });
+        return encoder.toByteArray();
+    }
+
+    /**
+     * 读出更新中的所有结构体（跳过 Skip），用于需要理解文档内容的场景
+     */
+    public static List<YStruct> readStructs(byte[] update) {
+        List<YStruct> structs = new ArrayList<>();
+        LazyStructReader reader = new LazyStructReader(new Lib0Decoder(normalize(update)), true);
+        for (YStruct s = reader.curr; s != null; s = reader.next()) {
+            structs.add(s);
+        }
+        return structs;
+    }
+
+    /**
+     * 读出更新末尾的删除集合：client -> [clock, len] 列表
+     */
+    public static Map<Long, List<long[]>> readDeleteSet(byte[] update) {
+        Lib0Decoder decoder = new Lib0Decoder(normalize(update));
+        LazyStructReader reader = new LazyStructReader(decoder, false);
+        while (reader.curr != null) {
+            reader.next();
+        }
+        return readDeleteSet(decoder);
+    }
+
+    /**
+     * 合并两个状态向量，每个 client 取较大的 clock
+     */
+    public static Map<Long, Long> mergeStateVectors(Map<Long, Long> a, Map<Long, Long> b) {
+        Map<Long, Long> merged = new HashMap<>(a);
+        b.forEach((client, clock) -> merged.merge(client, clock, Math::max));
+        return merged;
+    }
+
+    /**
+     * 合并两个删除集合，结果按 clock 排序且区间不重叠
+     */
+    public static Map<Long, List<long[]>> mergeDeleteSets(Map<Long, List<long[]>> a, Map<Long, List<long[]>> b) {
+        return mergeDeleteSets(List.of(a, b));
+    }
+
+    // ---------------------------------------------------------------- 删除集合
+
+    /**
+     * 从 ds 中去掉 known 已经覆盖的区间
+     */
+    private static Map<Long, List<long[]>> subtractDeleteSet(Map<Long, List<long[]>> ds, Map<Long, List<long[]>> known) {
+        Map<Long, List<long[]>> result = new HashMap<>();
+        ds.forEach((client, dels) -> {
+            List<long[]> remaining = new ArrayList<>();
+            for (long[] d : dels) {
+                remaining.add(new long[]{d[0], d[1]});
+            }
+            sortAndMerge(remaining);
+            List<long[]> knownDels = known.get(client);
+            if (knownDels != null && !knownDels.isEmpty()) {
+                List<long[]> sortedKnown = new ArrayList<>(knownDels);
+                sortedKnown.sort(Comparator.comparingLong(d -> d[0]));
+                remaining = subtractRanges(remaining, sortedKnown);
+            }
+            if (!remaining.isEmpty()) {
+                result.put(client, remaining);
+            }
+        });
+        return result;
+    }
+
+    private static List<long[]> subtractRanges(List<long[]> ranges, List<long[]> known) {
+        List<long[]> result = new ArrayList<>();
+        int k = 0;
+        for (long[] range : ranges) {
+            long start = range[0];
+            long end = range[0] + range[1];
+            while (k < known.size() && known.get(k)[0] + known.get(k)[1] <= start) {
+                k++;
+            }
+            for (int i = k; i < known.size() && start < end; i++) {
+                long knownStart = known.get(i)[0];
+                long knownEnd = knownStart + known.get(i)[1];
+                if (knownStart >= end) {
+                    break;
+                }
+                if (knownStart > start) {
+                    result.add(new long[]{start, knownStart - start});
+                }
+                start = Math.max(start, knownEnd);
+            }
+            if (start < end) {
+                result.add(new long[]{start, end - start});
+            }
+        }
+        return result;
+    }
+
+    private static Map<Long, List<long[]>> readDeleteSet(Lib0Decoder decoder) {
+        Map<Long, List<long[]>> ds = new HashMap<>();
+        if (!decoder.hasContent()) {
+            return ds;
+        }
+        long numClients = decoder.readVarUint();
+        for (long i = 0; i < numClients; i++) {
+            long client = decoder.readVarUint();
+            long numberOfDeletes = decoder.readVarUint();
+            if (numberOfDeletes > 0) {
+                List<long[]> dels = ds.computeIfAbsent(client, k -> new ArrayList<>());
+                for (long j = 0; j < numberOfDeletes; j++) {
+                    long clock = decoder.readVarUint();
+                    long len = decoder.readVarUint();
+                    dels.add(new long[]{clock, len});
+                }
+            }
+        }
+        return ds;
+    }
+
+    private static Map<Long, List<long[]>> mergeDeleteSets(List<Map<Long, List<long[]>>> deleteSets) {
+        Map<Long, List<long[]>> merged = new HashMap<>();
+        for (Map<Long, List<long[]>> ds : deleteSets) {
+            ds.forEach((client, dels) -> {
+                List<long[]> target = merged.computeIfAbsent(client, k -> new ArrayList<>());
+                for (long[] d : dels) {
+                    target.add(new long[]{d[0], d[1]});
+                }
+            });
+        }
+        merged.values().forEach(YUpdates::sortAndMerge);
+        return merged;
+    }
+
+    private static void sortAndMerge(List<long[]> dels) {
+        dels.sort(Comparator.comparingLong(d -> d[0]));
+        int j = 1;
+        for (int i = 1; i < dels.size(); i++) {
+            long[] left = dels.get(j - 1);
+            long[] right = dels.get(i);
+            if (left[0] + left[1] >= right[0]) {
+                left[1] = Math.max(left[1], right[0] + right[1] - left[0]);
+            } else {
+                if (j < i) {
+                    dels.set(j, right);
+                }
+                j++;
+            }
+        }
+        while (dels.size() > j) {
+            dels.removeLast();
+        }
+    }
+
+    private static void writeDeleteSet(Lib0Encoder encoder, Map<Long, List<long[]>> ds) {
+        // 与 Yjs 一致，按 client 降序写出
+        TreeMap<Long, List<long[]>> sorted = new TreeMap<>(Comparator.reverseOrder());
+        sorted.putAll(ds);
+        encoder.writeVarUint(sorted.size());
+        sorted.forEach((client, dels) -> {
+            encoder.writeVarUint(client);
+            encoder.writeVarUint(dels.size());
+            for (long[] d : dels) {
+                encoder.writeVarUint(d[0]);
+                encoder.writeVarUint(d[1]);
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------- 惰性读写
+
+    private static final Comparator<LazyStructReader> READER_ORDER = (a, b) -> {
+        YStruct s1 = a.curr;
+        YStruct s2 = b.curr;
+        if (s1.getClient() == s2.getClient()) {
+            long clockDiff = s1.getClock() - s2.getClock();
+            if (clockDiff == 0) {
+                if (s1.getKind() == s2.getKind()) {
+                    return 0;
+                }
+                return s1.getKind() == YStruct.Kind.SKIP ? 1 : -1;
+            }
+            return Long.compare(s1.getClock(), s2.getClock());
+        }
+        return Long.compare(s2.getClient(), s1.getClient());
+    };
+
+    /**
+     * 逐个读取结构体，不在内存中展开整个更新
+     */
+    private static final class LazyStructReader {
+        private final Lib0Decoder decoder;
+        private final boolean filterSkips;
+        private long remainingClients;
+        private long remainingStructs;
+        private long client;
+        private long clock;
+        private YStruct curr;
+
+        LazyStructReader(Lib0Decoder decoder, boolean filterSkips) {
+            this.decoder = decoder;
+            this.filterSkips = filterSkips;
+            this.remainingClients = decoder.readVarUint();
+            next();
+        }
+
+        YStruct next() {
+            do {
+                curr = readNext();
+            } while (filterSkips && curr != null && curr.getKind() == YStruct.Kind.SKIP);
+            return curr;
+        }
+
+        private YStruct readNext() {
+            while (remainingStructs == 0) {
+                if (remainingClients == 0) {
+                    return null;
+                }
+                remainingClients--;
+                remainingStructs = decoder.readVarUint();
+                client = decoder.readVarUint();
+                clock = decoder.readVarUint();
+            }
+            remainingStructs--;
+            YStruct struct = YStruct.read(decoder, client, clock);
+            clock += struct.getLength();
+            return struct;
+        }
+    }
+
+    /**
+     * 按 client 分段写出结构体，最后统一加上段数前缀
+     */
+    private static final class LazyStructWriter {
+        private final List<byte[]> parts = new ArrayList<>();
+        private final List<Integer> counts = new ArrayList<>();
+        private Lib0Encoder current = new Lib0Encoder();
+        private long currClient = 0;
+        private int written = 0;
+
+        void write(YStruct struct, int offset) {
+            if (written > 0 && currClient != struct.getClient()) {
+                flush();
+            }
+            if (written == 0) {
+                currClient = struct.getClient();
+                current.writeVarUint(struct.getClient());
+                current.writeVarUint(struct.getClock() + offset);
+            }
+            struct.write(current, offset);
+            written++;
+        }
+
+        private void flush() {
+            if (written > 0) {
+                parts.add(current.toByteArray());
+                counts.add(written);
+                current = new Lib0Encoder();
+                written = 0;
+            }
+        }
+
+        Lib0Encoder finish() {
+            flush();
+            Lib0Encoder encoder = new Lib0Encoder();
+            encoder.writeVarUint(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                encoder.writeVarUint(counts.get(i));
+                encoder.writeBytes(parts.get(i));
+            }
+            return encoder;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.syncnote.document.bus;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LocalRoomMessageBus (subscription by local subscriber count)
+ */
+class LocalRoomMessageBusTest {
+
+    @Test
+    void testDeliversOnlyToOtherSubscribedNodes() {
+        LocalRoomMessageBus.Hub hub = new LocalRoomMessageBus.Hub();
+        LocalRoomMessageBus nodeA = new LocalRoomMessageBus(hub);
+        LocalRoomMessageBus nodeB = new LocalRoomMessageBus(hub);
+        LocalRoomMessageBus nodeC = new LocalRoomMessageBus(hub);
+
+        List<String> receivedA = new ArrayList<>();
+        List<String> receivedB = new ArrayList<>();
+        List<String> receivedC = new ArrayList<>();
+        nodeA.setListener((docId, message) -> receivedA.add(docId));
+        nodeB.setListener((docId, message) -> receivedB.add(docId));
+        nodeC.setListener((docId, message) -> receivedC.add(docId));
+
+        assertTrue(nodeA.join("1"));
+        assertTrue(nodeB.join("1"));
+        assertTrue(nodeC.join("2"));
+
+        nodeA.publish("1", new byte[]{0, 2, 0});
+
+        assertTrue(receivedA.isEmpty());
+        assertEquals(List.of("1"), receivedB);
+        assertTrue(receivedC.isEmpty());
+    }
+
+    @Test
+    void testUnsubscribesAfterLastLocalSessionLeaves() {
+        LocalRoomMessageBus.Hub hub = new LocalRoomMessageBus.Hub();
+        LocalRoomMessageBus nodeA = new LocalRoomMessageBus(hub);
+        LocalRoomMessageBus nodeB = new LocalRoomMessageBus(hub);
+        List<byte[]> received = new ArrayList<>();
+        nodeB.setListener((docId, message) -> received.add(message));
+
+        assertTrue(nodeB.join("1"));
+        assertFalse(nodeB.join("1"));
+        nodeB.leave("1");
+        nodeA.publish("1", new byte[]{1});
+        assertEquals(1, received.size());
+
+        nodeB.leave("1");
+        nodeA.publish("1", new byte[]{2});
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void testFirstJoinWaitsForSubscriptionConfirmation() throws Exception {
+        CompletableFuture<Void> confirmed = new CompletableFuture<>();
+        AbstractRoomMessageBus bus = new AbstractRoomMessageBus() {
+            @Override
+            public void publish(String docId, byte[] message) {
+            }
+
+            @Override
+            protected CompletableFuture<Void> doSubscribe(String docId) {
+                return confirmed;
+            }
+
+            @Override
+            protected void doUnsubscribe(String docId) {
+            }
+        };
+
+        CompletableFuture<Boolean> joined = CompletableFuture.supplyAsync(() -> bus.join("1"));
+        // 订阅确认之前 join 不能返回，否则随后发布的追赶请求的回复可能丢失
+        assertThrows(TimeoutException.class, () -> joined.get(200, TimeUnit.MILLISECONDS));
+        // 等待发生在锁外，同一节点的其他连接不会被阻塞
+        assertFalse(bus.join("1"));
+
+        confirmed.complete(null);
+        assertTrue(joined.get(5, TimeUnit.SECONDS));
+    }
+}
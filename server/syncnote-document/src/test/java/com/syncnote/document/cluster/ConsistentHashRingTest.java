@@ -0,0 +1,37 @@
+package com.syncnote.document.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConsistentHashRing (key ownership and minimal movement on membership change)
+ */
+class ConsistentHashRingTest {
+
+    @Test
+    void testEmptyRingHasNoOwner() {
+        assertNull(new ConsistentHashRing(List.of(), 128).nodeFor("1"));
+    }
+
+    @Test
+    void testAddingNodeMovesOnlyItsShare() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("ws://a", "ws://b", "ws://c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("ws://a", "ws://b", "ws://c", "ws://d"), 128);
+        int moved = 0;
+        int total = 10000;
+        for (int i = 0; i < total; i++) {
+            String key = String.valueOf(i);
+            String owner = after.nodeFor(key);
+            if (!owner.equals(before.nodeFor(key))) {
+                moved++;
+                // 只会从旧节点移到新节点，不会在旧节点之间互相迁移
+                assertEquals("ws://d", owner);
+            }
+        }
+        // 理想情况为 1/4
+        assertTrue(moved > total / 8 && moved < total * 3 / 8, "moved=" + moved);
+    }
+}
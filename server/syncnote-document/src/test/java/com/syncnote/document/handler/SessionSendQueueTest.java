@@ -0,0 +1,139 @@
+package com.syncnote.document.handler;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SessionSendQueue (overflow policy, shared broadcast payloads)
+ */
+class SessionSendQueueTest {
+
+    /**
+     * 只记录任务、不执行，模拟客户端一直没有读走数据
+     */
+    private static final class StalledExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    }
+
+    private static WebSocketSession openSession() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private static BinaryMessage message(int size) {
+        return new BinaryMessage(new byte[size]);
+    }
+
+    @Test
+    void testDropsAwarenessBeforeDocumentUpdates() throws Exception {
+        WebSocketSession session = openSession();
+        SessionSendQueue queue = new SessionSendQueue(session, new StalledExecutor(), 10000, 100, 40);
+
+        assertTrue(queue.send(message(30)));
+        assertFalse(queue.sendDroppable(message(20)));
+        assertTrue(queue.send(message(30)));
+
+        assertEquals(1, queue.getDroppedMessages());
+        assertEquals(60, queue.getQueuedBytes());
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void testClosesSessionWhenBufferOverflows() throws Exception {
+        WebSocketSession session = openSession();
+        SessionSendQueue queue = new SessionSendQueue(session, new StalledExecutor(), 10000, 100, 40);
+
+        assertTrue(queue.send(message(80)));
+        assertFalse(queue.send(message(30)));
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertFalse(queue.isOpen());
+        assertEquals(0, queue.getQueuedBytes());
+    }
+
+    @Test
+    void testDrainSendsInOrder() throws Exception {
+        WebSocketSession session = openSession();
+        SessionSendQueue queue = new SessionSendQueue(session, Runnable::run, 10000, 100, 40);
+
+        BinaryMessage first = message(1);
+        BinaryMessage second = message(2);
+        queue.send(first);
+        queue.send(second);
+
+        var order = inOrder(session);
+        order.verify(session).sendMessage(first);
+        order.verify(session).sendMessage(second);
+        assertEquals(0, queue.getQueuedMessages());
+    }
+
+    @Test
+    void testSharedMessageIsSentIntactToConcurrentRecipients() throws Exception {
+        int recipients = 8;
+        byte[] data = new byte[200 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        BinaryMessage shared = new BinaryMessage(data);
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(recipients);
+        Map<String, byte[]> received = new ConcurrentHashMap<>();
+        List<SessionSendQueue> queues = new ArrayList<>();
+        for (int i = 0; i < recipients; i++) {
+            String id = "s" + i;
+            WebSocketSession session = mock(WebSocketSession.class);
+            when(session.getId()).thenReturn(id);
+            when(session.isOpen()).thenReturn(true);
+            // 和容器一样分段读取 payload，会移动 ByteBuffer 的 position
+            doAnswer(invocation -> {
+                start.await(5, TimeUnit.SECONDS);
+                ByteBuffer payload = ((BinaryMessage) invocation.getArgument(0)).getPayload();
+                byte[] out = new byte[payload.remaining()];
+                for (int offset = 0; offset < out.length; offset += 4096) {
+                    int length = Math.min(4096, out.length - offset);
+                    payload.get(out, offset, length);
+                    Thread.yield();
+                }
+                received.put(id, out);
+                done.countDown();
+                return null;
+            }).when(session).sendMessage(any());
+            queues.add(new SessionSendQueue(session, Executors.newVirtualThreadPerTaskExecutor(),
+                    10000, data.length * 2, 1024));
+        }
+
+        // 和广播一样，所有队列放入同一个消息对象
+        queues.forEach(queue -> assertTrue(queue.send(shared)));
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(recipients, received.size());
+        received.values().forEach(bytes -> assertTrue(Arrays.equals(data, bytes)));
+        assertEquals(data.length, shared.getPayload().remaining());
+    }
+}
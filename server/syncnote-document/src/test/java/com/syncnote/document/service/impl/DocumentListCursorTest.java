@@ -0,0 +1,34 @@
+package com.syncnote.document.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DocumentListCursor (round trip and rejection of foreign cursors)
+ */
+class DocumentListCursorTest {
+
+    @Test
+    void testRoundTrip() {
+        DocumentListCursor cursor = new DocumentListCursor("updated_at", Instant.parse("2024-05-01T08:30:00Z"), 1789000000000000001L);
+        String encoded = cursor.encode();
+        assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="));
+        assertEquals(cursor, DocumentListCursor.decode(encoded, "updated_at"));
+    }
+
+    @Test
+    void testEmptyCursorMeansFirstPage() {
+        assertNull(DocumentListCursor.decode(null, "updated_at"));
+        assertNull(DocumentListCursor.decode("", "updated_at"));
+    }
+
+    @Test
+    void testRejectsInvalidOrMismatchedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> DocumentListCursor.decode("not a cursor", "updated_at"));
+        String createdCursor = new DocumentListCursor("created_at", Instant.EPOCH, 1L).encode();
+        assertThrows(IllegalArgumentException.class, () -> DocumentListCursor.decode(createdCursor, "updated_at"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.syncnote.document.service.impl;
+
+import com.syncnote.document.config.DocumentPermissionCacheProperties;
+import com.syncnote.document.event.CollaboratorPermissionChangedEvent;
+import com.syncnote.document.mapper.DocumentCollaboratorMapper;
+import com.syncnote.document.mapper.DocumentMapper;
+import com.syncnote.document.model.DocStatus;
+import com.syncnote.document.model.Document;
+import com.syncnote.document.model.DocumentCollaborator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DocumentPermissionServiceImpl (cache invalidation with mocked mappers)
+ */
+class DocumentPermissionServiceImplTest {
+
+    private static final Long DOC_ID = 1L;
+    private static final Long OWNER_ID = 10L;
+    private static final Long USER_ID = 20L;
+
+    private DocumentMapper documentMapper;
+    private DocumentCollaboratorMapper collaboratorMapper;
+    private DocumentPermissionServiceImpl service;
+
+    private static DocumentCollaborator collaborator(DocumentCollaborator.Permission permission) {
+        DocumentCollaborator collaborator = new DocumentCollaborator();
+        collaborator.setPermission(permission);
+        return collaborator;
+    }
+
+    @BeforeEach
+    void setUp() {
+        documentMapper = mock(DocumentMapper.class);
+        collaboratorMapper = mock(DocumentCollaboratorMapper.class);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(mock(RedisConnection.class));
+
+        service = new DocumentPermissionServiceImpl();
+        ReflectionTestUtils.setField(service, "documentMapper", documentMapper);
+        ReflectionTestUtils.setField(service, "documentCollaboratorMapper", collaboratorMapper);
+        ReflectionTestUtils.setField(service, "properties", new DocumentPermissionCacheProperties());
+        ReflectionTestUtils.setField(service, "connectionFactory", connectionFactory);
+        ReflectionTestUtils.setField(service, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        service.init();
+    }
+
+    @Test
+    void testEvictDuringLoadDoesNotCacheStaleValue() {
+        // 第一次查询数据库期间权限被修改：返回的是旧值，但不能写入缓存
+        when(collaboratorMapper.selectOne(any()))
+                .thenAnswer(invocation -> {
+                    service.evict(DOC_ID, USER_ID);
+                    return collaborator(DocumentCollaborator.Permission.WRITE);
+                })
+                .thenReturn(collaborator(DocumentCollaborator.Permission.READ));
+
+        assertEquals(DocumentCollaborator.Permission.WRITE, service.getCollaboratorPermission(DOC_ID, USER_ID));
+        assertEquals(DocumentCollaborator.Permission.READ, service.getCollaboratorPermission(DOC_ID, USER_ID));
+        assertEquals(DocumentCollaborator.Permission.READ, service.getCollaboratorPermission(DOC_ID, USER_ID));
+        verify(collaboratorMapper, times(2)).selectOne(any());
+    }
+
+    @Test
+    void testCollaboratorEventEvictsCachedPermission() {
+        when(collaboratorMapper.selectOne(any()))
+                .thenReturn(collaborator(DocumentCollaborator.Permission.READ))
+                .thenReturn(collaborator(DocumentCollaborator.Permission.WRITE));
+
+        assertEquals(DocumentCollaborator.Permission.READ, service.getCollaboratorPermission(DOC_ID, USER_ID));
+        assertEquals(DocumentCollaborator.Permission.READ, service.getCollaboratorPermission(DOC_ID, USER_ID));
+        verify(collaboratorMapper, times(1)).selectOne(any());
+
+        service.onPermissionChanged(new CollaboratorPermissionChangedEvent(
+                DOC_ID, USER_ID, DocumentCollaborator.Permission.WRITE));
+
+        assertEquals(DocumentCollaborator.Permission.WRITE, service.getCollaboratorPermission(DOC_ID, USER_ID));
+        verify(collaboratorMapper, times(2)).selectOne(any());
+    }
+
+    @Test
+    void testEvictDocumentClearsOwnerAndAllUsers() {
+        Document document = new Document();
+        document.setOwnerId(OWNER_ID);
+        document.setStatus(DocStatus.Active);
+        when(documentMapper.selectOne(any())).thenReturn(document);
+        when(collaboratorMapper.selectOne(any())).thenReturn(collaborator(DocumentCollaborator.Permission.READ));
+
+        service.getPermission(DOC_ID, OWNER_ID);
+        service.getPermission(DOC_ID, USER_ID);
+        // 只清除一个用户时，同一文档的其他用户仍然命中缓存
+        service.evict(DOC_ID, OWNER_ID);
+        service.getPermission(DOC_ID, USER_ID);
+        verify(documentMapper, times(1)).selectOne(any());
+        verify(collaboratorMapper, times(2)).selectOne(any());
+
+        service.evictDocument(DOC_ID);
+        service.getPermission(DOC_ID, USER_ID);
+        verify(documentMapper, times(2)).selectOne(any());
+        verify(collaboratorMapper, times(3)).selectOne(any());
+    }
+}
@@ -0,0 +1,176 @@
+package com.syncnote.document.service.impl;
+
+import com.syncnote.document.config.DocumentPersistenceProperties;
+import com.syncnote.document.service.IDocumentStateService;
+import com.syncnote.document.yjs.YUpdates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.syncnote.document.yjs.YUpdateFixtures.rootInsert;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DocumentStateWriteBuffer (per-document flush serialization, retention of failed states,
+ * reads racing with flushes)
+ */
+class DocumentStateWriteBufferTest {
+
+    private static final Long DOC_ID = 1L;
+
+    private IDocumentStateService stateService;
+    private DocumentPersistenceProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private DocumentStateWriteBuffer buffer;
+
+    private static Map<Long, Long> stateVector(byte[] update) {
+        return YUpdates.stateVectorFromUpdate(update);
+    }
+
+    /**
+     * 用内存中的状态模拟数据库：saveState 合并写入，loadState 读取
+     */
+    private AtomicReference<byte[]> inMemoryDatabase() {
+        AtomicReference<byte[]> database = new AtomicReference<>(YUpdates.EMPTY_UPDATE);
+        when(stateService.saveState(eq(DOC_ID), any())).thenAnswer(invocation -> {
+            byte[] state = invocation.getArgument(1);
+            database.updateAndGet(current -> YUpdates.mergeUpdates(List.of(current, state)));
+            return true;
+        });
+        return database;
+    }
+
+    @BeforeEach
+    void setUp() {
+        stateService = mock(IDocumentStateService.class);
+        properties = new DocumentPersistenceProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new DocumentStateWriteBuffer(meterRegistry);
+        ReflectionTestUtils.setField(buffer, "documentStateService", stateService);
+        ReflectionTestUtils.setField(buffer, "persistenceProperties", properties);
+    }
+
+    @Test
+    void testConcurrentFlushOfSameDocumentIsSkippedAndOverlayKeepsBoth() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(stateService.saveState(eq(DOC_ID), any())).thenAnswer(invocation -> {
+            saving.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        buffer.submit(DOC_ID, rootInsert(1, "a"));
+        Thread first = Thread.ofVirtual().start(buffer::flushAll);
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        // 第一次落库还没结束时，新的保存和第二次落库不能覆盖正在落库的状态
+        buffer.submit(DOC_ID, rootInsert(2, "b"));
+        buffer.flushAll();
+        verify(stateService, times(1)).saveState(eq(DOC_ID), any());
+
+        byte[] visible = buffer.overlay(DOC_ID, () -> YUpdates.EMPTY_UPDATE);
+        assertEquals(1L, stateVector(visible).get(1L));
+        assertEquals(1L, stateVector(visible).get(2L));
+
+        release.countDown();
+        first.join();
+        buffer.flushAll();
+        verify(stateService, times(2)).saveState(eq(DOC_ID), any());
+    }
+
+    @Test
+    void testStateIsKeptAfterMaxAttemptsAndRetriedOnNextSave() {
+        properties.getWriteBehind().setMaxFlushAttempts(2);
+        when(stateService.saveState(eq(DOC_ID), any())).thenThrow(new RuntimeException("db down"));
+
+        buffer.submit(DOC_ID, rootInsert(1, "a"));
+        buffer.flushAll();
+        buffer.flushAll();
+        assertEquals(1.0, meterRegistry.counter("syncnote.document.state.buffer.abandoned").count());
+
+        // 不再重试，但读取时仍然能看到
+        buffer.flushAll();
+        verify(stateService, times(2)).saveState(eq(DOC_ID), any());
+        assertEquals(1L, stateVector(buffer.overlay(DOC_ID, () -> YUpdates.EMPTY_UPDATE)).get(1L));
+
+        // 下一次保存时和新状态一起落库
+        reset(stateService);
+        buffer.submit(DOC_ID, rootInsert(2, "b"));
+        buffer.flushAll();
+        verify(stateService).saveState(eq(DOC_ID), argThat(state ->
+                stateVector(state).containsKey(1L) && stateVector(state).containsKey(2L)));
+    }
+
+    @Test
+    void testFlushBetweenBufferSnapshotAndDatabaseReadIsNotLost() {
+        AtomicReference<byte[]> database = inMemoryDatabase();
+        buffer.submit(DOC_ID, rootInsert(1, "a"));
+
+        // 读数据库时拿到的是旧状态，返回前缓冲已经落库并清空
+        byte[] visible = buffer.overlay(DOC_ID, () -> {
+            byte[] stale = database.get();
+            Thread flusher = Thread.ofVirtual().start(buffer::flushAll);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return stale;
+        });
+
+        assertEquals(1L, stateVector(visible).get(1L));
+        assertEquals(1L, stateVector(database.get()).get(1L));
+    }
+
+    @Test
+    void testConcurrentFlushAndReadNeverLoseAcknowledgedUpdates() throws Exception {
+        final int CLIENTS = 500;
+        AtomicReference<byte[]> database = inMemoryDatabase();
+        AtomicLong acknowledged = new AtomicLong();
+        AtomicBoolean done = new AtomicBoolean(false);
+
+        // 平台线程由操作系统抢占调度，读取可能落在落库过程的任意两步之间
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (long client = 1; client <= CLIENTS; client++) {
+                buffer.submit(DOC_ID, rootInsert(client, "x"));
+                acknowledged.set(client);
+                Thread.yield();
+            }
+        });
+        Thread flusher = Thread.ofPlatform().start(() -> {
+            while (!done.get()) {
+                buffer.flushAll();
+            }
+        });
+
+        // 读取开始前已经确认的保存，读取结果中必须都能看到
+        try {
+            while (writer.isAlive()) {
+                long expected = acknowledged.get();
+                Map<Long, Long> visible = stateVector(buffer.overlay(DOC_ID, database::get));
+                for (long client = 1; client <= expected; client++) {
+                    assertTrue(visible.containsKey(client), "missing client " + client + " of " + expected);
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+            flusher.join();
+        }
+        buffer.flushAll();
+        assertEquals(CLIENTS, stateVector(database.get()).size());
+    }
+}
@@ -0,0 +1,85 @@
+package com.syncnote.document.yjs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.syncnote.document.yjs.YUpdateFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for YDocumentText (Yjs state to plain text / Markdown)
+ */
+class YDocumentTextTest {
+
+    private static final int INFO_STRING = 4;
+    private static final int INFO_TYPE = 7;
+    private static final int INFO_ANY = 8;
+    private static final int HAS_ORIGIN = 0x80;
+    private static final int HAS_PARENT_SUB = 0x20;
+
+    private static void writeParent(Lib0Encoder e, YId parent) {
+        e.writeVarUint(0);
+        writeId(e, parent);
+    }
+
+    @Test
+    void testPlainTextWithConcurrentInsertsAndDeletes() {
+        byte[] hello = textInsert(1, 0, null, "content", "hello");
+        byte[] world = textInsert(1, 5, new YId(1, 4), "content", " world");
+        // 另一个 client 同时在开头插入
+        byte[] prefix = textInsert(2, 0, null, "content", ">");
+
+        byte[] state = YUpdates.mergeUpdates(List.of(world, prefix, hello, deletion(1, 0, 1)));
+
+        // client 1 < client 2，同一位置的并发插入 client 小的在左
+        assertEquals("ello world>", YDocumentText.extract(state));
+    }
+
+    @Test
+    void testXmlFragmentRendersMarkdown() {
+        Lib0Encoder e = header(1, 0, 7);
+        // clock 0: <heading>
+        e.writeUint8(INFO_TYPE);
+        e.writeVarUint(1);
+        e.writeVarString("content-xml");
+        e.writeVarUint(YContent.TYPE_XML_ELEMENT);
+        e.writeVarString("heading");
+        // clock 1: heading.level = "2"
+        e.writeUint8(INFO_ANY | HAS_PARENT_SUB);
+        writeParent(e, new YId(1, 0));
+        e.writeVarString("level");
+        e.writeVarUint(1);
+        e.writeUint8(119);
+        e.writeVarString("2");
+        // clock 2: heading 中的 XmlText
+        e.writeUint8(INFO_TYPE);
+        writeParent(e, new YId(1, 0));
+        e.writeVarUint(YContent.TYPE_XML_TEXT);
+        // clock 3-7: "Title"
+        e.writeUint8(INFO_STRING);
+        writeParent(e, new YId(1, 2));
+        e.writeVarString("Title");
+        // clock 8: heading 之后的 <paragraph>
+        e.writeUint8(INFO_TYPE | HAS_ORIGIN);
+        writeId(e, new YId(1, 0));
+        e.writeVarUint(YContent.TYPE_XML_ELEMENT);
+        e.writeVarString("paragraph");
+        // clock 9: paragraph 中的 XmlText
+        e.writeUint8(INFO_TYPE);
+        writeParent(e, new YId(1, 8));
+        e.writeVarUint(YContent.TYPE_XML_TEXT);
+        // clock 10-13: "Body"
+        e.writeUint8(INFO_STRING);
+        writeParent(e, new YId(1, 9));
+        e.writeVarString("Body");
+        e.writeVarUint(0);
+
+        assertEquals("## Title\n\nBody", YDocumentText.extract(e.toByteArray()));
+    }
+
+    @Test
+    void testEmptyState() {
+        assertEquals("", YDocumentText.extract(YUpdates.EMPTY_UPDATE));
+    }
+}
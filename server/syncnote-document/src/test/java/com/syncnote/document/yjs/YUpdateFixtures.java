@@ -0,0 +1,81 @@
+package com.syncnote.document.yjs;
+
+/**
+ * Hand-encoded Yjs V1 updates shared by the tests
+ */
+public final class YUpdateFixtures {
+
+    /**
+     * 根类型名，rootInsert / append 都写入这个根类型
+     */
+    public static final String ROOT = "t";
+
+    private static final int INFO_STRING = 4;
+    private static final int HAS_ORIGIN = 0x80;
+
+    private YUpdateFixtures() {
+    }
+
+    /**
+     * client 在根类型 "t" 的开头插入字符串
+     */
+    public static byte[] rootInsert(long client, String text) {
+        return textInsert(client, 0, null, ROOT, text);
+    }
+
+    /**
+     * client 在 (client, clock - 1) 之后追加字符串
+     */
+    public static byte[] append(long client, long clock, String text) {
+        return textInsert(client, clock, new YId(client, clock - 1), ROOT, text);
+    }
+
+    /**
+     * client 在根类型 root 中插入字符串，origin 为 null 表示插在开头
+     */
+    public static byte[] textInsert(long client, long clock, YId origin, String root, String text) {
+        Lib0Encoder e = header(client, clock, 1);
+        if (origin == null) {
+            e.writeUint8(INFO_STRING);
+            e.writeVarUint(1);
+            e.writeVarString(root);
+        } else {
+            e.writeUint8(INFO_STRING | HAS_ORIGIN);
+            writeId(e, origin);
+        }
+        e.writeVarString(text);
+        e.writeVarUint(0);
+        return e.toByteArray();
+    }
+
+    /**
+     * 只有删除集的更新：删除 client 从 clock 开始的 len 个元素
+     */
+    public static byte[] deletion(long client, long clock, long len) {
+        Lib0Encoder e = new Lib0Encoder();
+        e.writeVarUint(0);
+        e.writeVarUint(1);
+        e.writeVarUint(client);
+        e.writeVarUint(1);
+        e.writeVarUint(clock);
+        e.writeVarUint(len);
+        return e.toByteArray();
+    }
+
+    /**
+     * 一个 client 的 structs 个 struct 的头部，之后由调用方写入各个 struct 和删除集
+     */
+    public static Lib0Encoder header(long client, long clock, int structs) {
+        Lib0Encoder e = new Lib0Encoder();
+        e.writeVarUint(1);
+        e.writeVarUint(structs);
+        e.writeVarUint(client);
+        e.writeVarUint(clock);
+        return e;
+    }
+
+    public static void writeId(Lib0Encoder e, YId id) {
+        e.writeVarUint(id.client());
+        e.writeVarUint(id.clock());
+    }
+}
@@ -0,0 +1,126 @@
+package com.syncnote.document.yjs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.syncnote.document.yjs.YUpdateFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for YUpdates (V1 update merge / diff / state vector)
+ */
+class YUpdatesTest {
+
+    @Test
+    void testMergeIsOrderIndependent() {
+        byte[] u1 = rootInsert(1, "abc");
+        byte[] u2 = append(1, 3, "de");
+
+        byte[] merged = YUpdates.mergeUpdates(List.of(u1, u2));
+        byte[] reversed = YUpdates.mergeUpdates(List.of(u2, u1));
+
+        assertArrayEquals(merged, reversed);
+        List<YStruct> structs = YUpdates.readStructs(merged);
+        assertEquals(2, structs.size());
+        assertEquals("abc", structs.get(0).getContent().getString());
+        assertEquals("de", structs.get(1).getContent().getString());
+    }
+
+    @Test
+    void testMergeIgnoresDuplicates() {
+        byte[] u1 = rootInsert(1, "abc");
+        byte[] merged = YUpdates.mergeUpdates(List.of(u1, u1, u1));
+        assertArrayEquals(u1, merged);
+    }
+
+    @Test
+    void testMergeWithGapInsertsSkip() {
+        byte[] merged = YUpdates.mergeUpdates(List.of(rootInsert(1, "abc"), append(1, 5, "x")));
+
+        // 缺失 clock 3..4，状态向量只能统计到连续部分
+        assertEquals(Map.of(1L, 3L), YUpdates.stateVectorFromUpdate(merged));
+        assertEquals(2, YUpdates.readStructs(merged).size());
+    }
+
+    @Test
+    void testStateVector() {
+        byte[] merged = YUpdates.mergeUpdates(List.of(rootInsert(7, "hello"), rootInsert(3, "hi")));
+        Map<Long, Long> sv = YUpdates.decodeStateVector(YUpdates.encodeStateVectorFromUpdate(merged));
+        assertEquals(Map.of(7L, 5L, 3L, 2L), sv);
+    }
+
+    @Test
+    void testDiffSlicesPartiallyKnownStruct() {
+        byte[] merged = YUpdates.mergeUpdates(List.of(rootInsert(1, "abc"), append(1, 3, "de")));
+
+        byte[] diff = YUpdates.diffUpdate(merged, YUpdates.encodeStateVector(Map.of(1L, 2L)));
+
+        List<YStruct> structs = YUpdates.readStructs(diff);
+        assertEquals(2, structs.size());
+        assertEquals(2, structs.get(0).getClock());
+        assertEquals("c", structs.get(0).getContent().getString());
+        assertEquals(new YId(1, 1), structs.get(0).getOrigin());
+        assertEquals("de", structs.get(1).getContent().getString());
+    }
+
+    @Test
+    void testDiffAgainstFullStateVectorIsEmpty() {
+        byte[] u1 = rootInsert(1, "abc");
+        byte[] diff = YUpdates.diffUpdate(u1, YUpdates.encodeStateVectorFromUpdate(u1));
+        assertTrue(YUpdates.isEmpty(diff));
+    }
+
+    @Test
+    void testDiffAgainstEmptyStateVectorReturnsEverything() {
+        byte[] merged = YUpdates.mergeUpdates(List.of(rootInsert(1, "abc"), append(1, 3, "de")));
+        assertArrayEquals(merged, YUpdates.diffUpdate(merged, YUpdates.EMPTY_STATE_VECTOR));
+    }
+
+    @Test
+    void testMergeDeleteSets() {
+        byte[] merged = YUpdates.mergeUpdates(List.of(
+                rootInsert(1, "abcdef"), deletion(1, 0, 2), deletion(1, 1, 2), deletion(1, 5, 1)));
+
+        List<long[]> dels = YUpdates.readDeleteSet(merged).get(1L);
+        assertEquals(2, dels.size());
+        assertArrayEquals(new long[]{0, 3}, dels.get(0));
+        assertArrayEquals(new long[]{5, 1}, dels.get(1));
+    }
+
+    @Test
+    void testDiffSkipsKnownDeletes() {
+        byte[] stored = YUpdates.mergeUpdates(List.of(rootInsert(1, "abcdef"), deletion(1, 0, 2)));
+        byte[] current = YUpdates.mergeUpdates(List.of(stored, deletion(1, 1, 3)));
+
+        byte[] delta = YUpdates.diffUpdate(current,
+                YUpdates.encodeStateVectorFromUpdate(stored), YUpdates.readDeleteSet(stored));
+
+        assertTrue(YUpdates.readStructs(delta).isEmpty());
+        List<long[]> dels = YUpdates.readDeleteSet(delta).get(1L);
+        assertEquals(1, dels.size());
+        assertArrayEquals(new long[]{2, 2}, dels.get(0));
+        assertArrayEquals(current, YUpdates.mergeUpdates(List.of(stored, delta)));
+
+        assertTrue(YUpdates.isEmpty(YUpdates.diffUpdate(current,
+                YUpdates.encodeStateVectorFromUpdate(current), YUpdates.readDeleteSet(current))));
+    }
+
+    @Test
+    void testEmptyInputsAreNormalized() {
+        assertArrayEquals(YUpdates.EMPTY_UPDATE, YUpdates.mergeUpdates(List.of(new byte[0], YUpdates.EMPTY_UPDATE)));
+        assertTrue(YUpdates.isEmpty(YUpdates.diffUpdate(new byte[0], YUpdates.EMPTY_STATE_VECTOR)));
+    }
+
+    @Test
+    void testSyncProtocolRoundTrip() {
+        byte[] update = rootInsert(1, "abc");
+        YSyncProtocol.Message message = YSyncProtocol.decode(YSyncProtocol.encodeUpdate(update));
+
+        assertTrue(message.isDocumentWrite());
+        assertEquals(YSyncProtocol.SYNC_UPDATE, message.syncType());
+        assertArrayEquals(update, message.payload());
+        assertFalse(YSyncProtocol.decode(new byte[]{1, 0}).isSync());
+    }
+}
@@ -1,5 +1,7 @@
 package com.syncnote.user.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.syncnote.user.dto.response.UpdateUserResponseDTO;
 import com.syncnote.user.dto.response.UserResponseOfLoginInfo;
 import com.syncnote.user.mapper.UserMapper;
@@ -9,15 +11,30 @@ import com.syncnote.util.JWT.JWTUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class UserServiceImpl implements IUserService {
 
+    /**
+     * 用户信息本地缓存的有效期；本节点修改时立即失效，其他节点最多在这段时间后看到修改
+     */
+    private static final Duration USER_CACHE_TTL = Duration.ofSeconds(30);
+
+    private static final long USER_CACHE_SIZE = 10000;
+
     @Autowired
     private JWTUtil jwtUtil;
 
     @Autowired
     private UserMapper userMapper;
 
+    // 每次获取个人信息都要查库，这里缓存一小段时间
+    private final Cache<Long, User> userCache = Caffeine.newBuilder()
+            .maximumSize(USER_CACHE_SIZE)
+            .expireAfterWrite(USER_CACHE_TTL)
+            .build();
+
     @Override
     public UserResponseOfLoginInfo getCurrentUser(String token){
         User user = getUserInfoFromToken(token);
@@ -33,29 +50,52 @@ public class UserServiceImpl implements IUserService {
 
     @Override
     public void updateUserInfo(String token, UpdateUserResponseDTO dto){
-        getUserInfoFromToken(token);
-        User user = getUserInfoFromToken(token);
+        // 修改时从数据库读取，不改动缓存中的对象
+        User user = requireUser(userMapper.selectById(verifiedUserId(token)));
 
         if(dto.getUsername() != null) user.setUsername(dto.getUsername());
         if(dto.getAvatar() != null) user.setAvatar(dto.getAvatar());
 
         userMapper.updateById(user);
+        userCache.invalidate(user.getId());
     }
 
-    // 从Token获取用户信息
+    // 从Token获取用户信息，返回副本，调用方修改返回值不会影响缓存
     @Override
     public User getUserInfoFromToken(String token) {
-        if(jwtUtil.IsTokenInvalidOrInactive(token)){
+        Long userId = verifiedUserId(token);
+        User user = userCache.getIfPresent(userId);
+        if (user == null) {
+            user = requireUser(userMapper.selectById(userId));
+            userCache.put(userId, user);
+        }
+        return copyOf(user);
+    }
+
+    // 校验 Token（签名、登录状态）并返回用户ID，同一会话命中 JWTUtil 的本地缓存
+    private Long verifiedUserId(String token) {
+        Long userId = jwtUtil.verify(token);
+        if(userId == null){
             throw new RuntimeException("Token 信息无效");
         }
+        return userId;
+    }
 
-        Long userId = jwtUtil.getUserId(token);
-        User user = userMapper.selectById(userId);
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setEmail(user.getEmail());
+        copy.setAvatar(user.getAvatar());
+        copy.setPasswordHash(user.getPasswordHash());
+        copy.setCreatedAt(user.getCreatedAt());
+        return copy;
+    }
 
+    private static User requireUser(User user) {
         if(user == null){
             throw new NullPointerException("用户不存在");
         }
-
         return user;
     }
 }
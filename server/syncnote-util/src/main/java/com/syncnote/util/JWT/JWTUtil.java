@@ -1,33 +1,123 @@
 package com.syncnote.util.JWT;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class JWTUtil {
 
+    private static final Logger logger = LoggerFactory.getLogger(JWTUtil.class);
+
     @Autowired
     private JwtProperties properties;
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    // 密钥和解析器只构建一次，二者都是不可变、线程安全的
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    /**
+     * 已校验通过（签名、有效期、Redis 中仍处于登录状态）的 token -> userId
+     * 同一会话的后续请求直接命中，不再做 HMAC 校验和 claims 解析
+     */
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * 每收到一次注销就加一；校验期间发生注销时不写入缓存，避免把刚注销的 token 缓存下来
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private record VerifiedToken(Long userId, long expiresAtMs) {
+    }
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(properties.getSecretKey().getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(properties.getVerifiedCacheSize())
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String token, VerifiedToken value, long currentTime) {
+                        // 缓存时间不超过 token 剩余的有效期
+                        long remainingMs = value.expiresAtMs() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, Math.min(remainingMs, properties.getVerifiedCacheTtlMs())));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(token, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        // 订阅其他节点的注销通知；Redis 不可用时只影响跨节点失效，缓存仍会在 TTL 后过期
+        try {
+            listenerContainer.addMessageListener((message, pattern) ->
+                    evict(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(properties.getInvalidationChannel()));
+            if (properties.isKeyspaceNotifications()) {
+                // 消息体为被删除或过期的 key
+                listenerContainer.addMessageListener((message, pattern) -> {
+                    String key = new String(message.getBody(), StandardCharsets.UTF_8);
+                    if (key.startsWith(properties.getRedisPrefix())) {
+                        evict(key.substring(properties.getRedisPrefix().length()));
+                    }
+                }, List.of(new PatternTopic("__keyevent@*__:del"), new PatternTopic("__keyevent@*__:expired")));
+            }
+        } catch (Exception e) {
+            logger.warn("订阅 token 注销通知失败: {}", e.getMessage());
+        }
+    }
+
     // 生成 token
     public String generateToken(Long userId) {
         String token = Jwts.builder()
                 .setSubject(userId.toString())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + properties.getExpirationMs()))
-                .signWith(Keys.hmacShaKeyFor(properties.getSecretKey().getBytes()), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
 
         // 将Token存入Redis
@@ -38,28 +128,58 @@ public class JWTUtil {
 
     // 解析 token
     public Long getUserId(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(Keys.hmacShaKeyFor(properties.getSecretKey().getBytes()))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            return cached.userId();
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
         return Long.parseLong(claims.getSubject());
     }
 
-    // 校验 Token正确
-    public boolean IsTokenValidAndActive(String token) {
+    /**
+     * 校验 token 的签名、有效期以及是否仍处于登录状态
+     *
+     * @return 通过时返回 userId，否则返回 null
+     */
+    public Long verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            return cached.userId();
+        }
+
+        long version = invalidations.get();
+        Claims claims;
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(Keys.hmacShaKeyFor(properties.getSecretKey().getBytes()))
-                    .build()
-                    .parseClaimsJws(token);
-        } catch (JwtException e) {
-            return false;
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
 
         // 检查 token 是否存在于 Redis
-        String redisKey = properties.getRedisPrefix() + token;
-        return redisTemplate.hasKey(redisKey);
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(properties.getRedisPrefix() + token))) {
+            return null;
+        }
+
+        Long userId;
+        try {
+            userId = Long.parseLong(claims.getSubject());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long expiresAtMs = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        verifiedTokens.put(token, new VerifiedToken(userId, expiresAtMs));
+        if (invalidations.get() != version) {
+            verifiedTokens.invalidate(token);
+        }
+        return userId;
+    }
+
+    // 校验 Token正确
+    public boolean IsTokenValidAndActive(String token) {
+        return verify(token) != null;
     }
 
     // 校验 Token正确
@@ -67,8 +187,20 @@ public class JWTUtil {
         return !IsTokenValidAndActive(token);
     }
 
-    // 让Token失效
+    // 让Token失效，并通知其他节点清除本地缓存
     public void invalidateToken(String token) {
         redisTemplate.delete(properties.getRedisPrefix() + token);
+        evict(token);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.publish(properties.getInvalidationChannel().getBytes(StandardCharsets.UTF_8),
+                    token.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            logger.warn("发布 token 注销通知失败，其他节点的缓存将在 TTL 后过期: {}", e.getMessage());
+        }
+    }
+
+    private void evict(String token) {
+        invalidations.incrementAndGet();
+        verifiedTokens.invalidate(token);
     }
 }
@@ -11,4 +11,26 @@ public class JwtProperties {
     private String secretKey;
     private long expirationMs;
     private String redisPrefix;
+
+    /**
+     * 已校验 token 的本地缓存条目上限
+     */
+    private long verifiedCacheSize = 10000;
+
+    /**
+     * 已校验 token 在本地缓存的最长时间（毫秒），不超过 token 本身的过期时间；
+     * 注销通知丢失时，其他节点最多在这段时间内仍认为 token 有效
+     */
+    private long verifiedCacheTtlMs = 60000;
+
+    /**
+     * 注销时通知其他节点清除本地缓存的 Redis 频道
+     */
+    private String invalidationChannel = "syncnote:jwt:invalidated";
+
+    /**
+     * 是否同时订阅 Redis 键空间通知（del/expired），token key 被其他途径删除时也能清除本地缓存
+     * 需要 Redis 开启 notify-keyspace-events（至少包含 Egx）
+     */
+    private boolean keyspaceNotifications = false;
 }
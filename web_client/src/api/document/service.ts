@@ -10,12 +10,16 @@ import type {
   ApiResponse,
   DocumentDetailResponse,
   GetDocumentDetailBase64State,
-  CollaboratorSimpleInfo
+  CollaboratorSimpleInfo,
+  DocumentListQuery,
+  DocumentPage
 } from "./types";
 
 // 文档相关API - 统一使用 /api/documents 路径
-export function getDocuments(): Promise<ApiResponse<Document[]>> {
-  return api.get<ApiResponse<Document[]>>("/documents");
+export function getDocuments(
+  query: DocumentListQuery = {}
+): Promise<ApiResponse<DocumentPage>> {
+  return api.get<ApiResponse<DocumentPage>>("/documents", { params: query });
 }
 
 export function getDocument(
@@ -39,6 +43,36 @@ export function updateDocumentState(
   return api.post<ApiResponse<String>>(`/documents/${id}/state`, data);
 }
 
+// 查询承载文档协同房间的节点地址（如 ws://10.0.0.5:8080），未启用房间亲和路由时为 null
+export function getDocumentSyncNode(
+  id: string
+): Promise<ApiResponse<string | null>> {
+  return api.get<ApiResponse<string | null>>(`/documents/${id}/sync-node`);
+}
+
+// 获取 Yjs 二进制状态（原始字节，不经过 Base64）
+export async function getDocumentStateBinary(
+  id: string
+): Promise<Uint8Array> {
+  const buffer = await api.get<ArrayBuffer>(`/documents/${id}/state/binary`, {
+    responseType: "arraybuffer",
+    transformResponse: [(data: ArrayBuffer) => data],
+  });
+  return new Uint8Array(buffer);
+}
+
+// 更新 Yjs 二进制状态（原始字节，不经过 Base64）
+export function updateDocumentStateBinary(
+  id: string,
+  state: Uint8Array
+): Promise<ApiResponse<String>> {
+  return api.post<ApiResponse<String>>(`/documents/${id}/state/binary`, new Blob([state]), {
+    headers: {
+      "Content-Type": "application/octet-stream",
+    },
+  });
+}
+
 export function createDocument(
   data: CreateDocumentRequest
 ): Promise<ApiResponse<Document>> {
@@ -10,6 +10,23 @@ export interface ApiResponse<T> {
   data: T;
 }
 
+// 文档列表查询参数 - 游标分页
+export interface DocumentListQuery {
+  cursor?: string;
+  limit?: number;
+  sort?: "updatedAt" | "createdAt";
+  order?: "desc" | "asc";
+  fileType?: string;
+  parentId?: string;
+}
+
+// 文档列表分页响应
+export interface DocumentPage {
+  items: Document[];
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
 // 创建文档请求 - 匹配后端API
 export interface CreateDocumentRequest {
   fileName: string;
@@ -13,18 +13,28 @@ import {
 export function useDocumentActions() {
   const documentStore = useDocumentStore()
   const loading = ref(false)
+  const loadingMore = ref(false)
 
   /**
-   * 加载文档列表
+   * 加载文档列表（第一页），后续页通过 loadMoreDocuments 按需加载
    */
   const loadDocuments = async (showTrash: boolean = false) => {
     documentStore.setLoading(true)
 
     try {
-      const response = showTrash ? await getTrashDocuments() : await getDocuments()
-      if (response.code === 200) {
-        documentStore.setDocuments(response.data)
-      } 
+      if (showTrash) {
+        const response = await getTrashDocuments()
+        if (response.code === 200) {
+          documentStore.setDocuments(response.data)
+          documentStore.setNextCursor(null)
+        }
+      } else {
+        const response = await getDocuments()
+        if (response.code === 200) {
+          documentStore.setDocuments(response.data.items)
+          documentStore.setNextCursor(response.data.nextCursor)
+        }
+      }
     } catch (error: any) {
       console.error('加载文档失败:', error)
 
@@ -43,6 +53,28 @@ export function useDocumentActions() {
     }
   }
 
+  /**
+   * 加载下一页文档，追加到列表末尾；没有下一页或正在加载时直接返回
+   */
+  const loadMoreDocuments = async () => {
+    const cursor = documentStore.nextCursor
+    if (!cursor || loadingMore.value) return
+
+    loadingMore.value = true
+    try {
+      const response = await getDocuments({ cursor })
+      // 加载期间列表被刷新过时丢弃这一页
+      if (response.code === 200 && documentStore.nextCursor === cursor) {
+        documentStore.appendDocuments(response.data.items)
+        documentStore.setNextCursor(response.data.nextCursor)
+      }
+    } catch (error: any) {
+      console.error('加载更多文档失败:', error)
+    } finally {
+      loadingMore.value = false
+    }
+  }
+
   /**
    * 删除文档（移到回收站）
    */
@@ -98,7 +130,9 @@ export function useDocumentActions() {
 
   return {
     loading,
+    loadingMore,
     loadDocuments,
+    loadMoreDocuments,
     handleDelete,
     handlePermanentDelete,
     toggleTrash
@@ -5,12 +5,23 @@ export function useDocumentActions(state: {
   documents: { value: Document[] }
   currentDocument: { value: Document | null }
   collaborators: { value: DocumentCollaborator[] }
+  nextCursor: { value: string | null }
   isLoading: { value: boolean }
 }) {
   function setDocuments(docs: Document[]) {
     state.documents.value = docs
   }
 
+  // 追加下一页，跳过翻页期间因更新时间变化而重复出现的文档
+  function appendDocuments(docs: Document[]) {
+    const loaded = new Set(state.documents.value.map(d => d.id))
+    state.documents.value.push(...docs.filter(d => !loaded.has(d.id)))
+  }
+
+  function setNextCursor(cursor: string | null) {
+    state.nextCursor.value = cursor
+  }
+
   function setCurrentDocument(doc: Document | null) {
     state.currentDocument.value = doc
   }
@@ -47,6 +58,8 @@ export function useDocumentActions(state: {
 
   return {
     setDocuments,
+    appendDocuments,
+    setNextCursor,
     setCurrentDocument,
     setCollaborators,
     addDocument,
@@ -12,6 +12,8 @@ export function useDocumentState() {
   const documents = ref<Document[]>([])
   const currentDocument = ref<Document | null>(null)
   const collaborators = ref<DocumentCollaborator[]>([])
+  // 文档列表下一页的游标，null 表示已经是最后一页
+  const nextCursor = ref<string | null>(null)
 
   // 错误状态管理 - 解耦错误处理逻辑
   const errors = ref<DocumentError[]>([])
@@ -21,6 +23,7 @@ export function useDocumentState() {
     documents,
     currentDocument,
     collaborators,
+    nextCursor,
     errors,
     isLoading
   }
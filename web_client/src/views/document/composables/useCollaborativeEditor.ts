@@ -1,7 +1,7 @@
 import { ref, onUnmounted } from 'vue'
 import * as Y from 'yjs'
 import { WebsocketProvider } from 'y-websocket'
-import { getDocumentState } from '../../../api/document'
+import { getDocumentStateBinary, getDocumentSyncNode } from '../../../api/document'
 
 export function useCollaborativeEditor(docId: string) {
   const ydoc = new Y.Doc()
@@ -12,7 +12,33 @@ export function useCollaborativeEditor(docId: string) {
 
   const wsUrl = `${protocol}//${host}:8080/ws/document`;
   // 1. 初始化 Provider，但先不连接 (手动控制 connect)
-  const provider = new WebsocketProvider(wsUrl, docId.toString(), ydoc, { connect: false })
+  // 浏览器的 WebSocket 无法设置请求头，token 通过查询参数传递，服务端在握手时校验一次
+  const token = localStorage.getItem('token') ?? '';
+  const provider = new WebsocketProvider(wsUrl, docId.toString(), ydoc, { connect: false, params: { token } })
+
+  // WebSocket 首次同步的最长等待时间，超时后回退到 REST 加载
+  const SYNC_TIMEOUT_MS = 3000;
+
+  // 多节点部署时，连接前先查询承载该文档的节点，把 provider 指向它
+  const routeToSyncNode = async () => {
+    try {
+      const res = await getDocumentSyncNode(docId.toString());
+      if (!res.data) return;
+      const target = new URL(provider.url);
+      const owner = new URL(res.data);
+      target.protocol = owner.protocol;
+      target.host = owner.host;
+      provider.url = target.toString();
+    } catch (e) {
+      // 查询失败时连接默认地址，服务端会拒绝不属于自己的文档，断线重连时再查询
+      console.warn('[Yjs] 查询协同节点失败，使用默认地址:', e);
+    }
+  };
+
+  // 节点上下线后文档可能换了节点，断线后重新查询，y-websocket 自动重连时会使用新地址
+  provider.on('connection-close', () => {
+    routeToSyncNode();
+  });
 
   // 用来上锁，控制重复加载
   let loadingPromise: Promise<void> | null = null;
@@ -46,16 +72,23 @@ export function useCollaborativeEditor(docId: string) {
     }
 
     loadingPromise = (async () => {
-      // 直接ws连接，人数秒响应
+      // 直接ws连接，服务端会按本地状态向量只下发缺失的部分
+      await routeToSyncNode();
       provider.connect();
-      const dbPromise = getDocumentState(docId.toString());
 
-      try {
-        const res = await dbPromise;
+      if (await waitForSync(SYNC_TIMEOUT_MS)) {
+        validateDocumentStructure();
+        isLoaded.value = true;
+        return;
+      }
 
-        if (res.code === 200 && res.data) {
-          const binary = Uint8Array.from(atob(String(res.data)), c => c.charCodeAt(0));
+      // WebSocket 同步超时，回退到 REST 全量快照
+      const dbPromise = getDocumentStateBinary(docId.toString());
 
+      try {
+        const binary = await dbPromise;
+
+        if (binary.length > 0) {
           Y.applyUpdate(ydoc, binary);
 
           setTimeout(() => {
@@ -80,6 +113,24 @@ export function useCollaborativeEditor(docId: string) {
     return loadingPromise;
   };
 
+  // 等待 WebSocket 首次同步完成（收到服务端的 SyncStep2）
+  function waitForSync(timeoutMs: number): Promise<boolean> {
+    if (provider.synced) return Promise.resolve(true);
+    return new Promise(resolve => {
+      const onSync = (synced: boolean) => {
+        if (!synced) return;
+        clearTimeout(timer);
+        provider.off('sync', onSync);
+        resolve(true);
+      };
+      const timer = setTimeout(() => {
+        provider.off('sync', onSync);
+        resolve(false);
+      }, timeoutMs);
+      provider.on('sync', onSync);
+    });
+  }
+
   // 初始化空文档结构
   function initializeEmptyDocument() {
     ydoc.transact(() => {
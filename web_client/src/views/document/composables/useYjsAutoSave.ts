@@ -1,10 +1,11 @@
 import * as Y from 'yjs'
 import { debounce } from 'lodash-es'
-import { updateDocumentState } from '../../../api/document'
+import { updateDocumentStateBinary } from '../../../api/document'
 
 export function useYjsAutoSave(ydoc: Y.Doc, docId: string, delay = 1000) {
-    const uint8ArrayToBase64 = (arr: Uint8Array) => btoa(String.fromCharCode(...arr))
-    let lastSavedState: string | null = null
+    const sameBytes = (a: Uint8Array | null, b: Uint8Array) =>
+        a !== null && a.length === b.length && a.every((v, i) => v === b[i])
+    let lastSavedState: Uint8Array | null = null
     let isPaused = false
 
     // 经过delay时间没有操作，则自动和数据库同步
@@ -14,13 +15,12 @@ export function useYjsAutoSave(ydoc: Y.Doc, docId: string, delay = 1000) {
 
         // 导出当前 ydoc 的完整状态快照
         const state = Y.encodeStateAsUpdate(ydoc)
-        const docContent = uint8ArrayToBase64(state)
 
         // 只有在内容真正变化时才请求后端，减少网络开销
-        if (docContent !== lastSavedState) {
+        if (!sameBytes(lastSavedState, state)) {
             try {
-                await updateDocumentState(docId, { base64State: docContent })
-                lastSavedState = docContent
+                await updateDocumentStateBinary(docId, state)
+                lastSavedState = state
             } catch (error) {
                 console.error('[Yjs] 自动保存失败:', error)
             }
@@ -60,12 +60,11 @@ export function useYjsAutoSave(ydoc: Y.Doc, docId: string, delay = 1000) {
             // 获取所有Yjs内容用于调试
 
             const state = Y.encodeStateAsUpdate(ydoc)
-            const docContent = uint8ArrayToBase64(state)
 
-            const response = await updateDocumentState(docId, { base64State: docContent })
+            const response = await updateDocumentStateBinary(docId, state)
 
             if (response.code === 200) {
-                lastSavedState = docContent
+                lastSavedState = state
                 return true
             } else {
                 console.error(`[Yjs] 文档 ${docId} 手动保存失败:`, response)